@@ -0,0 +1,24 @@
+package com.coffeesoft.taskmanager.config;
+
+import com.coffeesoft.taskmanager.metrics.QueryCounter;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class HibernateConfig {
+    @Value("${task.persistence.jdbc-batch-size:50}")
+    private int jdbcBatchSize;
+
+    @Bean
+    public HibernatePropertiesCustomizer batchingHibernatePropertiesCustomizer() {
+        return properties -> {
+            properties.putIfAbsent(AvailableSettings.STATEMENT_BATCH_SIZE, jdbcBatchSize);
+            properties.putIfAbsent(AvailableSettings.ORDER_INSERTS, true);
+            properties.putIfAbsent(AvailableSettings.ORDER_UPDATES, true);
+            properties.putIfAbsent(AvailableSettings.STATEMENT_INSPECTOR, QueryCounter.class.getName());
+        };
+    }
+}
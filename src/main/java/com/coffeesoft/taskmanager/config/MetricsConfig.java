@@ -0,0 +1,90 @@
+package com.coffeesoft.taskmanager.config;
+
+import com.coffeesoft.taskmanager.metrics.QueryCounter;
+import com.coffeesoft.taskmanager.metrics.RequestMetrics;
+import com.coffeesoft.taskmanager.security.JwtTokenFilter;
+import com.coffeesoft.taskmanager.security.TimedPasswordEncoder;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.core.instrument.distribution.PercentileHistogramBuckets;
+import io.micrometer.core.instrument.simple.CountingMode;
+import io.micrometer.core.instrument.simple.SimpleConfig;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskDecorator;
+
+import java.time.Duration;
+import java.util.Set;
+
+@Configuration
+public class MetricsConfig {
+    private static final Set<String> LATENCY_HISTOGRAMS = Set.of(RequestMetrics.REQUESTS,
+            JwtTokenFilter.VERIFY_METER, TimedPasswordEncoder.HASH_METER);
+    /**
+     * The log-linear buckets Micrometer uses for percentile histograms, from 1 ms to 10 s. The simple registry only
+     * publishes explicit boundaries, so they are passed as service level objectives.
+     */
+    private static final double[] LATENCY_BUCKETS = PercentileHistogramBuckets.buckets(
+            DistributionStatisticConfig.builder()
+                    .percentilesHistogram(true)
+                    .minimumExpectedValue((double) Duration.ofMillis(1).toNanos())
+                    .maximumExpectedValue((double) Duration.ofSeconds(10).toNanos())
+                    .build()
+                    .merge(DistributionStatisticConfig.DEFAULT))
+            .stream().mapToDouble(Double::doubleValue).toArray();
+
+    /**
+     * Prometheus expects counts that only grow. In cumulative mode the simple registry's step only sets how often
+     * histogram buckets and maxima rotate, so a step longer than any process lifetime keeps those cumulative too.
+     */
+    @Bean
+    public SimpleConfig simpleConfig() {
+        return new SimpleConfig() {
+            @Override
+            public String get(String key) {
+                return null;
+            }
+
+            @Override
+            public CountingMode mode() {
+                return CountingMode.CUMULATIVE;
+            }
+
+            @Override
+            public Duration step() {
+                return Duration.ofDays(3650);
+            }
+        };
+    }
+
+    /**
+     * Counts the queries of streamed and other asynchronous response bodies towards the request they belong to.
+     */
+    @Bean
+    public TaskDecorator queryCountingTaskDecorator() {
+        return QueryCounter::propagate;
+    }
+
+    @Bean
+    public MeterFilter histogramMeterFilter() {
+        return new MeterFilter() {
+            @Override
+            public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                if (LATENCY_HISTOGRAMS.contains(id.getName())) {
+                    return DistributionStatisticConfig.builder()
+                            .serviceLevelObjectives(LATENCY_BUCKETS)
+                            .build()
+                            .merge(config);
+                }
+                if (RequestMetrics.QUERIES.equals(id.getName())) {
+                    return DistributionStatisticConfig.builder()
+                            .serviceLevelObjectives(1, 2, 3, 5, 10, 20, 50, 100)
+                            .build()
+                            .merge(config);
+                }
+                return config;
+            }
+        };
+    }
+}
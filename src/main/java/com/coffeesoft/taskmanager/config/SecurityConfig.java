@@ -1,6 +1,13 @@
 package com.coffeesoft.taskmanager.config;
 
+import com.coffeesoft.taskmanager.model.Permission;
+import com.coffeesoft.taskmanager.security.BCryptCost;
 import com.coffeesoft.taskmanager.security.JwtConfigurer;
+import com.coffeesoft.taskmanager.security.JwtTokenFilter;
+import com.coffeesoft.taskmanager.security.TimedPasswordEncoder;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -10,8 +17,11 @@ import org.springframework.security.config.annotation.web.configuration.EnableWe
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import java.util.Map;
+
 @Configuration
 @EnableWebSecurity
 @EnableGlobalMethodSecurity(prePostEnabled = true)
@@ -23,8 +33,20 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
     }
 
     @Bean
-    protected PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder(12);
+    protected PasswordEncoder passwordEncoder(MeterRegistry meterRegistry,
+                                              @Value("${security.password-hashing.cost:0}") int cost,
+                                              @Value("${security.password-hashing.target-millis:250}") long targetMillis) {
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(cost > 0 ? cost : BCryptCost.forTargetMillis(targetMillis));
+        DelegatingPasswordEncoder delegating = new DelegatingPasswordEncoder("bcrypt", Map.of("bcrypt", bcrypt));
+        delegating.setDefaultPasswordEncoderForMatches(bcrypt);
+        return new TimedPasswordEncoder(delegating, meterRegistry);
+    }
+
+    @Bean
+    public FilterRegistrationBean<JwtTokenFilter> jwtTokenFilterRegistration(JwtTokenFilter jwtTokenFilter) {
+        FilterRegistrationBean<JwtTokenFilter> registration = new FilterRegistrationBean<>(jwtTokenFilter);
+        registration.setEnabled(false);
+        return registration;
     }
 
     @Bean
@@ -43,6 +65,7 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
                 .antMatchers("/").permitAll()
                 .antMatchers("/api/registration").permitAll()
                 .antMatchers("/api/login").permitAll()
+                .antMatchers("/api/tasks/sync").hasAuthority(Permission.TASKS_READ.getPermission())
                 .anyRequest()
                 .authenticated()
                 .and()
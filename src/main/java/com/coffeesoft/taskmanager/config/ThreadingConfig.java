@@ -0,0 +1,79 @@
+package com.coffeesoft.taskmanager.config;
+
+import com.coffeesoft.taskmanager.repository.ConnectionLimitingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.coyote.ProtocolHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Opt-in virtual thread mode: with {@code server.threads.virtual=true} Tomcat runs every request, and with it the
+ * blocking JDBC calls it makes, on its own virtual thread instead of a bounded platform thread pool. The data source is
+ * then put behind a {@link ConnectionLimitingDataSource} sized like the connection pool, which can also be enabled
+ * on its own with {@code spring.datasource.limiter.enabled}.
+ */
+@Configuration
+public class ThreadingConfig {
+    private static final Logger logger = LoggerFactory.getLogger(ThreadingConfig.class);
+
+    private final boolean virtualThreads;
+    private ExecutorService requestExecutor;
+
+    public ThreadingConfig(@Value("${server.threads.virtual:false}") boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadsProtocolHandlerCustomizer() {
+        return protocolHandler -> {
+            if (virtualThreads) {
+                requestExecutor = VirtualThreads.newExecutor("http-virtual-");
+                protocolHandler.setExecutor(requestExecutor);
+                logger.info("Tomcat handles requests on virtual threads");
+            }
+        };
+    }
+
+    @Bean
+    public static BeanPostProcessor connectionLimiterPostProcessor(
+            ObjectProvider<MeterRegistry> meterRegistry,
+            @Value("${server.threads.virtual:false}") boolean virtualThreads,
+            @Value("${spring.datasource.limiter.enabled:}") Boolean enabled,
+            @Value("${spring.datasource.limiter.permits:0}") int permits) {
+        boolean limited = enabled != null ? enabled : virtualThreads;
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!limited || !(bean instanceof DataSource) || bean instanceof ConnectionLimitingDataSource) {
+                    return bean;
+                }
+                // Hikari reports -1 until its pool starts and then applies its default of 10
+                int poolSize = bean instanceof HikariDataSource ? ((HikariDataSource) bean).getMaximumPoolSize() : -1;
+                long timeoutMillis = bean instanceof HikariDataSource
+                        ? ((HikariDataSource) bean).getConnectionTimeout() : 30_000;
+                int limit = permits > 0 ? permits : poolSize > 0 ? poolSize : 10;
+                logger.info("Data source '{}' limited to {} concurrent connections", beanName, limit);
+                return new ConnectionLimitingDataSource((DataSource) bean, limit, timeoutMillis,
+                        meterRegistry.getObject());
+            }
+        };
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (requestExecutor != null) {
+            requestExecutor.shutdown();
+        }
+    }
+}
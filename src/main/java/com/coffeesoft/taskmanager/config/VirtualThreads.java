@@ -0,0 +1,40 @@
+package com.coffeesoft.taskmanager.config;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Virtual thread executors, looked up reflectively so the project keeps compiling for the Java release the rest of
+ * the stack supports while still using them when it runs on Java 21 or newer.
+ */
+public final class VirtualThreads {
+    private VirtualThreads() {
+    }
+
+    public static boolean isSupported() {
+        return Runtime.version().feature() >= 21;
+    }
+
+    /**
+     * Executor that starts one virtual thread per task, named {@code namePrefix} followed by a counter.
+     *
+     * @throws IllegalStateException when the running JVM has no virtual threads
+     */
+    public static ExecutorService newExecutor(String namePrefix) {
+        if (!isSupported()) {
+            throw new IllegalStateException("Virtual threads need Java 21 or newer, running on Java " +
+                    Runtime.version().feature());
+        }
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 0L);
+            ThreadFactory threadFactory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                    .invoke(null, threadFactory);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not create a virtual thread executor", e);
+        }
+    }
+}
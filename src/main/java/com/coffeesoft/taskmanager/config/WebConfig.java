@@ -0,0 +1,22 @@
+package com.coffeesoft.taskmanager.config;
+
+import com.coffeesoft.taskmanager.security.VerifiedTokenArgumentResolver;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+    private final VerifiedTokenArgumentResolver verifiedTokenArgumentResolver;
+
+    public WebConfig(VerifiedTokenArgumentResolver verifiedTokenArgumentResolver) {
+        this.verifiedTokenArgumentResolver = verifiedTokenArgumentResolver;
+    }
+
+    @Override
+    public void addArgumentResolvers(List<HandlerMethodArgumentResolver> resolvers) {
+        resolvers.add(verifiedTokenArgumentResolver);
+    }
+}
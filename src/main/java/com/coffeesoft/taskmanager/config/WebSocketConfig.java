@@ -0,0 +1,22 @@
+package com.coffeesoft.taskmanager.config;
+
+import com.coffeesoft.taskmanager.websocket.TaskSyncHandler;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+
+@Configuration
+@EnableWebSocket
+public class WebSocketConfig implements WebSocketConfigurer {
+    private final TaskSyncHandler taskSyncHandler;
+
+    public WebSocketConfig(TaskSyncHandler taskSyncHandler) {
+        this.taskSyncHandler = taskSyncHandler;
+    }
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        registry.addHandler(taskSyncHandler, "/api/tasks/sync").setAllowedOrigins("*");
+    }
+}
@@ -1,15 +1,20 @@
 package com.coffeesoft.taskmanager.controller;
 
 import com.coffeesoft.taskmanager.exception.ExistException;
+import com.coffeesoft.taskmanager.exception.HashingRejectedException;
 import com.coffeesoft.taskmanager.exception.UserNotExistException;
 import com.coffeesoft.taskmanager.model.AuthenticationRequest;
 import com.coffeesoft.taskmanager.model.Role;
 import com.coffeesoft.taskmanager.model.Status;
 import com.coffeesoft.taskmanager.model.User;
+import com.coffeesoft.taskmanager.model.UserVersion;
 import com.coffeesoft.taskmanager.security.JwtTokenProvider;
+import com.coffeesoft.taskmanager.security.PasswordHashingExecutor;
+import com.coffeesoft.taskmanager.security.VerifiedToken;
 import com.coffeesoft.taskmanager.service.UserService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -24,6 +29,7 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api")
@@ -34,20 +40,32 @@ public class AuthenticationRestController {
     private final UserService userService;
     private final JwtTokenProvider jwtTokenProvider;
     private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingExecutor passwordHashingExecutor;
 
-    public AuthenticationRestController(AuthenticationManager authenticationManager, UserService userService, JwtTokenProvider jwtTokenProvider, PasswordEncoder passwordEncoder) {
+    public AuthenticationRestController(AuthenticationManager authenticationManager, UserService userService, JwtTokenProvider jwtTokenProvider, PasswordEncoder passwordEncoder,
+                                        PasswordHashingExecutor passwordHashingExecutor) {
         this.authenticationManager = authenticationManager;
         this.userService = userService;
         this.jwtTokenProvider = jwtTokenProvider;
         this.passwordEncoder = passwordEncoder;
+        this.passwordHashingExecutor = passwordHashingExecutor;
     }
 
     @PostMapping("/login")
-    public ResponseEntity<?> authenticate(@RequestBody AuthenticationRequest request) {
+    public CompletableFuture<ResponseEntity<?>> authenticate(@RequestBody AuthenticationRequest request) {
+        try {
+            return passwordHashingExecutor.submit(() -> login(request));
+        } catch (HashingRejectedException e) {
+            logger.warn(e.getMessage());
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(e.getMessage()));
+        }
+    }
+
+    private ResponseEntity<?> login(AuthenticationRequest request) {
         try {
             authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(request.getUsername(), request.getPassword()));
-            User user = userService.getUserByUsername(request.getUsername());
-            String token = jwtTokenProvider.createToken(request.getUsername(), user.getRole().name());
+            User user = userService.getUserWithTasksByUsername(request.getUsername());
+            String token = jwtTokenProvider.createToken(user.getId(), request.getUsername(), user.getRole().name());
             Map<Object, Object> response = new HashMap<>();
             response.put("user", user);
             response.put("token", token);
@@ -60,7 +78,16 @@ public class AuthenticationRestController {
     }
 
     @PostMapping("/registration")
-    public ResponseEntity<?> registration(@RequestBody User user) {
+    public CompletableFuture<ResponseEntity<?>> registration(@RequestBody User user) {
+        try {
+            return passwordHashingExecutor.submit(() -> register(user));
+        } catch (HashingRejectedException e) {
+            logger.warn(e.getMessage());
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(e.getMessage()));
+        }
+    }
+
+    private ResponseEntity<?> register(User user) {
         user.setPassword(passwordEncoder.encode(user.getPassword()));
         user.setRole(Role.USER);
         user.setStatus(Status.ACTIVE);
@@ -72,7 +99,7 @@ public class AuthenticationRestController {
             logger.info("Created user: {}", userDb);
         } catch (ExistException e) {
             responseEntity = ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
-            logger.warn("Failed to create: " + e.getMessage());
+            logger.warn("Failed to create: {}", e.getMessage());
         }
         return responseEntity;
     }
@@ -85,13 +112,22 @@ public class AuthenticationRestController {
     }
 
     @GetMapping("/me")
-    public ResponseEntity<?> getProfile(@RequestHeader("Authorization") String token) {
-        String username = jwtTokenProvider.getUsername(token);
+    public ResponseEntity<?> getProfile(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                        VerifiedToken token) {
+        String username = token.getUsername();
         logger.info("Request to get profile for user {}", username);
         try {
-            User user = userService.getUserByUsername(username);
+            if (ifNoneMatch != null) {
+                UserVersion version = userService.getUserVersionByUsername(username);
+                String etag = ETags.user(version.getId(), version.getVersion(), version.getTasksVersion());
+                if (ETags.matches(ifNoneMatch, etag)) {
+                    logger.info("Profile of user {} not modified", username);
+                    return ETags.notModified(etag);
+                }
+            }
+            User user = userService.getUserWithTasksByUsername(username);
             logger.info("Success get authorized user {}", user);
-            return ResponseEntity.ok().body(user);
+            return ETags.ok(ETags.user(user.getId(), user.getVersion(), user.getTasksVersion()), user);
         } catch (UsernameNotFoundException | UserNotExistException e) {
             logger.warn(e.getMessage());
             return new ResponseEntity<>("Unauthorized", HttpStatus.FORBIDDEN);
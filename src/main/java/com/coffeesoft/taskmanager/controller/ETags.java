@@ -0,0 +1,94 @@
+package com.coffeesoft.taskmanager.controller;
+
+import com.coffeesoft.taskmanager.model.Task;
+import com.coffeesoft.taskmanager.model.TaskState;
+import com.coffeesoft.taskmanager.model.TaskVersion;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Strong entity tags derived from the {@code version} columns, so a conditional read can be answered
+ * from a single version lookup instead of loading and serializing the entity.
+ * <p>
+ * A task tag also carries the scheduler-owned state, as its ordinal, and time, as UTC epoch seconds and nanos, so
+ * that two schedules never share a tag. {@code If-Match} compares only the version part, so a transition made by the
+ * scheduler never fails a user's precondition.
+ */
+final class ETags {
+    static final CacheControl CACHE_CONTROL = CacheControl.noCache().cachePrivate();
+    static final long NO_MATCH = -1;
+    private static final Pattern TASK = Pattern.compile("\"task-(\\d+)-(\\d+)-(-?\\d+)-([\\d.-]+|n)\"");
+
+    private ETags() {
+    }
+
+    static String task(Task task) {
+        return task(task.getId(), task.getVersion(), task.getTaskState(), task.getTime());
+    }
+
+    static String task(Long taskId, TaskVersion version) {
+        return task(taskId, version.getVersion(), version.getTaskState(), version.getTime());
+    }
+
+    private static String task(Long taskId, long version, TaskState taskState, LocalDateTime time) {
+        int state = taskState == null ? -1 : taskState.ordinal();
+        String epoch = time == null ? "n" : String.format("%d.%09d", time.toEpochSecond(ZoneOffset.UTC), time.getNano());
+        return String.format("\"task-%d-%d-%d-%s\"", taskId, version, state, epoch);
+    }
+
+    static String tasks(Long userId, long tasksVersion) {
+        return String.format("\"tasks-%d-%d\"", userId, tasksVersion);
+    }
+
+    static String user(Long userId, long version, long tasksVersion) {
+        return String.format("\"user-%d-%d-%d\"", userId, version, tasksVersion);
+    }
+
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals("*") || candidate.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Version of the task named by an {@code If-Match} header: {@code null} for {@code *}, {@link #NO_MATCH}
+     * when no strong tag of this task is listed.
+     */
+    static Long taskVersion(String ifMatch, Long taskId) {
+        for (String candidate : ifMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.equals("*")) {
+                return null;
+            }
+            Matcher matcher = TASK.matcher(candidate);
+            if (matcher.matches() && matcher.group(1).equals(String.valueOf(taskId))) {
+                return Long.valueOf(matcher.group(2));
+            }
+        }
+        return NO_MATCH;
+    }
+
+    static ResponseEntity<?> notModified(String etag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(CACHE_CONTROL).build();
+    }
+
+    static ResponseEntity<?> ok(String etag, Object body) {
+        return ResponseEntity.ok().eTag(etag).cacheControl(CACHE_CONTROL).body(body);
+    }
+}
@@ -0,0 +1,30 @@
+package com.coffeesoft.taskmanager.controller;
+
+import com.coffeesoft.taskmanager.metrics.PrometheusTextFormat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping(path = "/api/admin")
+public class MetricsController {
+    private static final Logger logger = LoggerFactory.getLogger(MetricsController.class);
+    private static final MediaType PROMETHEUS = MediaType.parseMediaType(PrometheusTextFormat.CONTENT_TYPE);
+    private final PrometheusTextFormat prometheusTextFormat;
+
+    public MetricsController(PrometheusTextFormat prometheusTextFormat) {
+        this.prometheusTextFormat = prometheusTextFormat;
+    }
+
+    @GetMapping(path = "/metrics")
+    @PreAuthorize("hasAuthority('tasks:write')")
+    public ResponseEntity<String> metrics() {
+        logger.debug("Request to scrape metrics");
+        return ResponseEntity.ok().contentType(PROMETHEUS).body(prometheusTextFormat.scrape());
+    }
+}
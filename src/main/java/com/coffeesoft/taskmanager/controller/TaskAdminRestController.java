@@ -1,18 +1,28 @@
 package com.coffeesoft.taskmanager.controller;
 
+import com.coffeesoft.taskmanager.exception.InvalidCursorException;
 import com.coffeesoft.taskmanager.exception.NotExistException;
 import com.coffeesoft.taskmanager.exception.TaskByUserNotExistException;
+import com.coffeesoft.taskmanager.exception.TaskModifiedException;
 import com.coffeesoft.taskmanager.model.Task;
+import com.coffeesoft.taskmanager.model.TaskFilter;
 import com.coffeesoft.taskmanager.service.TaskService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.time.Instant;
@@ -24,11 +34,14 @@ import java.util.Collection;
 @RestController
 @RequestMapping(path = "/api/admin")
 public class TaskAdminRestController {
-    private static final Logger logger = LoggerFactory.getLogger(UserController.class);
+    private static final Logger logger = LoggerFactory.getLogger(TaskAdminRestController.class);
+    private static final String NDJSON = "application/x-ndjson";
     private final TaskService taskService;
+    private final ObjectMapper objectMapper;
 
-    public TaskAdminRestController(TaskService taskService) {
+    public TaskAdminRestController(TaskService taskService, ObjectMapper objectMapper) {
         this.taskService = taskService;
+        this.objectMapper = objectMapper;
     }
 
     @GetMapping(path = "/tasks")
@@ -38,6 +51,26 @@ public class TaskAdminRestController {
         return taskService.getTasks();
     }
 
+    @GetMapping(path = "/tasks", produces = NDJSON)
+    @PreAuthorize("hasAuthority('tasks:read')")
+    public ResponseEntity<StreamingResponseBody> exportTasks() {
+        logger.info("Request to export all tasks");
+        StreamingResponseBody body = outputStream -> {
+            try (SequenceWriter writer = objectMapper.writerFor(Task.class)
+                    .withRootValueSeparator("\n")
+                    .writeValues(outputStream)) {
+                taskService.forEachTask(task -> {
+                    try {
+                        writer.write(task);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON)).body(body);
+    }
+
     @GetMapping(path = "/user/{userId}/tasks")
     @PreAuthorize("hasAuthority('tasks:read')")
     public Collection<Task> getTasksByUserId(@PathVariable Long userId) {
@@ -45,6 +78,21 @@ public class TaskAdminRestController {
         return taskService.getTasksByUserId(userId);
     }
 
+    @GetMapping(path = "/user/{userId}/tasks", params = "limit")
+    @PreAuthorize("hasAuthority('tasks:read')")
+    public ResponseEntity<?> getTaskPageByUserId(@PathVariable Long userId, @RequestParam int limit,
+                                                 @RequestParam(required = false) String cursor, TaskFilter filter) {
+        logger.info("Request to get page of {} user's tasks after {} with filter {}", limit, cursor, filter);
+        ResponseEntity<?> responseEntity;
+        try {
+            responseEntity = ResponseEntity.ok().body(taskService.getTaskPageByUserId(userId, filter, cursor, limit));
+        } catch (InvalidCursorException e) {
+            responseEntity = ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+            logger.warn(e.getMessage());
+        }
+        return responseEntity;
+    }
+
     @GetMapping(path = "/task/{id}")
     @PreAuthorize("hasAuthority('tasks:read')")
     public ResponseEntity<?> getTask(@PathVariable Long id) {
@@ -52,7 +100,7 @@ public class TaskAdminRestController {
         ResponseEntity<?> responseEntity;
         try {
             responseEntity = ResponseEntity.ok().body(taskService.getTaskById(id));
-            logger.info(String.format("Received task with id %d from DB", id));
+            logger.info("Received task with id {} from DB", id);
         } catch (NotExistException e) {
             responseEntity = ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
             logger.warn(e.getMessage());
@@ -69,7 +117,7 @@ public class TaskAdminRestController {
         try {
             Task task = taskService.getNextOrCurrentTaskAfterTimeByUserId(time, userId);
             responseEntity = ResponseEntity.ok().body(task);
-            logger.info(String.format("Received task with id %d from DB", task.getId()));
+            logger.info("Received task with id {} from DB", task.getId());
         } catch (TaskByUserNotExistException e) {
             responseEntity = ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
             logger.warn(e.getMessage());
@@ -94,14 +142,18 @@ public class TaskAdminRestController {
 
     @PutMapping(path = "/task/{id}")
     @PreAuthorize("hasAuthority('tasks:write')")
-    public ResponseEntity<?> updateTask(@Validated @RequestBody Task task, @PathVariable Long  id) {
+    public ResponseEntity<?> updateTask(@Validated @RequestBody Task task, @PathVariable Long  id,
+                                        @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         logger.info("Request to update task: {}", id);
         ResponseEntity<?> responseEntity;
         try {
             Task taskDB = taskService.getTaskById(id);
+            Long expectedVersion = ifMatch == null ? null : ETags.taskVersion(ifMatch, id);
+            if (expectedVersion != null && expectedVersion != taskDB.getVersion()) {
+                throw new TaskModifiedException(id);
+            }
             taskDB.setTitle(task.getTitle());
             taskDB.setDescription(task.getDescription());
-            taskDB.setTime(task.getTime());
             taskDB.setStartTime(task.getStartTime());
             taskDB.setEndTime(task.getEndTime());
             taskDB.setSleepInterval(task.getSleepInterval());
@@ -109,12 +161,16 @@ public class TaskAdminRestController {
             taskDB.setActive(task.getActive());
             taskDB.setRepeat(task.getRepeat());
             taskDB.setSleep(task.getSleep());
-            taskDB = taskService.updateTask(taskDB);
-            responseEntity = ResponseEntity.ok().body(taskDB);
+            taskDB = taskService.updateTaskIfUnmodified(taskDB);
+            responseEntity = ETags.ok(ETags.task(taskDB), taskDB);
             logger.info("Updated task with id {} from {} to {}", id, task, taskDB);
         } catch (NotExistException e) {
             responseEntity = ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
-            logger.warn("Failed to update: " + e.getMessage());
+            logger.warn("Failed to update: {}", e.getMessage());
+        } catch (TaskModifiedException e) {
+            responseEntity = ResponseEntity.status(ifMatch == null ? HttpStatus.CONFLICT : HttpStatus.PRECONDITION_FAILED)
+                    .body(e.getMessage());
+            logger.warn("Failed to update: {}", e.getMessage());
         }
         return responseEntity;
     }
@@ -132,7 +188,7 @@ public class TaskAdminRestController {
             logger.info(message);
         } catch (NotExistException e) {
             responseEntity = ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
-            logger.warn("Failed to delete: " + e.getMessage());
+            logger.warn("Failed to delete: {}", e.getMessage());
         }
         return responseEntity;
     }
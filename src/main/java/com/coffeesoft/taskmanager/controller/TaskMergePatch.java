@@ -0,0 +1,68 @@
+package com.coffeesoft.taskmanager.controller;
+
+import com.coffeesoft.taskmanager.exception.InvalidTaskPatchException;
+import com.coffeesoft.taskmanager.model.Task;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.stereotype.Component;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Turns an {@code application/merge-patch+json} document (RFC 7396) into the task columns it changes.
+ * Only user-editable fields may be patched; {@code null} clears a field where the column allows it.
+ */
+@Component
+class TaskMergePatch {
+    static final String MEDIA_TYPE = "application/merge-patch+json";
+    private static final Set<String> EDITABLE = Set.of("title", "description", "startTime", "endTime",
+            "sleepInterval", "workInterval", "active", "repeat", "sleep");
+    private static final Set<String> NULLABLE = Set.of("description", "sleepInterval");
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+
+    TaskMergePatch(ObjectMapper objectMapper, Validator validator) {
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+    }
+
+    Map<String, Object> changes(JsonNode patch) throws InvalidTaskPatchException {
+        if (patch == null || !patch.isObject()) {
+            throw new InvalidTaskPatchException("expected a JSON object");
+        }
+        Task values;
+        try {
+            values = objectMapper.treeToValue(patch, Task.class);
+        } catch (JsonProcessingException e) {
+            throw new InvalidTaskPatchException(e.getOriginalMessage(), e);
+        }
+        BeanWrapper wrapper = PropertyAccessorFactory.forBeanPropertyAccess(values);
+        Map<String, Object> changes = new LinkedHashMap<>();
+        Iterator<String> fields = patch.fieldNames();
+        while (fields.hasNext()) {
+            String field = fields.next();
+            if (!EDITABLE.contains(field)) {
+                throw new InvalidTaskPatchException(String.format("field '%s' can not be patched", field));
+            }
+            Object value = wrapper.getPropertyValue(field);
+            if (value == null && !NULLABLE.contains(field)) {
+                throw new InvalidTaskPatchException(String.format("field '%s' can not be null", field));
+            }
+            Set<ConstraintViolation<Task>> violations = validator.validateProperty(values, field);
+            if (!violations.isEmpty()) {
+                ConstraintViolation<Task> violation = violations.iterator().next();
+                throw new InvalidTaskPatchException(field + " " + violation.getMessage());
+            }
+            changes.put(field, value);
+        }
+        return changes;
+    }
+}
@@ -1,50 +1,94 @@
 package com.coffeesoft.taskmanager.controller;
 
+import com.coffeesoft.taskmanager.event.TaskEventHub;
+import com.coffeesoft.taskmanager.exception.InvalidCursorException;
+import com.coffeesoft.taskmanager.exception.InvalidOccurrenceWindowException;
+import com.coffeesoft.taskmanager.exception.InvalidTaskPatchException;
 import com.coffeesoft.taskmanager.exception.NotExistException;
+import com.coffeesoft.taskmanager.exception.TaskModifiedException;
+import com.coffeesoft.taskmanager.exception.TooManyOccurrencesException;
 import com.coffeesoft.taskmanager.exception.UserNotExistException;
+import com.coffeesoft.taskmanager.model.EntityField;
 import com.coffeesoft.taskmanager.model.Task;
-import com.coffeesoft.taskmanager.model.User;
-import com.coffeesoft.taskmanager.security.JwtTokenProvider;
+import com.coffeesoft.taskmanager.model.TaskFilter;
+import com.coffeesoft.taskmanager.model.TaskOccurrence;
+import com.coffeesoft.taskmanager.model.VersionedTasks;
+import com.coffeesoft.taskmanager.security.PrincipalCache;
+import com.coffeesoft.taskmanager.security.SecurityUser;
+import com.coffeesoft.taskmanager.security.VerifiedToken;
+import com.coffeesoft.taskmanager.service.TaskImportService;
 import com.coffeesoft.taskmanager.service.TaskService;
 import com.coffeesoft.taskmanager.service.UserService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.util.Collection;
+import java.time.LocalDateTime;
+import java.util.Iterator;
 
 @CrossOrigin(origins = "*")
 @RestController
 @RequestMapping(path = "/api")
 public class TaskRestController {
     private static final Logger logger = LoggerFactory.getLogger(TaskRestController.class);
-    private final JwtTokenProvider jwtTokenProvider;
+    private final PrincipalCache principalCache;
     private final UserService userService;
     private final TaskService taskService;
+    private final TaskImportService taskImportService;
+    private final TaskEventHub taskEventHub;
+    private final TaskMergePatch taskMergePatch;
+    private final ObjectMapper objectMapper;
 
-    public TaskRestController(JwtTokenProvider jwtTokenProvider, UserService userService, TaskService taskService) {
-        this.jwtTokenProvider = jwtTokenProvider;
+    public TaskRestController(PrincipalCache principalCache, UserService userService, TaskService taskService,
+                              TaskImportService taskImportService, TaskEventHub taskEventHub,
+                              TaskMergePatch taskMergePatch, ObjectMapper objectMapper) {
+        this.principalCache = principalCache;
         this.userService = userService;
         this.taskService = taskService;
+        this.taskImportService = taskImportService;
+        this.taskEventHub = taskEventHub;
+        this.taskMergePatch = taskMergePatch;
+        this.objectMapper = objectMapper;
     }
 
     @GetMapping(path = "/tasks")
     @PreAuthorize("hasAuthority('tasks:read')")
-    public ResponseEntity<?> tasks(@RequestHeader("Authorization") String token) {
-        String username = jwtTokenProvider.getUsername(token);
+    public ResponseEntity<?> tasks(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                   VerifiedToken token) {
+        String username = token.getUsername();
         logger.info("Request get all tasks for user {}", username);
         ResponseEntity<?> responseEntity;
         try {
-            User user = userService.getUserByUsername(username);
-            Collection<Task> tasks = taskService.getTasksByUserId(user.getId());
-            responseEntity = ResponseEntity.ok().body(tasks);
+            SecurityUser user = getPrincipal(username);
+            if (ifNoneMatch != null) {
+                String etag = ETags.tasks(user.getId(), taskService.getTasksVersionByUserId(user.getId()));
+                if (ETags.matches(ifNoneMatch, etag)) {
+                    logger.info("Tasks for user {} not modified", user.getUsername());
+                    return ETags.notModified(etag);
+                }
+            }
+            VersionedTasks tasks = taskService.getVersionedTasksByUserId(user.getId());
+            responseEntity = ETags.ok(ETags.tasks(user.getId(), tasks.getVersion()), tasks.getTasks());
             logger.info("Received tasks for user id {} from DB", user.getUsername());
         } catch (UserNotExistException e) {
             responseEntity = ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
@@ -53,15 +97,89 @@ public class TaskRestController {
         return responseEntity;
     }
 
+    @GetMapping(path = "/tasks", params = "limit")
+    @PreAuthorize("hasAuthority('tasks:read')")
+    public ResponseEntity<?> taskPage(@RequestParam int limit, @RequestParam(required = false) String cursor,
+                                      TaskFilter filter, VerifiedToken token) {
+        String username = token.getUsername();
+        logger.info("Request get page of {} tasks after {} with filter {} for user {}", limit, cursor, filter, username);
+        ResponseEntity<?> responseEntity;
+        try {
+            SecurityUser user = getPrincipal(username);
+            responseEntity = ResponseEntity.ok().body(taskService.getTaskPageByUserId(user.getId(), filter, cursor, limit));
+            logger.info("Received page of tasks for user {} from DB", user.getUsername());
+        } catch (UserNotExistException e) {
+            responseEntity = ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+            logger.warn(e.getMessage());
+        } catch (InvalidCursorException e) {
+            responseEntity = ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+            logger.warn(e.getMessage());
+        }
+        return responseEntity;
+    }
+
+    @GetMapping(path = "/tasks/occurrences")
+    @PreAuthorize("hasAuthority('tasks:read')")
+    public ResponseEntity<StreamingResponseBody> taskOccurrences(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            VerifiedToken token) {
+        String username = token.getUsername();
+        logger.info("Request get task occurrences from {} to {} for user {}", from, to, username);
+        try {
+            SecurityUser user = getPrincipal(username);
+            Iterator<TaskOccurrence> occurrences = taskService.getOccurrencesByUserId(user.getId(), from, to);
+            StreamingResponseBody body = outputStream -> {
+                try (SequenceWriter writer = objectMapper.writerFor(TaskOccurrence.class).writeValuesAsArray(outputStream)) {
+                    while (occurrences.hasNext()) {
+                        writer.write(occurrences.next());
+                    }
+                }
+            };
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+        } catch (UserNotExistException e) {
+            logger.warn(e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        } catch (InvalidOccurrenceWindowException | TooManyOccurrencesException e) {
+            logger.warn(e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+    }
+
+    @GetMapping(path = "/tasks/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasAuthority('tasks:read')")
+    public ResponseEntity<SseEmitter> taskEvents(@RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId,
+                                                 VerifiedToken token) {
+        String username = token.getUsername();
+        logger.info("Request to stream task events after {} for user {}", lastEventId, username);
+        try {
+            SecurityUser user = getPrincipal(username);
+            return ResponseEntity.ok(taskEventHub.subscribe(user.getId(), lastEventId));
+        } catch (UserNotExistException e) {
+            logger.warn(e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+    }
+
     @GetMapping(path = "/task/{taskId}")
     @PreAuthorize("hasAuthority('tasks:read')")
-    public ResponseEntity<?> getTask(@PathVariable Long taskId, @RequestHeader("Authorization") String token) {
-        String username = jwtTokenProvider.getUsername(token);
+    public ResponseEntity<?> getTask(@PathVariable Long taskId,
+                                     @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                     VerifiedToken token) {
+        String username = token.getUsername();
         logger.info("Request get task {} for user {}", taskId, username);
         ResponseEntity<?> responseEntity;
         try {
-            User user = userService.getUserByUsername(username);
-            responseEntity = ResponseEntity.ok().body(taskService.getTaskByTaskIdAndUserId(taskId, user.getId()));
+            SecurityUser user = getPrincipal(username);
+            if (ifNoneMatch != null) {
+                String etag = ETags.task(taskId, taskService.getTaskVersionByTaskIdAndUserId(taskId, user.getId()));
+                if (ETags.matches(ifNoneMatch, etag)) {
+                    logger.info("Task {} for user {} not modified", taskId, user.getUsername());
+                    return ETags.notModified(etag);
+                }
+            }
+            Task task = taskService.getTaskByTaskIdAndUserId(taskId, user.getId());
+            responseEntity = ETags.ok(ETags.task(task), task);
             logger.info("Received task with id {} for user {} from DB", taskId, user.getUsername());
         } catch (NotExistException e) {
             responseEntity = ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
@@ -73,13 +191,13 @@ public class TaskRestController {
     @PostMapping(path = "/task")
     @ResponseStatus(HttpStatus.CREATED)
     @PreAuthorize("hasAuthority('tasks:write')")
-    public ResponseEntity<?> createTask(@Valid @RequestBody Task task, @RequestHeader("Authorization") String token) throws URISyntaxException {
-        String username = jwtTokenProvider.getUsername(token);
+    public ResponseEntity<?> createTask(@Valid @RequestBody Task task, VerifiedToken token) throws URISyntaxException {
+        String username = token.getUsername();
         logger.info("Request to create task {} for user {}", task, username);
         ResponseEntity<?> responseEntity;
         try {
-            User user = userService.getUserByUsername(username);
-            task.setUser(user);
+            SecurityUser user = getPrincipal(username);
+            task.setUser(userService.getUserReference(user.getId()));
             Task taskDb = taskService.createTask(task);
             responseEntity = ResponseEntity.created(getUri(taskDb.getId())).body(taskDb);
             logger.info("Created task: {}", taskDb);
@@ -91,23 +209,57 @@ public class TaskRestController {
         return responseEntity;
     }
 
+    @PostMapping(path = "/tasks/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, "application/x-ndjson"})
+    @PreAuthorize("hasAuthority('tasks:write')")
+    public void createTasks(HttpServletRequest request, HttpServletResponse response,
+                            VerifiedToken token) throws IOException {
+        String username = token.getUsername();
+        logger.info("Request to import tasks for user {}", username);
+        try {
+            SecurityUser user = getPrincipal(username);
+            response.setStatus(HttpStatus.OK.value());
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            taskImportService.importTasks(request.getInputStream(), response.getOutputStream(), user.getId());
+            logger.info("Imported tasks for user {}", user.getUsername());
+        } catch (UserNotExistException e) {
+            response.sendError(HttpStatus.NOT_FOUND.value(), e.getMessage());
+            logger.warn(e.getMessage());
+        }
+    }
+
     private URI getUri(Long id) throws URISyntaxException {
         return new URI(String.format("/api/task/%d", id));
     }
 
+    private SecurityUser getPrincipal(String username) throws UserNotExistException {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof SecurityUser) {
+            SecurityUser principal = (SecurityUser) authentication.getPrincipal();
+            if (principal.getUsername().equals(username)) {
+                return principal;
+            }
+        }
+        return principalCache.get(username).orElseThrow(() ->
+                new UserNotExistException(new EntityField(username, "username")));
+    }
+
     @PutMapping(path = "/task/{taskId}")
     @PreAuthorize("hasAuthority('tasks:write')")
-    public ResponseEntity<?> updateTask(@Validated @RequestBody Task task,
-                                        @PathVariable Long taskId, @RequestHeader("Authorization") String token) {
-        String username = jwtTokenProvider.getUsername(token);
+    public ResponseEntity<?> updateTask(@Validated @RequestBody Task task, @PathVariable Long taskId,
+                                        @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                        VerifiedToken token) {
+        String username = token.getUsername();
         logger.info("Request to update task {} for user {}", taskId, username);
         ResponseEntity<?> responseEntity;
         try {
-            User user = userService.getUserByUsername(username);
+            SecurityUser user = getPrincipal(username);
             Task taskDB = taskService.getTaskById(taskId);
+            Long expectedVersion = ifMatch == null ? null : ETags.taskVersion(ifMatch, taskId);
+            if (expectedVersion != null && expectedVersion != taskDB.getVersion()) {
+                throw new TaskModifiedException(taskId);
+            }
             taskDB.setTitle(task.getTitle());
             taskDB.setDescription(task.getDescription());
-            taskDB.setTime(task.getTime());
             taskDB.setStartTime(task.getStartTime());
             taskDB.setEndTime(task.getEndTime());
             taskDB.setSleepInterval(task.getSleepInterval());
@@ -115,25 +267,56 @@ public class TaskRestController {
             taskDB.setActive(task.getActive());
             taskDB.setRepeat(task.getRepeat());
             taskDB.setSleep(task.getSleep());
-            taskDB.setUser(user);
-            taskDB = taskService.updateTask(taskDB);
-            responseEntity = ResponseEntity.ok().body(taskDB);
+            taskDB.setUser(userService.getUserReference(user.getId()));
+            taskDB = taskService.updateTaskIfUnmodified(taskDB);
+            responseEntity = ETags.ok(ETags.task(taskDB), taskDB);
             logger.info("Updated task {} for user {}", taskDB, user.getUsername());
         } catch (NotExistException e) {
             responseEntity = ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
-            logger.warn("Failed to update: " + e.getMessage());
+            logger.warn("Failed to update: {}", e.getMessage());
+        } catch (TaskModifiedException e) {
+            responseEntity = ResponseEntity.status(ifMatch == null ? HttpStatus.CONFLICT : HttpStatus.PRECONDITION_FAILED)
+                    .body(e.getMessage());
+            logger.warn("Failed to update: {}", e.getMessage());
+        }
+        return responseEntity;
+    }
+
+    @PatchMapping(path = "/task/{taskId}", consumes = {TaskMergePatch.MEDIA_TYPE, MediaType.APPLICATION_JSON_VALUE})
+    @PreAuthorize("hasAuthority('tasks:write')")
+    public ResponseEntity<?> patchTask(@RequestBody JsonNode patch, @PathVariable Long taskId,
+                                       @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                       VerifiedToken token) {
+        String username = token.getUsername();
+        logger.info("Request to patch task {} for user {}", taskId, username);
+        ResponseEntity<?> responseEntity;
+        try {
+            SecurityUser user = getPrincipal(username);
+            Long expectedVersion = ifMatch == null ? null : ETags.taskVersion(ifMatch, taskId);
+            Task taskDB = taskService.patchTask(taskId, user.getId(), taskMergePatch.changes(patch), expectedVersion);
+            responseEntity = ETags.ok(ETags.task(taskDB), taskDB);
+            logger.info("Patched task {} for user {}", taskDB, user.getUsername());
+        } catch (NotExistException e) {
+            responseEntity = ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+            logger.warn("Failed to patch: {}", e.getMessage());
+        } catch (InvalidTaskPatchException e) {
+            responseEntity = ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+            logger.warn("Failed to patch: {}", e.getMessage());
+        } catch (TaskModifiedException e) {
+            responseEntity = ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(e.getMessage());
+            logger.warn("Failed to patch: {}", e.getMessage());
         }
         return responseEntity;
     }
 
     @DeleteMapping(path = "/task/{taskId}")
     @PreAuthorize("hasAuthority('tasks:write')")
-    public ResponseEntity<?> deleteTask(@PathVariable Long taskId, @RequestHeader("Authorization") String token) {
-        String username = jwtTokenProvider.getUsername(token);
+    public ResponseEntity<?> deleteTask(@PathVariable Long taskId, VerifiedToken token) {
+        String username = token.getUsername();
         logger.info("Request to delete task {} for user {}", taskId, username);
         ResponseEntity<?> responseEntity;
         try {
-            User user = userService.getUserByUsername(username);
+            SecurityUser user = getPrincipal(username);
             Task task = taskService.getTaskByTaskIdAndUserId(taskId, user.getId());
             taskService.deleteTaskById(task.getId());
             String message = String.format("Deleted task with id %d", taskId);
@@ -141,7 +324,7 @@ public class TaskRestController {
             logger.info(message);
         } catch (NotExistException e) {
             responseEntity = ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
-            logger.warn("Failed to delete: " + e.getMessage());
+            logger.warn("Failed to delete: {}", e.getMessage());
         }
         return responseEntity;
     }
@@ -2,6 +2,7 @@ package com.coffeesoft.taskmanager.controller;
 
 import com.coffeesoft.taskmanager.exception.ExistException;
 import com.coffeesoft.taskmanager.exception.NotExistException;
+import com.coffeesoft.taskmanager.model.Status;
 import com.coffeesoft.taskmanager.model.User;
 import com.coffeesoft.taskmanager.service.UserService;
 import org.slf4j.Logger;
@@ -46,8 +47,8 @@ public class UserController {
         logger.info("Request to get user with id: {}", id);
         ResponseEntity<?> responseEntity;
         try {
-            responseEntity = ResponseEntity.ok().body(userService.getUserById(id));
-            logger.info(String.format("Received user with id %d from DB", id));
+            responseEntity = ResponseEntity.ok().body(userService.getUserWithTasksById(id));
+            logger.info("Received user with id {} from DB", id);
         } catch (NotExistException e) {
             responseEntity = ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
             logger.warn(e.getMessage());
@@ -68,7 +69,7 @@ public class UserController {
             logger.info("Created user: {}", userDb);
         } catch (ExistException e) {
             responseEntity = ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
-            logger.warn("Failed to create: " + e.getMessage());
+            logger.warn("Failed to create: {}", e.getMessage());
         }
         return responseEntity;
     }
@@ -92,7 +93,23 @@ public class UserController {
             logger.info("Updated user with id {} from {} to {}", id, user, userDB);
         } catch (NotExistException e) {
             responseEntity = ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
-            logger.warn("Failed to update: " + e.getMessage());
+            logger.warn("Failed to update: {}", e.getMessage());
+        }
+        return responseEntity;
+    }
+
+    @PutMapping(path = "/user/{id}/status")
+    @PreAuthorize("hasAuthority('developers:read')")
+    public ResponseEntity<?> updateUserStatus(@RequestParam Status status, @PathVariable Long id) {
+        logger.info("Request to set status {} for user {}", status, id);
+        ResponseEntity<?> responseEntity;
+        try {
+            User userDB = userService.updateUserStatus(id, status);
+            responseEntity = ResponseEntity.ok().body(userDB);
+            logger.info("Set status {} for user {}", status, id);
+        } catch (NotExistException e) {
+            responseEntity = ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+            logger.warn("Failed to update status: {}", e.getMessage());
         }
         return responseEntity;
     }
@@ -110,7 +127,7 @@ public class UserController {
             logger.info(message);
         } catch (NotExistException e) {
             responseEntity = ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
-            logger.warn("Failed to delete: " + e.getMessage());
+            logger.warn("Failed to delete: {}", e.getMessage());
         }
         return responseEntity;
     }
@@ -0,0 +1,51 @@
+package com.coffeesoft.taskmanager.event;
+
+import com.coffeesoft.taskmanager.model.Task;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+@Getter
+@ToString
+@AllArgsConstructor
+public class TaskEvent {
+    private final Type type;
+    private final Long taskId;
+    private final Long userId;
+    private final Task task;
+    /**
+     * An update that changed the task's timing, after which its state and time were computed afresh.
+     */
+    private final boolean rescheduled;
+
+    public static TaskEvent created(Task task) {
+        return new TaskEvent(Type.CREATED, task.getId(), userIdOf(task), task, false);
+    }
+
+    public static TaskEvent updated(Task task) {
+        return new TaskEvent(Type.UPDATED, task.getId(), userIdOf(task), task, false);
+    }
+
+    public static TaskEvent rescheduled(Task task) {
+        return new TaskEvent(Type.UPDATED, task.getId(), userIdOf(task), task, true);
+    }
+
+    public static TaskEvent transitioned(Task task) {
+        return new TaskEvent(Type.TRANSITIONED, task.getId(), userIdOf(task), task, false);
+    }
+
+    public static TaskEvent deleted(Long taskId, Long userId) {
+        return new TaskEvent(Type.DELETED, taskId, userId, null, false);
+    }
+
+    private static Long userIdOf(Task task) {
+        return task.getUser() != null ? task.getUser().getId() : null;
+    }
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        TRANSITIONED,
+        DELETED
+    }
+}
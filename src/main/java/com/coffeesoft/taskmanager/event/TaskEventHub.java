@@ -0,0 +1,345 @@
+package com.coffeesoft.taskmanager.event;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fans task events out to per-user Server-Sent Events connections. Each connection owns a bounded queue that a
+ * small dispatch pool drains, so idle connections hold no threads and a slow client is evicted instead of
+ * stalling the others: either its queue overflows, or a single write to it blocks for longer than
+ * {@code task.events.send-timeout-millis}, or the bounded sender pool that runs the writes has no room left for it.
+ * A client which stopped reading thus ties up at most one sender thread, never a dispatch thread, and the number of
+ * such threads is capped. The last events of every recently connected
+ * user are kept in a ring buffer so a client can resume with {@code Last-Event-ID}; those are replayed from a
+ * queue of their own and do not count against the live queue.
+ */
+@Component
+public class TaskEventHub {
+    private static final Logger logger = LoggerFactory.getLogger(TaskEventHub.class);
+    private static final Message HEARTBEAT = new Message(0, null, null);
+    private static final String RESET_EVENT = "RESET";
+
+    private final ObjectMapper objectMapper;
+    private final long timeoutMillis;
+    private final long heartbeatMillis;
+    private final long resumeWindowMillis;
+    private final int bufferSize;
+    private final int queueSize;
+    private final int dispatchThreads;
+    private final long sendTimeoutMillis;
+    private final int sendThreads;
+    private final int sendQueueSize;
+    private final Map<Long, UserStream> streams = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private final Counter evicted;
+    private ExecutorService dispatcher;
+    private ExecutorService sender;
+    private ScheduledExecutorService heartbeat;
+
+    public TaskEventHub(ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                        @Value("${task.events.timeout-millis:1800000}") long timeoutMillis,
+                        @Value("${task.events.heartbeat-millis:15000}") long heartbeatMillis,
+                        @Value("${task.events.resume-window-millis:300000}") long resumeWindowMillis,
+                        @Value("${task.events.buffer-size:256}") int bufferSize,
+                        @Value("${task.events.subscriber-queue-size:64}") int queueSize,
+                        @Value("${task.events.dispatch-threads:2}") int dispatchThreads,
+                        @Value("${task.events.send-timeout-millis:5000}") long sendTimeoutMillis,
+                        @Value("${task.events.send-threads:16}") int sendThreads,
+                        @Value("${task.events.send-queue-size:64}") int sendQueueSize) {
+        this.objectMapper = objectMapper;
+        this.timeoutMillis = timeoutMillis;
+        this.heartbeatMillis = heartbeatMillis;
+        this.resumeWindowMillis = resumeWindowMillis;
+        this.bufferSize = bufferSize;
+        this.queueSize = queueSize;
+        this.dispatchThreads = dispatchThreads;
+        this.sendTimeoutMillis = sendTimeoutMillis;
+        this.sendThreads = sendThreads;
+        this.sendQueueSize = sendQueueSize;
+        sequence.set(System.currentTimeMillis() * 1000);
+        evicted = Counter.builder("task.events.evicted").register(meterRegistry);
+        Gauge.builder("task.events.subscribers", subscribers, AtomicInteger::get).register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        dispatcher = Executors.newFixedThreadPool(dispatchThreads, runnable -> {
+            Thread thread = new Thread(runnable, "task-events-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger senderNumber = new AtomicInteger();
+        ThreadPoolExecutor senderPool = new ThreadPoolExecutor(sendThreads, sendThreads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(sendQueueSize), runnable -> {
+            Thread thread = new Thread(runnable, "task-events-send-" + senderNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        senderPool.allowCoreThreadTimeOut(true);
+        sender = senderPool;
+        heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "task-events-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeat.scheduleWithFixedDelay(this::tick, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        heartbeat.shutdownNow();
+        streams.values().forEach(UserStream::closeAll);
+        dispatcher.shutdown();
+        sender.shutdown();
+    }
+
+    public SseEmitter subscribe(Long userId, Long lastEventId) {
+        return subscribe(userId, lastEventId, new SseEmitter(timeoutMillis));
+    }
+
+    SseEmitter subscribe(Long userId, Long lastEventId, SseEmitter emitter) {
+        Subscriber subscriber = new Subscriber(userId, emitter);
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(error -> subscriber.close());
+        streams.compute(userId, (id, existing) -> {
+            UserStream stream = existing != null ? existing : new UserStream();
+            stream.add(subscriber, lastEventId);
+            return stream;
+        });
+        subscribers.incrementAndGet();
+        subscriber.schedule();
+        return emitter;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTaskEvent(TaskEvent event) {
+        if (event.getUserId() == null) {
+            return;
+        }
+        UserStream stream = streams.get(event.getUserId());
+        if (stream == null) {
+            return;
+        }
+        try {
+            String data = objectMapper.writeValueAsString(TaskEventMessage.of(event));
+            stream.publish(new Message(sequence.incrementAndGet(), event.getType().name(), data));
+        } catch (JsonProcessingException e) {
+            logger.warn("Failed to serialize {}: {}", event, e.getMessage());
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.get();
+    }
+
+    private void tick() {
+        long now = System.currentTimeMillis();
+        for (Long userId : streams.keySet()) {
+            streams.computeIfPresent(userId, (id, stream) -> stream.isExpired(now) ? null : stream);
+        }
+        streams.values().forEach(stream -> stream.publishTransient(HEARTBEAT));
+    }
+
+    private final class UserStream {
+        private final Deque<Message> buffer = new ArrayDeque<>(bufferSize);
+        private final List<Subscriber> connected = new ArrayList<>();
+        private long evictedUpTo = sequence.get();
+        private long idleSince = System.currentTimeMillis();
+
+        private synchronized void add(Subscriber subscriber, Long lastEventId) {
+            connected.add(subscriber);
+            if (lastEventId == null) {
+                return;
+            }
+            if (lastEventId < evictedUpTo) {
+                subscriber.replay.add(new Message(sequence.get(), RESET_EVENT, "{}"));
+                return;
+            }
+            for (Message message : buffer) {
+                if (message.id > lastEventId) {
+                    subscriber.replay.add(message);
+                }
+            }
+        }
+
+        private synchronized void remove(Subscriber subscriber) {
+            if (connected.remove(subscriber) && connected.isEmpty()) {
+                idleSince = System.currentTimeMillis();
+            }
+        }
+
+        private synchronized void publish(Message message) {
+            if (buffer.size() == bufferSize) {
+                evictedUpTo = buffer.removeFirst().id;
+            }
+            buffer.addLast(message);
+            publishTransient(message);
+        }
+
+        private synchronized void publishTransient(Message message) {
+            for (Subscriber subscriber : new ArrayList<>(connected)) {
+                if (subscriber.offer(message)) {
+                    subscriber.schedule();
+                } else {
+                    subscriber.evict("its queue is full");
+                }
+            }
+        }
+
+        private synchronized boolean isExpired(long now) {
+            return connected.isEmpty() && now - idleSince >= resumeWindowMillis;
+        }
+
+        private synchronized void closeAll() {
+            new ArrayList<>(connected).forEach(subscriber -> {
+                subscriber.close();
+                subscriber.complete();
+            });
+        }
+    }
+
+    private final class Subscriber {
+        private final Long userId;
+        private final SseEmitter emitter;
+        private final Queue<Message> replay = new ConcurrentLinkedQueue<>();
+        private final BlockingQueue<Message> queue = new ArrayBlockingQueue<>(queueSize);
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private final AtomicBoolean writing = new AtomicBoolean();
+        private final AtomicBoolean completed = new AtomicBoolean();
+
+        private Subscriber(Long userId, SseEmitter emitter) {
+            this.userId = userId;
+            this.emitter = emitter;
+        }
+
+        private boolean offer(Message message) {
+            return !closed.get() && queue.offer(message);
+        }
+
+        private void schedule() {
+            if ((!replay.isEmpty() || !queue.isEmpty()) && !closed.get() && scheduled.compareAndSet(false, true)) {
+                try {
+                    dispatcher.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    scheduled.set(false);
+                }
+            }
+        }
+
+        private void drain() {
+            Message message;
+            while (!closed.get() && (message = next()) != null) {
+                send(message);
+            }
+            scheduled.set(false);
+            schedule();
+        }
+
+        private Message next() {
+            Message message = replay.poll();
+            return message != null ? message : queue.poll();
+        }
+
+        private void send(Message message) {
+            Future<?> sending;
+            writing.set(true);
+            try {
+                sending = sender.submit(() -> {
+                    try {
+                        if (!closed.get()) {
+                            emitter.send(message == HEARTBEAT
+                                    ? SseEmitter.event().comment("heartbeat")
+                                    : SseEmitter.event().id(Long.toString(message.id)).name(message.name).data(message.data));
+                        }
+                    } finally {
+                        writing.set(false);
+                        if (closed.get()) {
+                            complete();
+                        }
+                    }
+                    return null;
+                });
+            } catch (RejectedExecutionException e) {
+                writing.set(false);
+                evict("the sender pool is full");
+                return;
+            }
+            try {
+                sending.get(sendTimeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                evict("a write blocked for more than " + sendTimeoutMillis + " ms");
+            } catch (ExecutionException e) {
+                close();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                close();
+            }
+        }
+
+        private void evict(String reason) {
+            if (!close()) {
+                return;
+            }
+            evicted.increment();
+            logger.info("Evicting task event subscriber of user {}: {}", userId, reason);
+            complete();
+        }
+
+        /**
+         * Completes the emitter unless a write to it is still in flight: that write holds the emitter's lock, so it
+         * completes the emitter itself once it returns, and neither a dispatch thread nor a publisher waits for it.
+         */
+        private void complete() {
+            if (!writing.get() && completed.compareAndSet(false, true)) {
+                emitter.complete();
+            }
+        }
+
+        private boolean close() {
+            if (!closed.compareAndSet(false, true)) {
+                return false;
+            }
+            subscribers.decrementAndGet();
+            replay.clear();
+            queue.clear();
+            UserStream stream = streams.get(userId);
+            if (stream != null) {
+                stream.remove(this);
+            }
+            return true;
+        }
+    }
+
+    private static final class Message {
+        private final long id;
+        private final String name;
+        private final String data;
+
+        private Message(long id, String name, String data) {
+            this.id = id;
+            this.name = name;
+            this.data = data;
+        }
+    }
+}
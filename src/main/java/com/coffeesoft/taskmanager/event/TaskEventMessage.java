@@ -0,0 +1,19 @@
+package com.coffeesoft.taskmanager.event;
+
+import com.coffeesoft.taskmanager.model.Task;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TaskEventMessage {
+    private final TaskEvent.Type type;
+    private final Long taskId;
+    private final Task task;
+
+    public static TaskEventMessage of(TaskEvent event) {
+        return new TaskEventMessage(event.getType(), event.getTaskId(), event.getTask());
+    }
+}
@@ -0,0 +1,7 @@
+package com.coffeesoft.taskmanager.exception;
+
+public class HashingRejectedException extends TaskManagerException {
+    public HashingRejectedException(int queued) {
+        super(String.format("Too many password hashing requests (%d queued), try again later", queued));
+    }
+}
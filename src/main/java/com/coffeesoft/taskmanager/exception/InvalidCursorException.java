@@ -0,0 +1,11 @@
+package com.coffeesoft.taskmanager.exception;
+
+public class InvalidCursorException extends TaskManagerException {
+    public InvalidCursorException(String cursor) {
+        super(String.format("Cursor '%s' is not valid", cursor));
+    }
+
+    public InvalidCursorException(String cursor, Throwable cause) {
+        super(String.format("Cursor '%s' is not valid", cursor), cause);
+    }
+}
@@ -0,0 +1,9 @@
+package com.coffeesoft.taskmanager.exception;
+
+import java.time.LocalDateTime;
+
+public class InvalidOccurrenceWindowException extends TaskManagerException {
+    public InvalidOccurrenceWindowException(LocalDateTime from, LocalDateTime to) {
+        super(String.format("Occurrence window from '%s' to '%s' is not valid", from, to));
+    }
+}
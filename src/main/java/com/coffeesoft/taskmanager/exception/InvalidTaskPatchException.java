@@ -0,0 +1,11 @@
+package com.coffeesoft.taskmanager.exception;
+
+public class InvalidTaskPatchException extends TaskManagerException {
+    public InvalidTaskPatchException(String message) {
+        super(String.format("Task patch is not valid: %s", message));
+    }
+
+    public InvalidTaskPatchException(String message, Throwable cause) {
+        super(String.format("Task patch is not valid: %s", message), cause);
+    }
+}
@@ -0,0 +1,11 @@
+package com.coffeesoft.taskmanager.exception;
+
+public class TaskModifiedException extends TaskManagerException {
+    public TaskModifiedException(Long taskId) {
+        super(String.format("Task with id '%d' was modified by another request", taskId));
+    }
+
+    public TaskModifiedException(Long taskId, Throwable cause) {
+        super(String.format("Task with id '%d' was modified by another request", taskId), cause);
+    }
+}
@@ -0,0 +1,9 @@
+package com.coffeesoft.taskmanager.exception;
+
+import java.time.LocalDateTime;
+
+public class TooManyOccurrencesException extends TaskManagerException {
+    public TooManyOccurrencesException(LocalDateTime from, LocalDateTime to, int limit) {
+        super(String.format("More than %d occurrences from '%s' to '%s', request a shorter window", limit, from, to));
+    }
+}
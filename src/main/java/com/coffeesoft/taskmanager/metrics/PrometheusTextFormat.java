@@ -0,0 +1,141 @@
+package com.coffeesoft.taskmanager.metrics;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Measurement;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.distribution.CountAtBucket;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes every meter of the registry in the Prometheus text exposition format (version 0.0.4). Timers become
+ * {@code _seconds} histograms when they publish buckets and summaries otherwise, each with a {@code _max} gauge;
+ * counters get the {@code _total} suffix. The per-bucket gauges the registry derives from histograms are skipped,
+ * since the buckets are written with their histogram.
+ */
+@Component
+public class PrometheusTextFormat {
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    private final MeterRegistry meterRegistry;
+
+    public PrometheusTextFormat(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public String scrape() {
+        Map<String, Family> families = new TreeMap<>();
+        for (Meter meter : meterRegistry.getMeters()) {
+            if (meter.getId().syntheticAssociation() != null) {
+                continue;
+            }
+            String name = sanitize(meter.getId().getName());
+            String labels = labels(meter.getId());
+            meter.use(
+                    gauge -> family(families, name, "gauge").sample(name, labels, gauge.value()),
+                    counter -> family(families, name + "_total", "counter")
+                            .sample(name + "_total", labels, counter.count()),
+                    timer -> histogram(families, name + "_seconds", labels, timer.takeSnapshot(), TimeUnit.SECONDS),
+                    summary -> histogram(families, name, labels, summary.takeSnapshot(), null),
+                    longTaskTimer -> {
+                        family(families, name + "_active_count", "gauge")
+                                .sample(name + "_active_count", labels, longTaskTimer.activeTasks());
+                        family(families, name + "_duration_seconds", "gauge")
+                                .sample(name + "_duration_seconds", labels, longTaskTimer.duration(TimeUnit.SECONDS));
+                    },
+                    timeGauge -> family(families, name + "_seconds", "gauge")
+                            .sample(name + "_seconds", labels, timeGauge.value(TimeUnit.SECONDS)),
+                    functionCounter -> family(families, name + "_total", "counter")
+                            .sample(name + "_total", labels, functionCounter.count()),
+                    functionTimer -> family(families, name + "_seconds", "summary")
+                            .sample(name + "_seconds_count", labels, functionTimer.count())
+                            .sample(name + "_seconds_sum", labels, functionTimer.totalTime(TimeUnit.SECONDS)),
+                    other -> {
+                        for (Measurement measurement : other.measure()) {
+                            String statistic = name + "_" + measurement.getStatistic().name().toLowerCase();
+                            family(families, statistic, "gauge").sample(statistic, labels, measurement.getValue());
+                        }
+                    });
+        }
+        StringBuilder out = new StringBuilder();
+        families.forEach((name, family) -> out.append("# TYPE ").append(name).append(' ').append(family.type)
+                .append('\n').append(family.samples));
+        return out.toString();
+    }
+
+    private static void histogram(Map<String, Family> families, String name, String labels,
+                                  HistogramSnapshot snapshot, TimeUnit unit) {
+        CountAtBucket[] buckets = snapshot.histogramCounts();
+        Family family = family(families, name, buckets.length > 0 ? "histogram" : "summary");
+        if (buckets.length > 0) {
+            for (CountAtBucket bucket : buckets) {
+                double le = unit != null ? bucket.bucket(unit) : bucket.bucket();
+                family.sample(name + "_bucket", withLe(labels, format(le)), bucket.count());
+            }
+            family.sample(name + "_bucket", withLe(labels, "+Inf"), snapshot.count());
+        }
+        family.sample(name + "_count", labels, snapshot.count())
+                .sample(name + "_sum", labels, unit != null ? snapshot.total(unit) : snapshot.total());
+        family(families, name + "_max", "gauge")
+                .sample(name + "_max", labels, unit != null ? snapshot.max(unit) : snapshot.max());
+    }
+
+    private static Family family(Map<String, Family> families, String name, String type) {
+        return families.computeIfAbsent(name, key -> new Family(type));
+    }
+
+    private static String labels(Meter.Id id) {
+        if (id.getTags().isEmpty()) {
+            return "";
+        }
+        StringBuilder labels = new StringBuilder("{");
+        for (Tag tag : id.getTags()) {
+            if (labels.length() > 1) {
+                labels.append(',');
+            }
+            labels.append(sanitize(tag.getKey())).append("=\"").append(escape(tag.getValue())).append('"');
+        }
+        return labels.append('}').toString();
+    }
+
+    private static String withLe(String labels, String le) {
+        String label = "le=\"" + le + "\"";
+        return labels.isEmpty() ? "{" + label + "}" : labels.substring(0, labels.length() - 1) + "," + label + "}";
+    }
+
+    private static String sanitize(String name) {
+        return name.replaceAll("[^a-zA-Z0-9_]", "_");
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static String format(double value) {
+        if (Double.isNaN(value)) {
+            return "NaN";
+        }
+        if (Double.isInfinite(value)) {
+            return value > 0 ? "+Inf" : "-Inf";
+        }
+        return Double.toString(value);
+    }
+
+    private static final class Family {
+        private final String type;
+        private final StringBuilder samples = new StringBuilder();
+
+        private Family(String type) {
+            this.type = type;
+        }
+
+        private Family sample(String name, String labels, double value) {
+            samples.append(name).append(labels).append(' ').append(format(value)).append('\n');
+            return this;
+        }
+    }
+}
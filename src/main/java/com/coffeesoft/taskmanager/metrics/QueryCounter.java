@@ -0,0 +1,55 @@
+package com.coffeesoft.taskmanager.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts the SQL statements Hibernate prepares into the counter bound to the current thread, so a request can
+ * report how many queries it ran. Work a request hands to another thread counts towards it when it is wrapped
+ * with {@link #propagate}.
+ */
+public class QueryCounter implements StatementInspector {
+    private static final ThreadLocal<AtomicInteger> COUNT = new ThreadLocal<>();
+
+    @Override
+    public String inspect(String sql) {
+        AtomicInteger count = COUNT.get();
+        if (count != null) {
+            count.incrementAndGet();
+        }
+        return sql;
+    }
+
+    /**
+     * Counts this thread's statements into {@code count} and returns the counter it replaced, for {@link #restore}.
+     */
+    public static AtomicInteger bind(AtomicInteger count) {
+        AtomicInteger previous = COUNT.get();
+        COUNT.set(count);
+        return previous;
+    }
+
+    public static void restore(AtomicInteger previous) {
+        if (previous != null) {
+            COUNT.set(previous);
+        } else {
+            COUNT.remove();
+        }
+    }
+
+    public static Runnable propagate(Runnable task) {
+        AtomicInteger count = COUNT.get();
+        if (count == null) {
+            return task;
+        }
+        return () -> {
+            AtomicInteger previous = bind(count);
+            try {
+                task.run();
+            } finally {
+                restore(previous);
+            }
+        };
+    }
+}
@@ -0,0 +1,77 @@
+package com.coffeesoft.taskmanager.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Latency per endpoint, method and status, and queries per endpoint and method. Meters are registered on first
+ * use and then found through plain map and array reads, so recording a request allocates nothing.
+ */
+@Component
+public class RequestMetrics {
+    public static final String REQUESTS = "api.requests";
+    public static final String QUERIES = "api.requests.queries";
+    static final String UNMATCHED = "UNMATCHED";
+    private static final int STATUSES = 600;
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentMap<String, ConcurrentMap<String, Endpoint>> endpoints = new ConcurrentHashMap<>();
+
+    public RequestMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public void record(String method, String pattern, int status, long nanos, int queries) {
+        Endpoint endpoint = endpoint(method, pattern != null ? pattern : UNMATCHED);
+        endpoint.timer(status).record(nanos, TimeUnit.NANOSECONDS);
+        endpoint.queries.record(queries);
+    }
+
+    private Endpoint endpoint(String method, String pattern) {
+        ConcurrentMap<String, Endpoint> byMethod = endpoints.get(pattern);
+        if (byMethod == null) {
+            byMethod = endpoints.computeIfAbsent(pattern, key -> new ConcurrentHashMap<>());
+        }
+        Endpoint endpoint = byMethod.get(method);
+        if (endpoint == null) {
+            endpoint = byMethod.computeIfAbsent(method, key -> new Endpoint(key, pattern));
+        }
+        return endpoint;
+    }
+
+    private final class Endpoint {
+        private final String method;
+        private final String pattern;
+        private final AtomicReferenceArray<Timer> timers = new AtomicReferenceArray<>(STATUSES);
+        private final DistributionSummary queries;
+
+        private Endpoint(String method, String pattern) {
+            this.method = method;
+            this.pattern = pattern;
+            queries = DistributionSummary.builder(QUERIES)
+                    .tag("endpoint", pattern)
+                    .tag("method", method)
+                    .register(meterRegistry);
+        }
+
+        private Timer timer(int status) {
+            int index = status > 0 && status < STATUSES ? status : 0;
+            Timer timer = timers.get(index);
+            if (timer == null) {
+                timer = Timer.builder(REQUESTS)
+                        .tag("endpoint", pattern)
+                        .tag("method", method)
+                        .tag("status", index > 0 ? Integer.toString(index) : "UNKNOWN")
+                        .register(meterRegistry);
+                timers.set(index, timer);
+            }
+            return timer;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.coffeesoft.taskmanager.metrics;
+
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Times every request from before security to the end of the response, tagged with the matched mapping pattern.
+ * A request that goes async is recorded when its async context completes, so streams are timed for as long as
+ * they run, and queries made on the threads it handed work to are counted with it.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 2)
+public class RequestMetricsFilter extends OncePerRequestFilter {
+    private final RequestMetrics requestMetrics;
+
+    public RequestMetricsFilter(RequestMetrics requestMetrics) {
+        this.requestMetrics = requestMetrics;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long start = System.nanoTime();
+        AtomicInteger queries = new AtomicInteger();
+        AtomicInteger previous = QueryCounter.bind(queries);
+        boolean failed = true;
+        try {
+            filterChain.doFilter(request, response);
+            failed = false;
+        } finally {
+            QueryCounter.restore(previous);
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new AsyncRecorder(request, response, start, queries));
+            } else {
+                record(request, response, failed, start, queries);
+            }
+        }
+    }
+
+    private void record(HttpServletRequest request, HttpServletResponse response, boolean failed, long start,
+                        AtomicInteger queries) {
+        int status = response.getStatus();
+        requestMetrics.record(request.getMethod(),
+                (String) request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE),
+                failed && status < 400 ? 500 : status,
+                System.nanoTime() - start,
+                queries.get());
+    }
+
+    private final class AsyncRecorder implements AsyncListener {
+        private final HttpServletRequest request;
+        private final HttpServletResponse response;
+        private final long start;
+        private final AtomicInteger queries;
+        private volatile boolean failed;
+
+        private AsyncRecorder(HttpServletRequest request, HttpServletResponse response, long start,
+                              AtomicInteger queries) {
+            this.request = request;
+            this.response = response;
+            this.start = start;
+            this.queries = queries;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            record(request, response, failed, start, queries);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            failed = true;
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            failed = true;
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.coffeesoft.taskmanager.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BulkTaskResult {
+    private long index;
+    private int status;
+    private Long id;
+    private String error;
+
+    public static BulkTaskResult created(long index, Long id) {
+        return new BulkTaskResult(index, 201, id, null);
+    }
+
+    public static BulkTaskResult rejected(long index, String error) {
+        return new BulkTaskResult(index, 400, null, error);
+    }
+
+    public static BulkTaskResult ok(long index, Long id) {
+        return new BulkTaskResult(index, 200, id, null);
+    }
+
+    public static BulkTaskResult failed(long index, int status, String error) {
+        return new BulkTaskResult(index, status, null, error);
+    }
+}
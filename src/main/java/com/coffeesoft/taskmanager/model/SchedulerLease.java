@@ -0,0 +1,29 @@
+package com.coffeesoft.taskmanager.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.time.LocalDateTime;
+
+/**
+ * Ownership of one scheduler shard, the users whose id modulo the shard count equals {@link #shard}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "scheduler_lease")
+public class SchedulerLease {
+    @Id
+    @Column(name = "shard", nullable = false, updatable = false)
+    private Integer shard;
+    @Column(name = "owner", length = 64)
+    private String owner;
+    @Column(name = "expires_at")
+    private LocalDateTime expiresAt;
+}
@@ -0,0 +1,27 @@
+package com.coffeesoft.taskmanager.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.time.LocalDateTime;
+
+/**
+ * A running scheduler node; nodes whose heartbeat is recent share the scheduler shards evenly.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "scheduler_node")
+public class SchedulerNode {
+    @Id
+    @Column(name = "node_id", nullable = false, updatable = false, length = 64)
+    private String nodeId;
+    @Column(name = "heartbeat_at", nullable = false)
+    private LocalDateTime heartbeatAt;
+}
@@ -3,41 +3,64 @@ package com.coffeesoft.taskmanager.model;
 import com.fasterxml.jackson.annotation.JsonBackReference;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.*;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 import org.springframework.format.annotation.DateTimeFormat;
 
 import javax.persistence.*;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
 
-@ToString(exclude = "user")
+@ToString(exclude = {"user", "loadedTiming"})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @RequiredArgsConstructor
 @Entity
-@Table(name = "task")
+@DynamicUpdate
+@Table(name = "task", indexes = {
+        @Index(name = "idx_task_user_time_id", columnList = "user_id, time, id"),
+        @Index(name = "idx_task_user_state_time_id", columnList = "user_id, task_state, time, id"),
+        @Index(name = "idx_task_user_active_time_id", columnList = "user_id, active, time, id")
+})
 public class Task {
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE,
                     generator = "task_seq")
-    @SequenceGenerator(name = "task_seq",
-                        sequenceName = "SEQ_TASK", allocationSize = 1)
+    @GenericGenerator(name = "task_seq",
+                        strategy = "com.coffeesoft.taskmanager.repository.PooledSequenceGenerator",
+                        parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "SEQ_TASK"))
     @Column(name = "id", updatable = false, nullable = false, unique = true)
     @JsonProperty(access = JsonProperty.Access.READ_ONLY)
     private Long id;
     @NonNull
+    @NotNull
+    @Size(max = 64)
     @Column(name = "title", nullable = false, length = 64)
     private String title;
     @Column(name = "description")
     private String description;
+    /**
+     * Owned by the scheduler, which writes it with targeted updates; entity updates leave it alone so user edits
+     * never overwrite a transition and never conflict with one.
+     */
     @JsonProperty(access = JsonProperty.Access.READ_ONLY)
     @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss")
-    @Column(name = "time", nullable = false)
+    @Column(name = "time", nullable = false, updatable = false)
     private LocalDateTime time;
     @NonNull
+    @NotNull
     @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss")
     @Column(name = "start_time", nullable = false)
     private LocalDateTime startTime;
     @NonNull
+    @NotNull
     @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss")
     @Column(name = "end_time", nullable = false)
     private LocalDateTime endTime;
@@ -46,22 +69,42 @@ public class Task {
     @Column(name = "work_interval", nullable = false)
     private Integer workInterval;
     @NonNull
+    @NotNull
     @Column(name = "active", nullable = false)
     private Boolean active;
     @NonNull
+    @NotNull
     @Column(name = "repeat", nullable = false)
     private Boolean repeat;
     @NonNull
+    @NotNull
     @Column(name = "sleep", nullable = false)
     private Boolean sleep;
+    /**
+     * Owned by the scheduler, see {@link #time}.
+     */
     @JsonProperty(access = JsonProperty.Access.READ_ONLY)
-    @Column(name = "task_state", nullable = false)
+    @Column(name = "task_state", nullable = false, updatable = false)
     private TaskState taskState;
     @JsonBackReference
     @NonNull
-    @ManyToOne(fetch = FetchType.EAGER, cascade = CascadeType.ALL)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
+    @Version
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Column(name = "version", nullable = false)
+    private long version;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient List<Object> loadedTiming;
+
+    public Task(Long id, String title, String description, LocalDateTime time, LocalDateTime startTime,
+                LocalDateTime endTime, Integer sleepInterval, Integer workInterval, Boolean active, Boolean repeat,
+                Boolean sleep, TaskState taskState, User user) {
+        this(id, title, description, time, startTime, endTime, sleepInterval, workInterval, active, repeat, sleep,
+                taskState, user, 0, null);
+    }
 
     public void setTaskStateAndNextTimeAfter(LocalDateTime current) {
         if (!active) {
@@ -83,10 +126,73 @@ public class Task {
                 if (sleep) {
                     time = time.plusMinutes(sleepInterval);
                     taskState = TaskState.SLEEP;
+                } else {
+                    taskState = nextCycleState();
                 }
             } else if (taskState == TaskState.SLEEP) {
-                taskState = TaskState.START;
+                taskState = nextCycleState();
             }
         }
     }
+
+    /**
+     * Sets the state and time that repeated calls of {@link #setTaskStateAndNextTimeAfter} from the start would
+     * settle in at {@code current}, in constant time. Used to catch up tasks whose time fell far behind.
+     */
+    public void setTaskStateAndNextTimeAt(LocalDateTime current) {
+        if (!active) {
+            taskState = TaskState.DISABLE;
+            return;
+        }
+
+        long start = startTime.toEpochSecond(ZoneOffset.UTC);
+        long now = current.toEpochSecond(ZoneOffset.UTC);
+        if (now < start) {
+            time = startTime;
+            taskState = TaskState.DISABLE;
+            return;
+        }
+
+        long work = workInterval * 60L;
+        long sleepTime = sleep && sleepInterval != null ? sleepInterval * 60L : 0;
+        long period = Math.max(1, work + sleepTime);
+        long end = endTime.toEpochSecond(ZoneOffset.UTC);
+        long lastCycle = repeat && end > start ? (end - start - 1) / period : 0;
+        long cycle = (now - start) / period;
+        if (cycle > lastCycle) {
+            time = toDateTime(start + (lastCycle + 1) * period);
+            taskState = TaskState.FINISH;
+        } else if (now - start - cycle * period < work) {
+            time = toDateTime(start + cycle * period + work);
+            taskState = TaskState.WORK;
+        } else {
+            time = toDateTime(start + (cycle + 1) * period);
+            taskState = TaskState.SLEEP;
+        }
+    }
+
+    /**
+     * Whether a field that decides when the task fires was changed since it was loaded, so its state and time have
+     * to be computed afresh.
+     */
+    public boolean hasTimingChangedSinceLoad() {
+        return loadedTiming != null && !loadedTiming.equals(timing());
+    }
+
+    @PostLoad
+    public void rememberTiming() {
+        loadedTiming = timing();
+    }
+
+    private List<Object> timing() {
+        return Arrays.asList(startTime, endTime, sleepInterval, workInterval, active, repeat, sleep);
+    }
+
+    private TaskState nextCycleState() {
+        return repeat && time.isBefore(endTime) ? TaskState.START : TaskState.FINISH;
+    }
+
+    private static LocalDateTime toDateTime(long epochSecond) {
+        return LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+    }
 }
\ No newline at end of file
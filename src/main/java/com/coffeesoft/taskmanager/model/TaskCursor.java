@@ -0,0 +1,41 @@
+package com.coffeesoft.taskmanager.model;
+
+import com.coffeesoft.taskmanager.exception.InvalidCursorException;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+@Data
+@AllArgsConstructor
+public class TaskCursor {
+    private static final String SEPARATOR = "|";
+    private final LocalDateTime time;
+    private final Long id;
+
+    public static TaskCursor after(Task task) {
+        return new TaskCursor(task.getTime(), task.getId());
+    }
+
+    public static TaskCursor decode(String cursor) throws InvalidCursorException {
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = value.indexOf(SEPARATOR);
+            if (separator < 0) {
+                throw new InvalidCursorException(cursor);
+            }
+            return new TaskCursor(LocalDateTime.parse(value.substring(0, separator)),
+                    Long.valueOf(value.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new InvalidCursorException(cursor, e);
+        }
+    }
+
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((time + SEPARATOR + id).getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,17 @@
+package com.coffeesoft.taskmanager.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TaskOccurrence {
+    private Long taskId;
+    private TaskState taskState;
+    private LocalDateTime start;
+    private LocalDateTime end;
+}
@@ -0,0 +1,9 @@
+package com.coffeesoft.taskmanager.model;
+
+import java.time.LocalDateTime;
+
+public interface TaskSchedule {
+    Long getId();
+    Long getUserId();
+    LocalDateTime getTime();
+}
@@ -0,0 +1,9 @@
+package com.coffeesoft.taskmanager.model;
+
+import java.time.LocalDateTime;
+
+public interface TaskVersion {
+    long getVersion();
+    TaskState getTaskState();
+    LocalDateTime getTime();
+}
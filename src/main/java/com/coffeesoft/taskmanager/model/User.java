@@ -2,14 +2,19 @@ package com.coffeesoft.taskmanager.model;
 
 import com.coffeesoft.taskmanager.annotation.validator.PasswordConstraint;
 import com.coffeesoft.taskmanager.annotation.validator.UsernameConstraint;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.*;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 
 import javax.persistence.*;
 import java.util.Set;
 
 @EqualsAndHashCode(exclude="tasks")
+@ToString(exclude = "tasks")
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -20,8 +25,9 @@ public class User {
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE,
                     generator = "user_seq")
-    @SequenceGenerator(name = "user_seq",
-                        sequenceName = "SEQ_USER", allocationSize = 1)
+    @GenericGenerator(name = "user_seq",
+                        strategy = "com.coffeesoft.taskmanager.repository.PooledSequenceGenerator",
+                        parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "SEQ_USER"))
     @Column(name = "id", nullable = false, updatable = false, unique = true)
     @JsonProperty(access = JsonProperty.Access.READ_ONLY)
     private Long id;
@@ -40,6 +46,16 @@ public class User {
     @Column(name = "role", nullable = false)
     private Role role;
     @JsonManagedReference
-    @OneToMany(fetch = FetchType.EAGER, mappedBy = "user")
+    @OneToMany(fetch = FetchType.LAZY, mappedBy = "user")
     private Set<Task> tasks;
+    @Version
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Column(name = "version", nullable = false)
+    private long version;
+    /**
+     * Bumped in the same transaction as every write to one of the user's tasks, never written through the entity.
+     */
+    @JsonIgnore
+    @Column(name = "tasks_version", nullable = false, updatable = false)
+    private long tasksVersion;
 }
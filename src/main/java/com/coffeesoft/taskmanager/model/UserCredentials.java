@@ -0,0 +1,9 @@
+package com.coffeesoft.taskmanager.model;
+
+public interface UserCredentials {
+    Long getId();
+    String getUsername();
+    String getPassword();
+    Role getRole();
+    Status getStatus();
+}
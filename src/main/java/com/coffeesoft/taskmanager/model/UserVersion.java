@@ -0,0 +1,7 @@
+package com.coffeesoft.taskmanager.model;
+
+public interface UserVersion {
+    Long getId();
+    long getVersion();
+    long getTasksVersion();
+}
@@ -0,0 +1,110 @@
+package com.coffeesoft.taskmanager.repository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Hands out at most {@code permits} connections at a time and makes further callers wait on a fair semaphore. With
+ * virtual threads there is no request thread pool in front of the connection pool any more, so thousands of callers
+ * can reach it at once; waiting here parks them cheaply and in arrival order instead of all spinning in the pool's
+ * own handoff. A permit is returned when the connection is closed.
+ */
+public class ConnectionLimitingDataSource extends DelegatingDataSource {
+    public static final String WAIT_METER = "jdbc.connections.limiter.wait";
+
+    private final Semaphore permits;
+    private final long timeoutMillis;
+    private final Timer wait;
+    private final Counter timedOut;
+
+    public ConnectionLimitingDataSource(DataSource dataSource, int permits, long timeoutMillis,
+                                        MeterRegistry meterRegistry) {
+        super(dataSource);
+        this.permits = new Semaphore(permits, true);
+        this.timeoutMillis = timeoutMillis;
+        wait = Timer.builder(WAIT_METER).register(meterRegistry);
+        timedOut = Counter.builder("jdbc.connections.limiter.timeouts").register(meterRegistry);
+        Gauge.builder("jdbc.connections.limiter.waiting", this.permits, Semaphore::getQueueLength)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        acquire();
+        return limited(() -> super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        acquire();
+        return limited(() -> super.getConnection(username, password));
+    }
+
+    public int availablePermits() {
+        return permits.availablePermits();
+    }
+
+    private void acquire() throws SQLException {
+        long start = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for a connection permit", e);
+        } finally {
+            wait.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        if (!acquired) {
+            timedOut.increment();
+            throw new SQLTransientConnectionException(String.format(
+                    "No connection permit available after %d ms, %d callers waiting", timeoutMillis,
+                    permits.getQueueLength()));
+        }
+    }
+
+    private Connection limited(ConnectionSource source) throws SQLException {
+        Connection connection;
+        try {
+            connection = source.get();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+        AtomicBoolean released = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(ConnectionLimitingDataSource.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("close") && released.compareAndSet(false, true)) {
+                        try {
+                            connection.close();
+                        } finally {
+                            permits.release();
+                        }
+                        return null;
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    @FunctionalInterface
+    private interface ConnectionSource {
+        Connection get() throws SQLException;
+    }
+}
@@ -0,0 +1,24 @@
+package com.coffeesoft.taskmanager.repository;
+
+import org.hibernate.MappingException;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.id.enhanced.StandardOptimizerDescriptor;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.util.Properties;
+
+/**
+ * Hands out ids in blocks of {@link #BLOCK_SIZE} from a single nextval. The block size is fixed because the
+ * sequences' {@code INCREMENT BY} in {@code db/migration/V1__pooled_id_sequences.sql} has to equal it.
+ */
+public class PooledSequenceGenerator extends SequenceStyleGenerator {
+    public static final int BLOCK_SIZE = 50;
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+        params.setProperty(INCREMENT_PARAM, String.valueOf(BLOCK_SIZE));
+        params.setProperty(OPT_PARAM, StandardOptimizerDescriptor.POOLED.getExternalName());
+        super.configure(type, params, serviceRegistry);
+    }
+}
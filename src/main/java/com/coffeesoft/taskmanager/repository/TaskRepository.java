@@ -1,18 +1,60 @@
 package com.coffeesoft.taskmanager.repository;
 
 import com.coffeesoft.taskmanager.model.Task;
+import com.coffeesoft.taskmanager.model.TaskSchedule;
+import com.coffeesoft.taskmanager.model.TaskState;
+import com.coffeesoft.taskmanager.model.TaskVersion;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import javax.persistence.QueryHint;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
-public interface TaskRepository extends JpaRepository<Task, Long> {
-    @Query(value = "SELECT * FROM task WHERE time > ?1 AND user_id = ?2 ORDER BY time DESC LIMIT 1",
+public interface TaskRepository extends JpaRepository<Task, Long>, TaskRepositoryCustom {
+    int STREAM_FETCH_SIZE = 500;
+
+    @Query(value = "SELECT * FROM task WHERE user_id = ?2 AND active = TRUE AND time > ?1 ORDER BY time, id LIMIT 1",
     nativeQuery = true)
     Optional<Task> findNextOrCurrentTaskAfterTimeByUserId(LocalDateTime time, Long userId);
 
     List<Task> findByUserId(Long userId);
+    List<Task> findByUserIdAndActiveTrue(Long userId);
     Optional<Task> findByIdAndUserId(Long taskId, Long userId);
+
+    @Query("SELECT t.version AS version, t.taskState AS taskState, t.time AS time FROM Task t " +
+            "WHERE t.id = :id AND t.user.id = :userId")
+    Optional<TaskVersion> findVersionByIdAndUserId(@Param("id") Long taskId, @Param("userId") Long userId);
+
+    @Query("SELECT t.id AS id, t.user.id AS userId, t.time AS time FROM Task t WHERE t.active = true " +
+            "AND MOD(t.user.id, :shardCount) IN :shards")
+    List<TaskSchedule> findActiveTaskSchedules(@Param("shardCount") int shardCount,
+                                               @Param("shards") Collection<Integer> shards);
+
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "" + STREAM_FETCH_SIZE))
+    @Query("SELECT t.id AS id, t.user.id AS userId, t.time AS time FROM Task t WHERE t.active = true")
+    Stream<TaskSchedule> streamActiveTaskSchedules();
+
+    @QueryHints({@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "" + STREAM_FETCH_SIZE),
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_READONLY, value = "true")})
+    @Query("SELECT t FROM Task t ORDER BY t.id")
+    Stream<Task> streamAll();
+
+    @Query("SELECT t FROM Task t WHERE t.active = true AND t.taskState <> com.coffeesoft.taskmanager.model.TaskState.FINISH " +
+            "AND t.time <= :now AND t.id > :afterId AND MOD(t.user.id, :shardCount) IN :shards ORDER BY t.id")
+    List<Task> findOverdue(@Param("now") LocalDateTime now, @Param("afterId") Long afterId,
+                           @Param("shardCount") int shardCount, @Param("shards") Collection<Integer> shards,
+                           Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE Task t SET t.taskState = :taskState, t.time = :time WHERE t.id = :id")
+    int updateTaskStateAndTime(@Param("id") Long id, @Param("taskState") TaskState taskState,
+                               @Param("time") LocalDateTime time);
 }
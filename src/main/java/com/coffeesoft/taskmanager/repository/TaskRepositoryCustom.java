@@ -0,0 +1,13 @@
+package com.coffeesoft.taskmanager.repository;
+
+import com.coffeesoft.taskmanager.model.Task;
+import com.coffeesoft.taskmanager.model.TaskCursor;
+import com.coffeesoft.taskmanager.model.TaskFilter;
+import com.coffeesoft.taskmanager.model.VersionedTasks;
+
+import java.util.List;
+
+public interface TaskRepositoryCustom {
+    List<Task> findPageByUserId(Long userId, TaskFilter filter, TaskCursor after, int limit);
+    VersionedTasks findVersionedByUserId(Long userId);
+}
@@ -0,0 +1,74 @@
+package com.coffeesoft.taskmanager.repository;
+
+import com.coffeesoft.taskmanager.model.Task;
+import com.coffeesoft.taskmanager.model.TaskCursor;
+import com.coffeesoft.taskmanager.model.TaskFilter;
+import com.coffeesoft.taskmanager.model.VersionedTasks;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+public class TaskRepositoryImpl implements TaskRepositoryCustom {
+    private final EntityManager entityManager;
+
+    public TaskRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public List<Task> findPageByUserId(Long userId, TaskFilter filter, TaskCursor after, int limit) {
+        StringBuilder jpql = new StringBuilder("SELECT t FROM Task t WHERE t.user.id = :userId");
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("userId", userId);
+        if (filter.getTaskState() != null) {
+            jpql.append(" AND t.taskState = :taskState");
+            parameters.put("taskState", filter.getTaskState());
+        }
+        if (filter.getActive() != null) {
+            jpql.append(" AND t.active = :active");
+            parameters.put("active", filter.getActive());
+        }
+        if (filter.getFrom() != null) {
+            jpql.append(" AND t.time >= :from");
+            parameters.put("from", filter.getFrom());
+        }
+        if (filter.getTo() != null) {
+            jpql.append(" AND t.time < :to");
+            parameters.put("to", filter.getTo());
+        }
+        if (after != null) {
+            jpql.append(" AND (t.time > :afterTime OR (t.time = :afterTime AND t.id > :afterId))");
+            parameters.put("afterTime", after.getTime());
+            parameters.put("afterId", after.getId());
+        }
+        jpql.append(" ORDER BY t.time, t.id");
+
+        TypedQuery<Task> query = entityManager.createQuery(jpql.toString(), Task.class);
+        parameters.forEach(query::setParameter);
+        return query.setMaxResults(limit).getResultList();
+    }
+
+    /**
+     * Reads the tasks together with the user's aggregate version in one statement, so the version always
+     * describes exactly the tasks returned with it.
+     */
+    @Override
+    public VersionedTasks findVersionedByUserId(Long userId) {
+        List<Object[]> rows = entityManager.createQuery(
+                "SELECT u.tasksVersion, t FROM User u LEFT JOIN u.tasks t WHERE u.id = :userId", Object[].class)
+                .setParameter("userId", userId)
+                .getResultList();
+        if (rows.isEmpty()) {
+            return new VersionedTasks(0, List.of());
+        }
+        List<Task> tasks = rows.stream()
+                .filter(row -> row[1] != null)
+                .map(row -> (Task) row[1])
+                .collect(Collectors.toList());
+        return new VersionedTasks((Long) rows.get(0)[0], tasks);
+    }
+}
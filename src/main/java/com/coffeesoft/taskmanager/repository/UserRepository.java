@@ -1,10 +1,46 @@
 package com.coffeesoft.taskmanager.repository;
 
+import com.coffeesoft.taskmanager.model.Status;
 import com.coffeesoft.taskmanager.model.User;
+import com.coffeesoft.taskmanager.model.UserCredentials;
+import com.coffeesoft.taskmanager.model.UserVersion;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByUsername(String username);
+
+    Optional<UserCredentials> findCredentialsByUsername(String username);
+
+    @Modifying
+    @Query("UPDATE User u SET u.password = :password, u.version = u.version + 1 WHERE u.id = :id")
+    int updatePassword(@Param("id") Long id, @Param("password") String password);
+
+    Optional<UserVersion> findVersionByUsername(String username);
+
+    @Query("SELECT u.tasksVersion FROM User u WHERE u.id = :id")
+    Optional<Long> findTasksVersionById(@Param("id") Long id);
+
+    @Modifying
+    @Query("UPDATE User u SET u.tasksVersion = u.tasksVersion + 1 WHERE u.id = :id")
+    int incrementTasksVersion(@Param("id") Long id);
+
+    @Query("SELECT u.id FROM User u WHERE u.status = :status")
+    List<Long> findIdsByStatus(@Param("status") Status status);
+
+    @EntityGraph(attributePaths = "tasks")
+    Optional<User> findWithTasksByUsername(String username);
+
+    @EntityGraph(attributePaths = "tasks")
+    Optional<User> findWithTasksById(Long id);
+
+    @EntityGraph(attributePaths = "tasks")
+    @Query("SELECT u FROM User u")
+    List<User> findAllWithTasks();
 }
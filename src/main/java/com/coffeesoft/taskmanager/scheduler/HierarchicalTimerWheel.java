@@ -0,0 +1,174 @@
+package com.coffeesoft.taskmanager.scheduler;
+
+import java.util.function.Consumer;
+
+/**
+ * Hashed hierarchical timer wheel. Every level has 2^WHEEL_BITS buckets; a timeout lives on the lowest level
+ * whose higher-order tick digits match the current tick and is cascaded down when the wheel reaches its bucket.
+ * Insert and cancel are O(1). Not thread-safe: the owner must confine it to a single thread.
+ */
+public class HierarchicalTimerWheel<T> {
+    private static final int WHEEL_BITS = 8;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int LEVELS = 4;
+
+    private final long tickMillis;
+    private final Bucket<T>[][] buckets;
+    private long currentTick;
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    public HierarchicalTimerWheel(long tickMillis, long startMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("Tick duration must be positive");
+        }
+        this.tickMillis = tickMillis;
+        this.currentTick = startMillis / tickMillis;
+        this.buckets = new Bucket[LEVELS][WHEEL_SIZE];
+        for (int level = 0; level < LEVELS; level++) {
+            for (int slot = 0; slot < WHEEL_SIZE; slot++) {
+                buckets[level][slot] = new Bucket<>();
+            }
+        }
+    }
+
+    public Timeout<T> schedule(T payload, long deadlineMillis) {
+        Timeout<T> timeout = new Timeout<>(this, payload, Math.max(deadlineMillis / tickMillis, currentTick + 1));
+        place(timeout);
+        size++;
+        return timeout;
+    }
+
+    public int advance(long nowMillis, Consumer<T> expired) {
+        long targetTick = nowMillis / tickMillis;
+        int fired = 0;
+        while (currentTick < targetTick) {
+            currentTick++;
+            cascade();
+            Bucket<T> bucket = buckets[0][(int) (currentTick & WHEEL_MASK)];
+            Timeout<T> head = bucket.head;
+            bucket.head = null;
+            for (Timeout<T> timeout = head; timeout != null; timeout = timeout.next) {
+                timeout.bucket = null;
+                size--;
+            }
+            Timeout<T> timeout = head;
+            while (timeout != null) {
+                Timeout<T> next = timeout.next;
+                timeout.next = null;
+                timeout.prev = null;
+                fired++;
+                expired.accept(timeout.payload);
+                timeout = next;
+            }
+        }
+        return fired;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getTickMillis() {
+        return tickMillis;
+    }
+
+    private void cascade() {
+        for (int level = 1; level < LEVELS; level++) {
+            long lowerMask = (1L << (WHEEL_BITS * level)) - 1;
+            if ((currentTick & lowerMask) != 0) {
+                return;
+            }
+            Bucket<T> bucket = buckets[level][slotOf(currentTick, level)];
+            Timeout<T> timeout = bucket.head;
+            bucket.head = null;
+            while (timeout != null) {
+                Timeout<T> next = timeout.next;
+                timeout.next = null;
+                timeout.prev = null;
+                place(timeout);
+                timeout = next;
+            }
+        }
+    }
+
+    private void place(Timeout<T> timeout) {
+        int level = 0;
+        while (level < LEVELS - 1
+                && (timeout.deadlineTick >>> (WHEEL_BITS * (level + 1))) != (currentTick >>> (WHEEL_BITS * (level + 1)))) {
+            level++;
+        }
+        buckets[level][slotOf(timeout.deadlineTick, level)].add(timeout);
+    }
+
+    private static int slotOf(long tick, int level) {
+        return (int) ((tick >>> (WHEEL_BITS * level)) & WHEEL_MASK);
+    }
+
+    private void remove(Timeout<T> timeout) {
+        if (timeout.bucket == null) {
+            return;
+        }
+        timeout.bucket.remove(timeout);
+        size--;
+    }
+
+    public static final class Timeout<T> {
+        private final HierarchicalTimerWheel<T> wheel;
+        private final T payload;
+        private final long deadlineTick;
+        private Bucket<T> bucket;
+        private Timeout<T> prev;
+        private Timeout<T> next;
+
+        private Timeout(HierarchicalTimerWheel<T> wheel, T payload, long deadlineTick) {
+            this.wheel = wheel;
+            this.payload = payload;
+            this.deadlineTick = deadlineTick;
+        }
+
+        public T getPayload() {
+            return payload;
+        }
+
+        public long getDeadlineMillis() {
+            return deadlineTick * wheel.tickMillis;
+        }
+
+        public boolean isPending() {
+            return bucket != null;
+        }
+
+        public void cancel() {
+            wheel.remove(this);
+        }
+    }
+
+    private static final class Bucket<T> {
+        private Timeout<T> head;
+
+        private void add(Timeout<T> timeout) {
+            timeout.bucket = this;
+            timeout.next = head;
+            if (head != null) {
+                head.prev = timeout;
+            }
+            head = timeout;
+        }
+
+        private void remove(Timeout<T> timeout) {
+            if (timeout.prev != null) {
+                timeout.prev.next = timeout.next;
+            } else {
+                head = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            }
+            timeout.bucket = null;
+            timeout.prev = null;
+            timeout.next = null;
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.coffeesoft.taskmanager.scheduler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Splits scheduling across nodes. Tasks belong to shard {@code user_id mod shards}; each shard is leased to one
+ * node through the {@code scheduler_lease} table and every node aims for an even share of the nodes with a recent
+ * heartbeat in {@code scheduler_node}. A node releases shards above its share when another joins, and shards of a
+ * node that stops renewing are claimed by the others once its leases expire. Free shards are claimed with
+ * {@code FOR UPDATE SKIP LOCKED} on PostgreSQL so nodes do not queue on each other's rows; every claim is a
+ * conditional update, which keeps it safe on databases without {@code SKIP LOCKED}. Node clocks are assumed to
+ * agree to well within the lease duration.
+ * <p>
+ * When sharding is disabled there is a single shard, always owned.
+ */
+@Component
+public class ShardLeases {
+    private static final Logger logger = LoggerFactory.getLogger(ShardLeases.class);
+    private static final String HEARTBEAT_SQL = "UPDATE scheduler_node SET heartbeat_at = ? WHERE node_id = ?";
+    private static final String REGISTER_SQL = "INSERT INTO scheduler_node (node_id, heartbeat_at) VALUES (?, ?)";
+    private static final String LIVE_NODES_SQL = "SELECT COUNT(*) FROM scheduler_node WHERE heartbeat_at > ?";
+    private static final String FORGET_NODES_SQL = "DELETE FROM scheduler_node WHERE heartbeat_at < ?";
+    private static final String ADD_SHARD_SQL = "INSERT INTO scheduler_lease (shard) SELECT ? WHERE NOT EXISTS " +
+            "(SELECT 1 FROM scheduler_lease WHERE shard = ?)";
+    private static final String RENEW_SQL = "UPDATE scheduler_lease SET expires_at = ? WHERE owner = ?";
+    private static final String OWNED_SQL = "SELECT shard FROM scheduler_lease WHERE owner = ? ORDER BY shard";
+    private static final String FREE_SQL = "SELECT shard FROM scheduler_lease WHERE shard < ? AND " +
+            "(owner IS NULL OR expires_at < ?) ORDER BY shard LIMIT ?";
+    private static final String CLAIM_SQL = "UPDATE scheduler_lease SET owner = ?, expires_at = ? WHERE shard = ? " +
+            "AND (owner IS NULL OR expires_at < ?)";
+    private static final String RELEASE_SQL = "UPDATE scheduler_lease SET owner = NULL, expires_at = NULL " +
+            "WHERE shard = ? AND owner = ?";
+    private static final String RELEASE_ALL_SQL = "UPDATE scheduler_lease SET owner = NULL, expires_at = NULL " +
+            "WHERE owner = ?";
+    private static final String UNREGISTER_SQL = "DELETE FROM scheduler_node WHERE node_id = ?";
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int shards;
+    private final long leaseMillis;
+    private final String nodeId = UUID.randomUUID().toString();
+    private volatile long validUntil = Long.MAX_VALUE;
+    private boolean registered;
+    private String freeShardsSql;
+
+    public ShardLeases(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                       @Value("${task.scheduler.sharding.enabled:false}") boolean enabled,
+                       @Value("${task.scheduler.sharding.shards:16}") int shards,
+                       @Value("${task.scheduler.sharding.lease-millis:15000}") long leaseMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.shards = enabled ? shards : 1;
+        this.leaseMillis = leaseMillis;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getShardCount() {
+        return shards;
+    }
+
+    public long getRenewMillis() {
+        return leaseMillis / 3;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public int shardOf(Long userId) {
+        return (int) Math.floorMod(userId, (long) shards);
+    }
+
+    /**
+     * True while the last renewal is recent enough that no other node can have claimed our shards.
+     */
+    public boolean isCurrent(long nowMillis) {
+        return nowMillis < validUntil;
+    }
+
+    public Set<Integer> renew(long nowMillis) {
+        return renew(nowMillis, shards -> { });
+    }
+
+    /**
+     * Heartbeats, renews the shards this node holds and moves it towards its share, returning the shards it owns.
+     * Shards above the share are passed to {@code beforeRelease} before their leases are given up, so the caller
+     * can stop writing for them while no other node can claim them yet. On failure the node owns nothing until a
+     * later renewal succeeds.
+     */
+    public Set<Integer> renew(long nowMillis, Consumer<Set<Integer>> beforeRelease) {
+        if (!enabled) {
+            return Collections.singleton(0);
+        }
+        try {
+            if (!registered) {
+                register(nowMillis);
+            }
+            Set<Integer> owned = transactionTemplate.execute(status -> rebalance(nowMillis, beforeRelease));
+            validUntil = nowMillis + leaseMillis;
+            return owned;
+        } catch (DataAccessException e) {
+            validUntil = Long.MIN_VALUE;
+            logger.warn("Failed to renew scheduler leases of node {}", nodeId, e);
+            return Collections.emptySet();
+        }
+    }
+
+    @PreDestroy
+    public void release() {
+        if (!enabled) {
+            return;
+        }
+        validUntil = Long.MIN_VALUE;
+        try {
+            jdbcTemplate.update(RELEASE_ALL_SQL, nodeId);
+            jdbcTemplate.update(UNREGISTER_SQL, nodeId);
+        } catch (DataAccessException e) {
+            logger.warn("Failed to release scheduler leases of node {}", nodeId, e);
+        }
+    }
+
+    private Set<Integer> rebalance(long nowMillis, Consumer<Set<Integer>> beforeRelease) {
+        Timestamp now = timestamp(nowMillis);
+        Timestamp expiresAt = timestamp(nowMillis + leaseMillis);
+        if (jdbcTemplate.update(HEARTBEAT_SQL, now, nodeId) == 0) {
+            jdbcTemplate.update(REGISTER_SQL, nodeId, now);
+        }
+        jdbcTemplate.update(FORGET_NODES_SQL, timestamp(nowMillis - 2 * leaseMillis));
+        Integer liveNodes = jdbcTemplate.queryForObject(LIVE_NODES_SQL, Integer.class, timestamp(nowMillis - leaseMillis));
+        int share = (shards + Math.max(1, liveNodes) - 1) / Math.max(1, liveNodes);
+
+        jdbcTemplate.update(RENEW_SQL, expiresAt, nodeId);
+        TreeSet<Integer> owned = new TreeSet<>(jdbcTemplate.queryForList(OWNED_SQL, Integer.class, nodeId));
+        Set<Integer> surplus = new TreeSet<>();
+        while (owned.size() > share) {
+            surplus.add(owned.pollLast());
+        }
+        if (!surplus.isEmpty()) {
+            beforeRelease.accept(surplus);
+            for (Integer shard : surplus) {
+                jdbcTemplate.update(RELEASE_SQL, shard, nodeId);
+                logger.info("Node {} released scheduler shard {}", nodeId, shard);
+            }
+        }
+        if (owned.size() < share) {
+            List<Integer> free = jdbcTemplate.queryForList(freeShardsSql(), Integer.class, shards, now,
+                    share - owned.size());
+            for (Integer shard : free) {
+                if (jdbcTemplate.update(CLAIM_SQL, nodeId, expiresAt, shard, now) == 1) {
+                    owned.add(shard);
+                    logger.info("Node {} claimed scheduler shard {}", nodeId, shard);
+                }
+            }
+        }
+        return owned;
+    }
+
+    private void register(long nowMillis) {
+        for (int shard = 0; shard < shards; shard++) {
+            try {
+                jdbcTemplate.update(ADD_SHARD_SQL, shard, shard);
+            } catch (DuplicateKeyException e) {
+                logger.debug("Scheduler shard {} was added by another node", shard);
+            }
+        }
+        jdbcTemplate.update(REGISTER_SQL, nodeId, timestamp(nowMillis));
+        registered = true;
+        logger.info("Scheduler node {} registered for {} shards", nodeId, shards);
+    }
+
+    private String freeShardsSql() {
+        if (freeShardsSql == null) {
+            String database = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            freeShardsSql = "PostgreSQL".equals(database) ? FREE_SQL + " FOR UPDATE SKIP LOCKED" : FREE_SQL;
+        }
+        return freeShardsSql;
+    }
+
+    private static Timestamp timestamp(long epochMillis) {
+        return Timestamp.valueOf(LocalDateTime.ofEpochSecond(Math.floorDiv(epochMillis, 1000L),
+                (int) Math.floorMod(epochMillis, 1000L) * 1_000_000, ZoneOffset.UTC));
+    }
+}
@@ -0,0 +1,85 @@
+package com.coffeesoft.taskmanager.scheduler;
+
+import com.coffeesoft.taskmanager.event.TaskEvent;
+import com.coffeesoft.taskmanager.model.Task;
+import com.coffeesoft.taskmanager.model.TaskState;
+import com.coffeesoft.taskmanager.service.TaskService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Brings overdue tasks up to date after downtime. Pages through active tasks whose time has passed, moves each
+ * straight to the state it would have reached by now and writes every page as one JDBC batch, instead of
+ * replaying one transition and one write per missed step.
+ */
+@Component
+public class TaskRecovery {
+    private static final Logger logger = LoggerFactory.getLogger(TaskRecovery.class);
+    private final TaskService taskService;
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int batchSize;
+
+    public TaskRecovery(TaskService taskService, JdbcTemplate jdbcTemplate, ApplicationEventPublisher eventPublisher,
+                        @Value("${task.scheduler.recovery.batch-size:500}") int batchSize) {
+        this.taskService = taskService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
+        this.batchSize = batchSize;
+    }
+
+    public int recover(LocalDateTime now, int shardCount, Collection<Integer> shards) {
+        int recovered = 0;
+        Long afterId = 0L;
+        List<Task> tasks;
+        do {
+            tasks = taskService.getOverdueTasks(now, afterId, shardCount, shards, batchSize);
+            List<Task> changed = new ArrayList<>(tasks.size());
+            for (Task task : tasks) {
+                TaskState state = task.getTaskState();
+                LocalDateTime time = task.getTime();
+                task.setTaskStateAndNextTimeAt(now);
+                if (task.getTaskState() != state || !task.getTime().equals(time)) {
+                    changed.add(task);
+                }
+            }
+            write(changed);
+            recovered += changed.size();
+            if (!tasks.isEmpty()) {
+                afterId = tasks.get(tasks.size() - 1).getId();
+            }
+        } while (tasks.size() == batchSize);
+        logger.info("Recovered {} overdue tasks of shards {}", recovered, shards);
+        return recovered;
+    }
+
+    private void write(List<Task> tasks) {
+        if (tasks.isEmpty()) {
+            return;
+        }
+        List<Object[]> rows = new ArrayList<>(tasks.size());
+        Set<Long> users = new LinkedHashSet<>();
+        for (Task task : tasks) {
+            rows.add(TaskStateWriteBehind.updateRow(task.getId(), task.getTaskState(), task.getTime()));
+            users.add(task.getUser().getId());
+        }
+        jdbcTemplate.batchUpdate(TaskStateWriteBehind.UPDATE_SQL, rows);
+        List<Object[]> userRows = new ArrayList<>(users.size());
+        for (Long userId : users) {
+            userRows.add(new Object[]{userId});
+        }
+        jdbcTemplate.batchUpdate(TaskStateWriteBehind.TASKS_VERSION_SQL, userRows);
+        tasks.forEach(task -> eventPublisher.publishEvent(TaskEvent.transitioned(task)));
+    }
+}
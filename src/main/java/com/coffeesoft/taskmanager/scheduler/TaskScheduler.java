@@ -0,0 +1,261 @@
+package com.coffeesoft.taskmanager.scheduler;
+
+import com.coffeesoft.taskmanager.event.TaskEvent;
+import com.coffeesoft.taskmanager.exception.TaskNotExistException;
+import com.coffeesoft.taskmanager.model.Task;
+import com.coffeesoft.taskmanager.model.TaskSchedule;
+import com.coffeesoft.taskmanager.model.TaskState;
+import com.coffeesoft.taskmanager.service.TaskService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PreDestroy;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Advances task states on a timer wheel, for the tasks of the shards this node leases from {@link ShardLeases}.
+ * Shards are adopted (recovered, then loaded) and dropped as leases move between nodes; owned shards are also
+ * reloaded every {@code resync-millis}, which picks up changes made through other nodes. A shard is dropped, and
+ * its transitions still waiting in {@link TaskStateWriteBehind} are discarded, before its lease is released.
+ */
+@Component
+public class TaskScheduler {
+    private static final Logger logger = LoggerFactory.getLogger(TaskScheduler.class);
+    private final TaskService taskService;
+    private final TaskStateWriteBehind writeBehind;
+    private final TaskRecovery recovery;
+    private final ShardLeases leases;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Clock clock = Clock.systemUTC();
+    private final Queue<Runnable> commands = new ConcurrentLinkedQueue<>();
+    private final Map<Long, HierarchicalTimerWheel.Timeout<Long>> timeouts = new HashMap<>();
+    private final Map<Long, Integer> taskShards = new HashMap<>();
+    private final Set<Integer> ownedShards = new HashSet<>();
+    private final boolean enabled;
+    private final long tickMillis;
+    private final long resyncMillis;
+    private HierarchicalTimerWheel<Long> wheel;
+    private ScheduledExecutorService executor;
+    private long lastResync;
+    private volatile int scheduledCount;
+
+    public TaskScheduler(TaskService taskService, TaskStateWriteBehind writeBehind, TaskRecovery recovery,
+                         ShardLeases leases, ApplicationEventPublisher eventPublisher,
+                         @Value("${task.scheduler.enabled:false}") boolean enabled,
+                         @Value("${task.scheduler.tick-millis:1000}") long tickMillis,
+                         @Value("${task.scheduler.sharding.resync-millis:60000}") long resyncMillis) {
+        this.taskService = taskService;
+        this.writeBehind = writeBehind;
+        this.recovery = recovery;
+        this.leases = leases;
+        this.eventPublisher = eventPublisher;
+        this.enabled = enabled;
+        this.tickMillis = tickMillis;
+        this.resyncMillis = resyncMillis;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        wheel = new HierarchicalTimerWheel<>(tickMillis, clock.millis());
+        rebalance();
+        logger.info("Task scheduler started with {} active tasks in {} of {} shards", timeouts.size(),
+                ownedShards.size(), leases.getShardCount());
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "task-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleAtFixedRate(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+        if (leases.isEnabled()) {
+            executor.scheduleWithFixedDelay(this::rebalance, leases.getRenewMillis(), leases.getRenewMillis(),
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTaskEvent(TaskEvent event) {
+        if (!enabled) {
+            return;
+        }
+        Task task = event.getTask();
+        if (event.getType() == TaskEvent.Type.DELETED || !isSchedulable(task)) {
+            commands.add(() -> cancel(event.getTaskId()));
+        } else {
+            LocalDateTime time = task.getTime();
+            commands.add(() -> schedule(event.getTaskId(), event.getUserId(), time));
+        }
+    }
+
+    /**
+     * Number of armed timers; safe to read from any thread, while {@code timeouts} belongs to the scheduler thread.
+     */
+    public int getScheduledCount() {
+        return scheduledCount;
+    }
+
+    void rebalance() {
+        try {
+            long now = clock.millis();
+            Set<Integer> owned = leases.renew(now, this::drop);
+            Set<Integer> dropped = new HashSet<>(ownedShards);
+            dropped.removeAll(owned);
+            drop(dropped);
+            Set<Integer> adopted = new HashSet<>(owned);
+            adopted.removeAll(ownedShards);
+            if (leases.isEnabled() && now - lastResync >= resyncMillis) {
+                lastResync = now;
+                adopted.addAll(ownedShards);
+            }
+            adopt(adopted);
+        } catch (RuntimeException e) {
+            logger.error("Task scheduler rebalance failed", e);
+        }
+    }
+
+    void tick() {
+        try {
+            if (!leases.isCurrent(clock.millis())) {
+                drop(new HashSet<>(ownedShards));
+            }
+            Runnable command;
+            while ((command = commands.poll()) != null) {
+                command.run();
+            }
+            List<Long> due = new ArrayList<>();
+            wheel.advance(clock.millis(), taskId -> {
+                timeouts.remove(taskId);
+                due.add(taskId);
+            });
+            scheduledCount = timeouts.size();
+            LocalDateTime now = LocalDateTime.now(clock);
+            for (Long taskId : due) {
+                fire(taskId, now);
+            }
+        } catch (RuntimeException e) {
+            logger.error("Task scheduler tick failed", e);
+        }
+    }
+
+    private void fire(Long taskId, LocalDateTime now) {
+        try {
+            Task task = taskService.getTaskById(taskId);
+            Long userId = task.getUser().getId();
+            if (!ownedShards.contains(leases.shardOf(userId))) {
+                return;
+            }
+            writeBehind.applyPending(task);
+            TaskState state = task.getTaskState();
+            LocalDateTime time = task.getTime();
+            if (time != null && time.isBefore(now.minus(tickMillis, ChronoUnit.MILLIS))) {
+                task.setTaskStateAndNextTimeAt(now);
+            } else {
+                task.setTaskStateAndNextTimeAfter(now);
+            }
+            if (task.getTaskState() == state && task.getTime().equals(time)) {
+                if (isSchedulable(task) && task.getTime().isAfter(now)) {
+                    schedule(taskId, userId, task.getTime());
+                }
+                return;
+            }
+            if (writeBehind.isEnabled()) {
+                writeBehind.enqueue(task);
+                eventPublisher.publishEvent(TaskEvent.transitioned(task));
+            } else {
+                taskService.updateTaskState(task);
+            }
+            logger.debug("Task {} moved from {} to {}", taskId, state, task.getTaskState());
+        } catch (TaskNotExistException e) {
+            logger.debug(e.getMessage());
+        } catch (RuntimeException e) {
+            logger.warn("Failed to advance task {}", taskId, e);
+        }
+    }
+
+    private void adopt(Set<Integer> shards) {
+        if (shards.isEmpty()) {
+            return;
+        }
+        int shardCount = leases.getShardCount();
+        recovery.recover(LocalDateTime.now(clock), shardCount, shards);
+        ownedShards.addAll(shards);
+        List<TaskSchedule> schedules = taskService.getActiveTaskSchedules(shardCount, shards);
+        for (TaskSchedule schedule : schedules) {
+            schedule(schedule.getId(), schedule.getUserId(), schedule.getTime());
+        }
+        logger.info("Scheduling {} active tasks of shards {}", schedules.size(), shards);
+    }
+
+    private void drop(Set<Integer> shards) {
+        if (shards.isEmpty()) {
+            return;
+        }
+        ownedShards.removeAll(shards);
+        List<Long> taskIds = new ArrayList<>();
+        taskShards.forEach((taskId, shard) -> {
+            if (shards.contains(shard)) {
+                taskIds.add(taskId);
+            }
+        });
+        taskIds.forEach(this::cancel);
+        int discarded = writeBehind.discard(userId -> shards.contains(leases.shardOf(userId)));
+        logger.info("Stopped scheduling {} tasks of shards {}, discarded {} unwritten transitions", taskIds.size(),
+                shards, discarded);
+    }
+
+    private void schedule(Long taskId, Long userId, LocalDateTime time) {
+        cancel(taskId);
+        if (time == null || userId == null) {
+            return;
+        }
+        int shard = leases.shardOf(userId);
+        if (!ownedShards.contains(shard)) {
+            return;
+        }
+        timeouts.put(taskId, wheel.schedule(taskId, time.toInstant(ZoneOffset.UTC).toEpochMilli()));
+        taskShards.put(taskId, shard);
+        scheduledCount = timeouts.size();
+    }
+
+    private void cancel(Long taskId) {
+        taskShards.remove(taskId);
+        HierarchicalTimerWheel.Timeout<Long> timeout = timeouts.remove(taskId);
+        if (timeout != null) {
+            timeout.cancel();
+            scheduledCount = timeouts.size();
+        }
+    }
+
+    private static boolean isSchedulable(Task task) {
+        return task != null && Boolean.TRUE.equals(task.getActive()) && task.getTaskState() != TaskState.FINISH;
+    }
+}
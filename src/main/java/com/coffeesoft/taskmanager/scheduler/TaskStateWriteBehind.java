@@ -0,0 +1,216 @@
+package com.coffeesoft.taskmanager.scheduler;
+
+import com.coffeesoft.taskmanager.event.TaskEvent;
+import com.coffeesoft.taskmanager.model.Task;
+import com.coffeesoft.taskmanager.model.TaskState;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * Coalesces scheduler transitions per task id and writes them as JDBC batch updates of
+ * {@code task_state} and {@code time}. A single flusher thread keeps writes for a task in order;
+ * a transition is persisted at most {@code max-delay-millis} after it was enqueued. Each written
+ * batch is followed by a bump of the owners' {@code tasks_version}, so list ETags change only once
+ * the new state is readable. A transition stays in {@code pending} while it is written and is removed only once the
+ * write succeeded and no newer transition replaced it, so {@link #applyPending} never misses it in between.
+ */
+@Component
+public class TaskStateWriteBehind {
+    private static final Logger logger = LoggerFactory.getLogger(TaskStateWriteBehind.class);
+    static final String UPDATE_SQL = "UPDATE task SET task_state = ?, time = ? WHERE id = ?";
+    static final String TASKS_VERSION_SQL = "UPDATE users SET tasks_version = tasks_version + 1 WHERE id = ?";
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long maxDelayMillis;
+    private final Map<Long, PendingState> pending = new ConcurrentHashMap<>();
+    private final Set<Long> staleUsers = new HashSet<>();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private ScheduledExecutorService flusher;
+
+    public TaskStateWriteBehind(JdbcTemplate jdbcTemplate,
+                                @Value("${task.scheduler.write-behind.enabled:false}") boolean enabled,
+                                @Value("${task.scheduler.write-behind.batch-size:500}") int batchSize,
+                                @Value("${task.scheduler.write-behind.max-delay-millis:1000}") long maxDelayMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.maxDelayMillis = maxDelayMillis;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "task-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, maxDelayMillis, maxDelayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (flusher == null) {
+            return;
+        }
+        flusher.shutdown();
+        flusher.awaitTermination(maxDelayMillis, TimeUnit.MILLISECONDS);
+        flush();
+        logger.info("Write-behind stopped: {} transitions enqueued, {} rows written in {} batches",
+                enqueued.sum(), written.sum(), batches.sum());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void enqueue(Task task) {
+        Long userId = task.getUser() == null ? null : task.getUser().getId();
+        pending.put(task.getId(), new PendingState(task.getTaskState(), task.getTime(), userId));
+        enqueued.increment();
+        if (pending.size() >= batchSize && flushRequested.compareAndSet(false, true)) {
+            flusher.execute(this::flush);
+        }
+    }
+
+    public void applyPending(Task task) {
+        PendingState state = pending.get(task.getId());
+        if (state != null) {
+            task.setTaskState(state.getTaskState());
+            task.setTime(state.getTime());
+        }
+    }
+
+    /**
+     * A deleted task needs no transition, and a rescheduled one has had its state and time written from its new
+     * timing, which a pending transition computed from the old one must not overwrite.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTaskEvent(TaskEvent event) {
+        if (event.getType() == TaskEvent.Type.DELETED || event.isRescheduled()) {
+            pending.remove(event.getTaskId());
+        }
+    }
+
+    /**
+     * Drops the pending transitions of tasks whose owner matches, waiting for a flush in progress to finish first.
+     * Used when their shard moves to another node, which recovers the tasks from the database and must not have
+     * its own writes overwritten by ours.
+     */
+    public synchronized int discard(Predicate<Long> owner) {
+        int discarded = 0;
+        for (Map.Entry<Long, PendingState> entry : pending.entrySet()) {
+            Long userId = entry.getValue().getUserId();
+            if (userId != null && owner.test(userId) && pending.remove(entry.getKey(), entry.getValue())) {
+                discarded++;
+            }
+        }
+        return discarded;
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    synchronized void flush() {
+        flushRequested.set(false);
+        Map<Long, PendingState> batch = new LinkedHashMap<>();
+        Set<Long> users = new HashSet<>();
+        for (Map.Entry<Long, PendingState> entry : pending.entrySet()) {
+            PendingState state = entry.getValue();
+            batch.put(entry.getKey(), state);
+            if (state.getUserId() != null) {
+                users.add(state.getUserId());
+            }
+            if (batch.size() == batchSize) {
+                if (!write(batch, users)) {
+                    return;
+                }
+                batch = new LinkedHashMap<>();
+                users = new HashSet<>();
+            }
+        }
+        if (!batch.isEmpty()) {
+            write(batch, users);
+        } else {
+            incrementTasksVersions();
+        }
+    }
+
+    private boolean write(Map<Long, PendingState> batch, Set<Long> users) {
+        List<Object[]> rows = new ArrayList<>(batch.size());
+        batch.forEach((id, state) -> rows.add(updateRow(id, state.getTaskState(), state.getTime())));
+        try {
+            jdbcTemplate.batchUpdate(UPDATE_SQL, rows);
+            batch.forEach(pending::remove);
+            staleUsers.addAll(users);
+            incrementTasksVersions();
+            written.add(batch.size());
+            batches.increment();
+            logger.debug("Flushed {} task transitions", batch.size());
+            return true;
+        } catch (DataAccessException e) {
+            logger.warn("Failed to flush {} task transitions, retrying later", batch.size(), e);
+            return false;
+        }
+    }
+
+    static Object[] updateRow(Long taskId, TaskState taskState, LocalDateTime time) {
+        return new Object[]{taskState.ordinal(), Timestamp.valueOf(time), taskId};
+    }
+
+    private void incrementTasksVersions() {
+        if (staleUsers.isEmpty()) {
+            return;
+        }
+        List<Object[]> rows = new ArrayList<>(staleUsers.size());
+        for (Long userId : staleUsers) {
+            rows.add(new Object[]{userId});
+        }
+        try {
+            jdbcTemplate.batchUpdate(TASKS_VERSION_SQL, rows);
+            staleUsers.clear();
+        } catch (DataAccessException e) {
+            logger.warn("Failed to bump tasks version of {} users, retrying later", rows.size(), e);
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static class PendingState {
+        private final TaskState taskState;
+        private final LocalDateTime time;
+        private final Long userId;
+    }
+}
@@ -0,0 +1,46 @@
+package com.coffeesoft.taskmanager.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+/**
+ * Picks a BCrypt cost from measured hash latency on this machine. Every extra cost unit doubles the work,
+ * so one measurement at the minimum cost is enough to extrapolate.
+ */
+public final class BCryptCost {
+    /**
+     * The fixed cost used before calibration, so calibration can only raise it.
+     */
+    public static final int MIN_COST = 12;
+    public static final int MAX_COST = 16;
+    private static final Logger logger = LoggerFactory.getLogger(BCryptCost.class);
+    private static final int SAMPLES = 3;
+
+    private BCryptCost() {
+    }
+
+    public static int forTargetMillis(long targetMillis) {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(MIN_COST);
+        long fastestNanos = Long.MAX_VALUE;
+        for (int i = 0; i < SAMPLES; i++) {
+            long start = System.nanoTime();
+            encoder.encode("calibration");
+            fastestNanos = Math.min(fastestNanos, System.nanoTime() - start);
+        }
+        int cost = forMeasurement(fastestNanos / 1_000_000.0, targetMillis);
+        logger.info("BCrypt cost {} took {} ms, using cost {} for a {} ms target",
+                MIN_COST, fastestNanos / 1_000_000, cost, targetMillis);
+        return cost;
+    }
+
+    static int forMeasurement(double minCostMillis, long targetMillis) {
+        int cost = MIN_COST;
+        double millis = minCostMillis;
+        while (cost < MAX_COST && millis * 2 <= targetMillis) {
+            millis *= 2;
+            cost++;
+        }
+        return cost;
+    }
+}
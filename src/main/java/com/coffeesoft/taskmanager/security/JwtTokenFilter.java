@@ -1,6 +1,8 @@
 package com.coffeesoft.taskmanager.security;
 
 import com.coffeesoft.taskmanager.exception.JwtAuthenticationException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
@@ -13,26 +15,37 @@ import javax.servlet.ServletResponse;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class JwtTokenFilter extends GenericFilterBean {
+    public static final String VERIFY_METER = "security.jwt.verify";
     private final JwtTokenProvider jwtTokenProvider;
+    private final Timer validTimer;
+    private final Timer invalidTimer;
 
-    public JwtTokenFilter(JwtTokenProvider jwtTokenProvider) {
+    public JwtTokenFilter(JwtTokenProvider jwtTokenProvider, MeterRegistry meterRegistry) {
         this.jwtTokenProvider = jwtTokenProvider;
+        validTimer = Timer.builder(VERIFY_METER).tag("outcome", "valid").register(meterRegistry);
+        invalidTimer = Timer.builder(VERIFY_METER).tag("outcome", "invalid").register(meterRegistry);
     }
 
     @Override
     public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse, FilterChain filterChain) throws IOException, ServletException {
         String token = jwtTokenProvider.resolveToken((HttpServletRequest) servletRequest);
+        long start = System.nanoTime();
         try {
-            if (token != null && jwtTokenProvider.validateToken(token)) {
-                Authentication authentication = jwtTokenProvider.getAuthentication(token);
+            if (token != null) {
+                VerifiedToken verified = jwtTokenProvider.verify(token);
+                servletRequest.setAttribute(VerifiedToken.REQUEST_ATTRIBUTE, verified);
+                Authentication authentication = jwtTokenProvider.getAuthentication(verified);
                 if (authentication != null) {
                     SecurityContextHolder.getContext().setAuthentication(authentication);
                 }
+                validTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
             }
         } catch (JwtAuthenticationException e) {
+            invalidTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
             SecurityContextHolder.clearContext();
             ((HttpServletResponse) servletResponse).sendError(e.getHttpStatus().value());
             throw new JwtAuthenticationException("JWT token is expired or invalid");
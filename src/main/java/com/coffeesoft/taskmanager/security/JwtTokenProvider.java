@@ -1,6 +1,8 @@
 package com.coffeesoft.taskmanager.security;
 
 import com.coffeesoft.taskmanager.exception.JwtAuthenticationException;
+import com.coffeesoft.taskmanager.model.Role;
+import com.coffeesoft.taskmanager.model.Status;
 import io.jsonwebtoken.*;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
@@ -13,13 +15,23 @@ import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
 import javax.servlet.http.HttpServletRequest;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Base64;
 import java.util.Date;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Component
 public class JwtTokenProvider {
+    private static final String ROLE_CLAIM = "role";
+    private static final String USER_ID_CLAIM = "uid";
 
     private final UserDetailsService userDetailsService;
+    private final UserDenylist userDenylist;
+    private final Map<String, VerifiedToken> verifiedTokens = new ConcurrentHashMap<>();
 
     @Value("${jwt.secret}")
     private String secretKey;
@@ -27,9 +39,15 @@ public class JwtTokenProvider {
     private String authorizationHeader;
     @Value("${jwt.expiration}")
     private Long validityInMilliSeconds;
+    @Value("${jwt.stateless:false}")
+    private boolean stateless;
+    @Value("${jwt.verified-cache.max-size:10000}")
+    private int verifiedCacheMaxSize;
 
-    public JwtTokenProvider(@Qualifier("userDetailsServiceImpl") UserDetailsService userDetailsService) {
+    public JwtTokenProvider(@Qualifier("userDetailsServiceImpl") UserDetailsService userDetailsService,
+                            UserDenylist userDenylist) {
         this.userDetailsService = userDetailsService;
+        this.userDenylist = userDenylist;
     }
 
     @PostConstruct
@@ -37,9 +55,10 @@ public class JwtTokenProvider {
         secretKey = Base64.getEncoder().encodeToString(secretKey.getBytes());
     }
 
-    public String createToken(String username, String role) {
+    public String createToken(Long userId, String username, String role) {
         Claims claims = Jwts.claims().setSubject(username);
-        claims.put("role", role);
+        claims.put(ROLE_CLAIM, role);
+        claims.put(USER_ID_CLAIM, userId);
         Date now = new Date();
         Date validity = new Date(now.getTime() + validityInMilliSeconds * 1000);
 
@@ -52,21 +71,86 @@ public class JwtTokenProvider {
     }
 
     public boolean validateToken(String token) {
+        return verify(token) != null;
+    }
+
+    public VerifiedToken verify(String token) {
+        long now = System.currentTimeMillis();
+        String digest = digest(token);
+        VerifiedToken verified = verifiedTokens.get(digest);
+        if (verified == null) {
+            verified = parse(token);
+            cache(digest, verified, now);
+        }
+        if (verified.isExpired(now)) {
+            verifiedTokens.remove(digest);
+            throw new JwtAuthenticationException("JWT token is expired or invalid", HttpStatus.UNAUTHORIZED);
+        }
+        return verified;
+    }
+
+    private VerifiedToken parse(String token) {
         try {
-            Jws<Claims> claimsJws = Jwts.parser().setSigningKey(secretKey).parseClaimsJws(token);
-            return !claimsJws.getBody().getExpiration().before(new Date());
+            Claims claims = Jwts.parser().setSigningKey(secretKey).parseClaimsJws(token).getBody();
+            return new VerifiedToken(claims.getSubject(), claims.get(USER_ID_CLAIM, Long.class),
+                    claims.get(ROLE_CLAIM, String.class), claims.getExpiration().getTime());
         } catch (JwtException | IllegalArgumentException e) {
             throw new JwtAuthenticationException("JWT token is expired or invalid", HttpStatus.UNAUTHORIZED);
         }
     }
 
+    private void cache(String digest, VerifiedToken verified, long now) {
+        if (verifiedCacheMaxSize <= 0) {
+            return;
+        }
+        if (verifiedTokens.size() >= verifiedCacheMaxSize) {
+            verifiedTokens.values().removeIf(entry -> entry.isExpired(now));
+            Iterator<String> iterator = verifiedTokens.keySet().iterator();
+            while (verifiedTokens.size() >= verifiedCacheMaxSize && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+            }
+        }
+        verifiedTokens.put(digest, verified);
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     public Authentication getAuthentication(String token) {
-        UserDetails userDetails = userDetailsService.loadUserByUsername(getUsername(token));
-        return new UsernamePasswordAuthenticationToken(userDetails, "", userDetails.getAuthorities());
+        return getAuthentication(verify(token));
+    }
+
+    public Authentication getAuthentication(VerifiedToken token) {
+        if (userDenylist.isDenied(token.getUserId())) {
+            throw new JwtAuthenticationException("User is banned", HttpStatus.UNAUTHORIZED);
+        }
+        UserDetails userDetails = stateless && token.getUserId() != null
+                ? fromClaims(token)
+                : userDetailsService.loadUserByUsername(token.getUsername());
+        UsernamePasswordAuthenticationToken authentication =
+                new UsernamePasswordAuthenticationToken(userDetails, "", userDetails.getAuthorities());
+        authentication.setDetails(token);
+        return authentication;
+    }
+
+    private UserDetails fromClaims(VerifiedToken token) {
+        try {
+            return new SecurityUser(token.getUserId(), token.getUsername(), null,
+                    Role.valueOf(String.valueOf(token.getRole())), Status.ACTIVE);
+        } catch (IllegalArgumentException e) {
+            throw new JwtAuthenticationException("JWT token has no valid role", HttpStatus.UNAUTHORIZED);
+        }
     }
 
     public String getUsername(String token) {
-        return Jwts.parser().setSigningKey(secretKey).parseClaimsJws(token).getBody().getSubject();
+        return verify(token).getUsername();
     }
 
     public String resolveToken(HttpServletRequest request) {
@@ -0,0 +1,62 @@
+package com.coffeesoft.taskmanager.security;
+
+import com.coffeesoft.taskmanager.exception.HashingRejectedException;
+import com.coffeesoft.taskmanager.metrics.QueryCounter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.Collection;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Bounded pool that runs password hashing off the servlet threads. When its queue is full new work is rejected
+ * instead of piling up, so a login burst cannot starve ordinary requests.
+ */
+@Component
+public class PasswordHashingExecutor {
+    private final ThreadPoolExecutor executor;
+    private final Timer queueWait;
+    private final Counter rejected;
+
+    public PasswordHashingExecutor(MeterRegistry meterRegistry,
+                                   @Value("${security.password-hashing.threads:0}") int threads,
+                                   @Value("${security.password-hashing.queue-capacity:64}") int queueCapacity) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+            Thread thread = new Thread(runnable, "password-hashing-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+        queueWait = Timer.builder("security.password.hashing.queue.wait").register(meterRegistry);
+        rejected = Counter.builder("security.password.hashing.rejected").register(meterRegistry);
+        Gauge.builder("security.password.hashing.queue.depth", executor.getQueue(), Collection::size)
+                .register(meterRegistry);
+    }
+
+    public <T> CompletableFuture<T> submit(Supplier<T> work) throws HashingRejectedException {
+        long submittedAt = System.nanoTime();
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                queueWait.record(System.nanoTime() - submittedAt, TimeUnit.NANOSECONDS);
+                return work.get();
+            }, command -> executor.execute(QueryCounter.propagate(command)));
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new HashingRejectedException(executor.getQueue().size());
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,105 @@
+package com.coffeesoft.taskmanager.security;
+
+import com.coffeesoft.taskmanager.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded, time-limited cache of authenticated principals keyed by username, shared by the JWT filter and
+ * the controllers so that an authenticated request does not look the user up more than once.
+ */
+@Component
+public class PrincipalCache {
+    private static final String CACHE_NAME = "principals";
+    private final UserRepository userRepository;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private final long ttlMillis;
+    private final int maxSize;
+    private final Counter hits;
+    private final Counter misses;
+
+    public PrincipalCache(UserRepository userRepository, MeterRegistry meterRegistry,
+                          @Value("${security.principal-cache.ttl-millis:60000}") long ttlMillis,
+                          @Value("${security.principal-cache.max-size:10000}") int maxSize) {
+        this.userRepository = userRepository;
+        this.ttlMillis = ttlMillis;
+        this.maxSize = maxSize;
+        hits = Counter.builder("cache.gets").tag("cache", CACHE_NAME).tag("result", "hit")
+                .register(meterRegistry);
+        misses = Counter.builder("cache.gets").tag("cache", CACHE_NAME).tag("result", "miss")
+                .register(meterRegistry);
+        Gauge.builder("cache.size", entries, Map::size).tag("cache", CACHE_NAME).register(meterRegistry);
+    }
+
+    public Optional<SecurityUser> get(String username) {
+        long now = System.currentTimeMillis();
+        Entry entry = entries.get(username);
+        if (entry != null && entry.expiresAt > now) {
+            hits.increment();
+            return Optional.of(entry.user);
+        }
+        misses.increment();
+        long loadedGeneration = generation.get();
+        Optional<SecurityUser> user = userRepository.findCredentialsByUsername(username)
+                .map(SecurityUser::fromCredentials);
+        if (user.isPresent() && loadedGeneration == generation.get()) {
+            put(user.get(), now);
+        }
+        return user;
+    }
+
+    public void invalidate(Long userId) {
+        evict(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict(userId);
+                }
+            });
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private void evict(Long userId) {
+        generation.incrementAndGet();
+        entries.values().removeIf(entry -> entry.user.getId().equals(userId));
+    }
+
+    private void put(SecurityUser user, long now) {
+        if (entries.size() >= maxSize) {
+            entries.values().removeIf(entry -> entry.expiresAt <= now);
+            Iterator<String> iterator = entries.keySet().iterator();
+            while (entries.size() >= maxSize && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+            }
+        }
+        entries.put(user.getUsername(), new Entry(user, now + ttlMillis));
+    }
+
+    private static final class Entry {
+        private final SecurityUser user;
+        private final long expiresAt;
+
+        private Entry(SecurityUser user, long expiresAt) {
+            this.user = user;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -1,27 +1,28 @@
 package com.coffeesoft.taskmanager.security;
 
+import com.coffeesoft.taskmanager.model.Role;
 import com.coffeesoft.taskmanager.model.Status;
 import com.coffeesoft.taskmanager.model.User;
+import com.coffeesoft.taskmanager.model.UserCredentials;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
 import java.util.Collection;
-import java.util.List;
 
 @Data
 @AllArgsConstructor
 public class SecurityUser implements UserDetails {
+    private final Long id;
     private final String username;
     private final String password;
-    private final List<SimpleGrantedAuthority> authorities;
-    private final boolean isActive;
+    private final Role role;
+    private final Status status;
 
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
-        return authorities;
+        return role.getAuthorities();
     }
 
     @Override
@@ -36,22 +37,26 @@ public class SecurityUser implements UserDetails {
 
     @Override
     public boolean isAccountNonExpired() {
-        return isActive;
+        return isActive();
     }
 
     @Override
     public boolean isAccountNonLocked() {
-        return isActive;
+        return isActive();
     }
 
     @Override
     public boolean isCredentialsNonExpired() {
-        return isActive;
+        return isActive();
     }
 
     @Override
     public boolean isEnabled() {
-        return isActive;
+        return isActive();
+    }
+
+    public boolean isActive() {
+        return Status.ACTIVE.equals(status);
     }
 
     public static UserDetails fromUser(User user) {
@@ -64,4 +69,9 @@ public class SecurityUser implements UserDetails {
                 user.getRole().getAuthorities()
         );
     }
+
+    public static SecurityUser fromCredentials(UserCredentials credentials) {
+        return new SecurityUser(credentials.getId(), credentials.getUsername(), credentials.getPassword(),
+                credentials.getRole(), credentials.getStatus());
+    }
 }
@@ -0,0 +1,69 @@
+package com.coffeesoft.taskmanager.security;
+
+import com.coffeesoft.taskmanager.model.Status;
+import com.coffeesoft.taskmanager.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory set of user ids whose tokens must be rejected even though they are still signed and unexpired.
+ * Changes made inside a transaction are applied once it commits, so a rolled back ban or delete leaves the set as
+ * it was.
+ */
+@Component
+public class UserDenylist {
+    private static final Logger logger = LoggerFactory.getLogger(UserDenylist.class);
+    private final UserRepository userRepository;
+    private final Set<Long> deniedUserIds = ConcurrentHashMap.newKeySet();
+
+    public UserDenylist(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        deniedUserIds.addAll(userRepository.findIdsByStatus(Status.BANNED));
+        logger.info("Loaded {} banned users into the denylist", deniedUserIds.size());
+    }
+
+    public void update(Long userId, Status status) {
+        afterCommit(() -> {
+            if (status == Status.BANNED) {
+                deniedUserIds.add(userId);
+            } else {
+                deniedUserIds.remove(userId);
+            }
+        });
+    }
+
+    public void deny(Long userId) {
+        afterCommit(() -> deniedUserIds.add(userId));
+    }
+
+    public boolean isDenied(Long userId) {
+        return userId != null && deniedUserIds.contains(userId);
+    }
+
+    private void afterCommit(Runnable change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            change.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    change.run();
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,24 @@
+package com.coffeesoft.taskmanager.security;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Claims of a JWT whose signature and expiry have already been checked.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class VerifiedToken {
+    public static final String REQUEST_ATTRIBUTE = VerifiedToken.class.getName();
+
+    private final String username;
+    private final Long userId;
+    private final String role;
+    private final long expiresAtMillis;
+
+    public boolean isExpired(long nowMillis) {
+        return expiresAtMillis <= nowMillis;
+    }
+}
@@ -0,0 +1,34 @@
+package com.coffeesoft.taskmanager.security;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.ServletRequestBindingException;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+/**
+ * Hands controllers the {@link VerifiedToken} that {@link JwtTokenFilter} already checked for this request, so they
+ * neither take the raw Authorization header nor verify the token a second time.
+ */
+@Component
+public class VerifiedTokenArgumentResolver implements HandlerMethodArgumentResolver {
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return VerifiedToken.class.equals(parameter.getParameterType());
+    }
+
+    @Override
+    public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
+                                  NativeWebRequest webRequest, WebDataBinderFactory binderFactory)
+            throws ServletRequestBindingException {
+        Object token = webRequest.getAttribute(VerifiedToken.REQUEST_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (!(token instanceof VerifiedToken)) {
+            throw new ServletRequestBindingException("Missing verified token for parameter " + parameter.getParameterName());
+        }
+        return token;
+    }
+}
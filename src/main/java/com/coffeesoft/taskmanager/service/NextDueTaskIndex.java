@@ -0,0 +1,154 @@
+package com.coffeesoft.taskmanager.service;
+
+import com.coffeesoft.taskmanager.event.TaskEvent;
+import com.coffeesoft.taskmanager.model.Task;
+import com.coffeesoft.taskmanager.model.TaskSchedule;
+import com.coffeesoft.taskmanager.repository.TaskRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.transaction.Transactional;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.stream.Stream;
+
+/**
+ * Active tasks of each user ordered by next fire time, so the next due task is found without a query.
+ * Kept in step with task events and rebuilt from a streaming scan at startup; until the scan is done
+ * {@link #isReady()} is false and callers fall back to the database. Task events are only seen by the node that
+ * made the change, so the index is only correct when a single node writes tasks: it is off unless
+ * {@code task.next-due-index.enabled} is set, and stays off with scheduler sharding.
+ */
+@Component
+public class NextDueTaskIndex {
+    private static final Logger logger = LoggerFactory.getLogger(NextDueTaskIndex.class);
+    private static final Comparator<Entry> ORDER = Comparator.comparing((Entry entry) -> entry.time)
+            .thenComparingLong(entry -> entry.taskId);
+    private final TaskRepository taskRepository;
+    private final boolean enabled;
+    private final Map<Long, NavigableSet<Entry>> byUser = new ConcurrentHashMap<>();
+    private final Map<Long, Entry> byTask = new ConcurrentHashMap<>();
+    private final Set<Long> changedDuringRebuild = ConcurrentHashMap.newKeySet();
+    private volatile boolean ready;
+
+    public NextDueTaskIndex(TaskRepository taskRepository,
+                            @Value("${task.next-due-index.enabled:false}") boolean enabled,
+                            @Value("${task.scheduler.sharding.enabled:false}") boolean sharded) {
+        this.taskRepository = taskRepository;
+        this.enabled = enabled && !sharded;
+        if (enabled && sharded) {
+            logger.warn("Next due task index ignored with scheduler sharding, other nodes' changes would not reach it");
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void rebuild() {
+        if (!enabled) {
+            logger.info("Next due task index disabled, next due tasks are queried");
+            return;
+        }
+        ready = false;
+        byUser.clear();
+        byTask.clear();
+        try (Stream<TaskSchedule> schedules = taskRepository.streamActiveTaskSchedules()) {
+            schedules.filter(schedule -> !changedDuringRebuild.contains(schedule.getId()))
+                    .forEach(schedule -> put(schedule.getId(), schedule.getUserId(), schedule.getTime()));
+        }
+        ready = true;
+        changedDuringRebuild.clear();
+        logger.info("Next due task index built with {} active tasks", byTask.size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTaskEvent(TaskEvent event) {
+        if (!enabled) {
+            return;
+        }
+        if (!ready) {
+            changedDuringRebuild.add(event.getTaskId());
+        }
+        Task task = event.getTask();
+        if (event.getType() == TaskEvent.Type.DELETED || !Boolean.TRUE.equals(task.getActive())) {
+            remove(event.getTaskId());
+        } else {
+            put(event.getTaskId(), event.getUserId(), task.getTime());
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Returns the id of the user's active task with the earliest time strictly after {@code time}.
+     */
+    public Optional<Long> findNextTaskIdAfter(LocalDateTime time, Long userId) {
+        NavigableSet<Entry> entries = byUser.get(userId);
+        if (entries == null) {
+            return Optional.empty();
+        }
+        Entry next = entries.higher(new Entry(userId, Long.MAX_VALUE, time));
+        return next != null ? Optional.of(next.taskId) : Optional.empty();
+    }
+
+    public int size() {
+        return byTask.size();
+    }
+
+    void put(Long taskId, Long userId, LocalDateTime time) {
+        if (userId == null || time == null) {
+            remove(taskId);
+            return;
+        }
+        Entry entry = new Entry(userId, taskId, time);
+        byTask.compute(taskId, (id, previous) -> {
+            if (previous != null) {
+                unlink(previous);
+            }
+            byUser.compute(userId, (user, entries) -> {
+                NavigableSet<Entry> userEntries = entries != null ? entries : new ConcurrentSkipListSet<>(ORDER);
+                userEntries.add(entry);
+                return userEntries;
+            });
+            return entry;
+        });
+    }
+
+    void remove(Long taskId) {
+        byTask.computeIfPresent(taskId, (id, previous) -> {
+            unlink(previous);
+            return null;
+        });
+    }
+
+    private void unlink(Entry entry) {
+        byUser.computeIfPresent(entry.userId, (user, entries) -> {
+            entries.remove(entry);
+            return entries.isEmpty() ? null : entries;
+        });
+    }
+
+    private static final class Entry {
+        private final Long userId;
+        private final long taskId;
+        private final LocalDateTime time;
+
+        private Entry(Long userId, long taskId, LocalDateTime time) {
+            this.userId = userId;
+            this.taskId = taskId;
+            this.time = time;
+        }
+    }
+}
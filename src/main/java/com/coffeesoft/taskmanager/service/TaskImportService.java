@@ -0,0 +1,9 @@
+package com.coffeesoft.taskmanager.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+public interface TaskImportService {
+    void importTasks(InputStream input, OutputStream output, Long userId) throws IOException;
+}
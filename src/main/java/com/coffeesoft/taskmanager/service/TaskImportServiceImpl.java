@@ -0,0 +1,117 @@
+package com.coffeesoft.taskmanager.service;
+
+import com.coffeesoft.taskmanager.model.BulkTaskResult;
+import com.coffeesoft.taskmanager.model.Task;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionException;
+
+import javax.persistence.PersistenceException;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@Service
+public class TaskImportServiceImpl implements TaskImportService {
+    private final TaskService taskService;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final int chunkSize;
+
+    public TaskImportServiceImpl(TaskService taskService, ObjectMapper objectMapper, Validator validator,
+                                 @Value("${task.import.chunk-size:500}") int chunkSize) {
+        this.taskService = taskService;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public void importTasks(InputStream input, OutputStream output, Long userId) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(input);
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(output)) {
+            generator.writeStartArray();
+            List<Task> chunk = new ArrayList<>(chunkSize);
+            List<Long> indexes = new ArrayList<>(chunkSize);
+            long index = 0;
+            try {
+                JsonToken token = parser.nextToken();
+                boolean array = token == JsonToken.START_ARRAY;
+                if (array) {
+                    token = parser.nextToken();
+                }
+                while (token != null && token != JsonToken.END_ARRAY) {
+                    JsonNode node = parser.readValueAsTree();
+                    String error = null;
+                    try {
+                        Task task = objectMapper.treeToValue(node, Task.class);
+                        error = validate(task);
+                        if (error == null) {
+                            chunk.add(task);
+                            indexes.add(index);
+                        }
+                    } catch (JsonProcessingException e) {
+                        error = e.getMessage();
+                    }
+                    if (error != null) {
+                        generator.writeObject(BulkTaskResult.rejected(index, error));
+                    }
+                    if (chunk.size() == chunkSize) {
+                        flush(chunk, indexes, userId, generator);
+                    }
+                    index++;
+                    token = parser.nextToken();
+                }
+            } catch (JsonProcessingException e) {
+                generator.writeObject(BulkTaskResult.rejected(index, "Malformed JSON: " + e.getOriginalMessage()));
+            }
+            flush(chunk, indexes, userId, generator);
+            generator.writeEndArray();
+        }
+    }
+
+    private String validate(Task task) {
+        Set<ConstraintViolation<Task>> violations = validator.validate(task);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining(", "));
+    }
+
+    private void flush(List<Task> chunk, List<Long> indexes, Long userId, JsonGenerator generator) throws IOException {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        try {
+            List<Task> created = taskService.createTasks(chunk, userId);
+            for (int i = 0; i < created.size(); i++) {
+                generator.writeObject(BulkTaskResult.created(indexes.get(i), created.get(i).getId()));
+            }
+        } catch (DataAccessException | PersistenceException | TransactionException e) {
+            String error = NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+            for (Long index : indexes) {
+                generator.writeObject(BulkTaskResult.rejected(index, error));
+            }
+        }
+        generator.flush();
+        chunk.clear();
+        indexes.clear();
+    }
+}
@@ -0,0 +1,174 @@
+package com.coffeesoft.taskmanager.service;
+
+import com.coffeesoft.taskmanager.model.Task;
+import com.coffeesoft.taskmanager.model.TaskOccurrence;
+import com.coffeesoft.taskmanager.model.TaskState;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * Expands tasks into the occurrences that overlap {@code [from, to)}, ordered by start, with a k-way merge of
+ * one cursor per task. Follows the transitions of {@link Task#setTaskStateAndNextTimeAfter}: a cycle starts at
+ * {@code startTime} with an instant START, works for {@code workInterval} minutes and, if the task sleeps, sleeps
+ * for {@code sleepInterval} minutes. Repeating tasks start a new cycle when the previous one ends, as long as it
+ * starts before {@code endTime}; other tasks have a single cycle. Cursors jump straight to the cycle containing
+ * {@code from} and keep epoch seconds, so only the emitted occurrences are allocated.
+ */
+public class TaskOccurrenceIterator implements Iterator<TaskOccurrence> {
+    private static final TaskState[] PHASES = {TaskState.START, TaskState.WORK, TaskState.SLEEP};
+    private final PriorityQueue<Cursor> cursors;
+    private int remaining;
+
+    public TaskOccurrenceIterator(Collection<Task> tasks, LocalDateTime from, LocalDateTime to, int limit) {
+        long fromEpoch = from.toEpochSecond(ZoneOffset.UTC);
+        long toEpoch = to.toEpochSecond(ZoneOffset.UTC);
+        cursors = new PriorityQueue<>(Math.max(1, tasks.size()));
+        for (Task task : tasks) {
+            if (Boolean.TRUE.equals(task.getActive())) {
+                Cursor cursor = new Cursor(task, fromEpoch, toEpoch);
+                if (cursor.advance()) {
+                    cursors.add(cursor);
+                }
+            }
+        }
+        remaining = limit;
+    }
+
+    /**
+     * Counts the occurrences overlapping {@code [from, to)} without ordering or allocating them, stopping at
+     * {@code limit + 1}, so a caller can reject a window that would be cut off before streaming any of it.
+     */
+    public static int count(Collection<Task> tasks, LocalDateTime from, LocalDateTime to, int limit) {
+        long fromEpoch = from.toEpochSecond(ZoneOffset.UTC);
+        long toEpoch = to.toEpochSecond(ZoneOffset.UTC);
+        int count = 0;
+        for (Task task : tasks) {
+            if (Boolean.TRUE.equals(task.getActive())) {
+                Cursor cursor = new Cursor(task, fromEpoch, toEpoch);
+                while (count <= limit && cursor.advance()) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return remaining > 0 && !cursors.isEmpty();
+    }
+
+    @Override
+    public TaskOccurrence next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Cursor cursor = cursors.poll();
+        TaskOccurrence occurrence = new TaskOccurrence(cursor.taskId, PHASES[cursor.phase],
+                cursor.dateTime(cursor.occurrenceStart), cursor.dateTime(cursor.occurrenceEnd));
+        remaining--;
+        if (cursor.advance()) {
+            cursors.add(cursor);
+        }
+        return occurrence;
+    }
+
+    private static final class Cursor implements Comparable<Cursor> {
+        private final long taskId;
+        private final long work;
+        private final long sleep;
+        private final long period;
+        private final long lastCycleStart;
+        private final long from;
+        private final long to;
+        private final int lastPhase;
+        private long cycleStart;
+        private int phase;
+        private long occurrenceStart;
+        private long occurrenceEnd;
+        private long lastEpoch = Long.MIN_VALUE;
+        private LocalDateTime lastDateTime;
+        private long previousEpoch = Long.MIN_VALUE;
+        private LocalDateTime previousDateTime;
+
+        private Cursor(Task task, long from, long to) {
+            long start = task.getStartTime().toEpochSecond(ZoneOffset.UTC);
+            boolean sleeps = Boolean.TRUE.equals(task.getSleep()) && task.getSleepInterval() != null;
+            this.taskId = task.getId();
+            this.work = Math.max(0, task.getWorkInterval()) * 60L;
+            this.sleep = sleeps ? Math.max(0, task.getSleepInterval()) * 60L : 0;
+            this.period = Math.max(1, work + sleep);
+            this.lastCycleStart = Boolean.TRUE.equals(task.getRepeat()) && work + sleep > 0
+                    ? task.getEndTime().toEpochSecond(ZoneOffset.UTC) - 1 : start;
+            this.from = from;
+            this.to = to;
+            this.lastPhase = sleeps ? 2 : 1;
+            this.cycleStart = start + Math.max(0, Math.floorDiv(from - start, period)) * period;
+            this.phase = -1;
+        }
+
+        @Override
+        public int compareTo(Cursor other) {
+            if (occurrenceStart != other.occurrenceStart) {
+                return occurrenceStart < other.occurrenceStart ? -1 : 1;
+            }
+            if (taskId != other.taskId) {
+                return taskId < other.taskId ? -1 : 1;
+            }
+            return Integer.compare(phase, other.phase);
+        }
+
+        /**
+         * Consecutive occurrences share boundaries, so the last two conversions are kept for reuse.
+         */
+        private LocalDateTime dateTime(long epochSecond) {
+            if (epochSecond == lastEpoch) {
+                return lastDateTime;
+            }
+            if (epochSecond == previousEpoch) {
+                return previousDateTime;
+            }
+            previousEpoch = lastEpoch;
+            previousDateTime = lastDateTime;
+            lastEpoch = epochSecond;
+            lastDateTime = LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+            return lastDateTime;
+        }
+
+        /**
+         * Moves to the next occurrence overlapping the window, returning false once there is none.
+         */
+        private boolean advance() {
+            while (true) {
+                if (++phase > lastPhase) {
+                    phase = 0;
+                    cycleStart += period;
+                }
+                if (cycleStart > lastCycleStart || cycleStart >= to) {
+                    return false;
+                }
+                if (phase == 0) {
+                    occurrenceStart = cycleStart;
+                    occurrenceEnd = cycleStart;
+                } else if (phase == 1) {
+                    occurrenceStart = cycleStart;
+                    occurrenceEnd = cycleStart + work;
+                } else {
+                    occurrenceStart = cycleStart + work;
+                    occurrenceEnd = cycleStart + work + sleep;
+                }
+                if (occurrenceStart >= to) {
+                    return false;
+                }
+                if (occurrenceEnd > from || occurrenceStart >= from) {
+                    return true;
+                }
+            }
+        }
+    }
+}
@@ -1,19 +1,47 @@
 package com.coffeesoft.taskmanager.service;
 
+import com.coffeesoft.taskmanager.exception.InvalidCursorException;
+import com.coffeesoft.taskmanager.exception.InvalidOccurrenceWindowException;
+import com.coffeesoft.taskmanager.exception.TooManyOccurrencesException;
 import com.coffeesoft.taskmanager.exception.TaskByUserNotExistException;
+import com.coffeesoft.taskmanager.exception.TaskModifiedException;
 import com.coffeesoft.taskmanager.exception.TaskNotExistException;
 import com.coffeesoft.taskmanager.model.Task;
+import com.coffeesoft.taskmanager.model.TaskFilter;
+import com.coffeesoft.taskmanager.model.TaskOccurrence;
+import com.coffeesoft.taskmanager.model.TaskPage;
+import com.coffeesoft.taskmanager.model.TaskSchedule;
+import com.coffeesoft.taskmanager.model.TaskVersion;
+import com.coffeesoft.taskmanager.model.VersionedTasks;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 public interface TaskService {
     List<Task> getTasks();
+    void forEachTask(Consumer<Task> consumer);
     List<Task> getTasksByUserId(Long userId);
+    VersionedTasks getVersionedTasksByUserId(Long userId);
+    long getTasksVersionByUserId(Long userId);
+    TaskPage getTaskPageByUserId(Long userId, TaskFilter filter, String cursor, int limit) throws InvalidCursorException;
+    Iterator<TaskOccurrence> getOccurrencesByUserId(Long userId, LocalDateTime from, LocalDateTime to)
+            throws InvalidOccurrenceWindowException, TooManyOccurrencesException;
     Task getTaskById(Long id) throws TaskNotExistException;
     Task getTaskByTaskIdAndUserId(Long taskId, Long userId) throws TaskByUserNotExistException;
+    TaskVersion getTaskVersionByTaskIdAndUserId(Long taskId, Long userId) throws TaskByUserNotExistException;
     Task getNextOrCurrentTaskAfterTimeByUserId(LocalDateTime time, Long userId) throws TaskByUserNotExistException;
+    List<TaskSchedule> getActiveTaskSchedules(int shardCount, Collection<Integer> shards);
+    List<Task> getOverdueTasks(LocalDateTime now, Long afterId, int shardCount, Collection<Integer> shards, int limit);
     Task createTask(Task task);
+    List<Task> createTasks(List<Task> tasks, Long userId);
     Task updateTask(Task task);
+    Task updateTaskIfUnmodified(Task task) throws TaskModifiedException;
+    Task patchTask(Long taskId, Long userId, Map<String, Object> changes, Long expectedVersion)
+            throws TaskByUserNotExistException, TaskModifiedException;
+    void updateTaskState(Task task);
     void deleteTaskById(Long id);
 }
@@ -1,26 +1,77 @@
 package com.coffeesoft.taskmanager.service;
 
-import com.coffeesoft.taskmanager.exception.NotExistException;
+import com.coffeesoft.taskmanager.event.TaskEvent;
+import com.coffeesoft.taskmanager.exception.InvalidCursorException;
+import com.coffeesoft.taskmanager.exception.InvalidOccurrenceWindowException;
+import com.coffeesoft.taskmanager.exception.TooManyOccurrencesException;
 import com.coffeesoft.taskmanager.exception.TaskByUserNotExistException;
+import com.coffeesoft.taskmanager.exception.TaskModifiedException;
 import com.coffeesoft.taskmanager.exception.TaskNotExistException;
 import com.coffeesoft.taskmanager.model.EntityField;
 import com.coffeesoft.taskmanager.model.Task;
+import com.coffeesoft.taskmanager.model.TaskCursor;
+import com.coffeesoft.taskmanager.model.TaskFilter;
+import com.coffeesoft.taskmanager.model.TaskOccurrence;
+import com.coffeesoft.taskmanager.model.TaskPage;
+import com.coffeesoft.taskmanager.model.TaskSchedule;
 import com.coffeesoft.taskmanager.model.TaskState;
+import com.coffeesoft.taskmanager.model.TaskVersion;
+import com.coffeesoft.taskmanager.model.User;
+import com.coffeesoft.taskmanager.model.VersionedTasks;
 import com.coffeesoft.taskmanager.repository.TaskRepository;
+import com.coffeesoft.taskmanager.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import javax.transaction.Transactional;
+import javax.persistence.EntityManager;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaUpdate;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.time.Clock;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 @Transactional
 public class TaskServiceImpl implements TaskService {
+    private static final Set<String> TIMING_FIELDS = Set.of("startTime", "endTime", "sleepInterval", "workInterval",
+            "active", "repeat", "sleep");
     private final TaskRepository taskRepository;
+    private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final EntityManager entityManager;
+    private final NextDueTaskIndex nextDueTaskIndex;
+    private final int maxPageSize;
+    private final int maxOccurrenceWindowDays;
+    private final int maxOccurrences;
 
-    public TaskServiceImpl(TaskRepository taskRepository) {
+    public TaskServiceImpl(TaskRepository taskRepository, UserRepository userRepository,
+                           ApplicationEventPublisher eventPublisher, EntityManager entityManager,
+                           NextDueTaskIndex nextDueTaskIndex, @Value("${task.page.max-size:200}") int maxPageSize,
+                           @Value("${task.occurrences.max-window-days:31}") int maxOccurrenceWindowDays,
+                           @Value("${task.occurrences.max-count:100000}") int maxOccurrences) {
         this.taskRepository = taskRepository;
+        this.userRepository = userRepository;
+        this.eventPublisher = eventPublisher;
+        this.entityManager = entityManager;
+        this.nextDueTaskIndex = nextDueTaskIndex;
+        this.maxPageSize = maxPageSize;
+        this.maxOccurrenceWindowDays = maxOccurrenceWindowDays;
+        this.maxOccurrences = maxOccurrences;
     }
 
 
@@ -29,11 +80,64 @@ public class TaskServiceImpl implements TaskService {
         return taskRepository.findAll();
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachTask(Consumer<Task> consumer) {
+        try (Stream<Task> tasks = taskRepository.streamAll()) {
+            Iterator<Task> iterator = tasks.iterator();
+            for (int count = 1; iterator.hasNext(); count++) {
+                Task task = iterator.next();
+                consumer.accept(task);
+                entityManager.detach(task);
+                if (count % TaskRepository.STREAM_FETCH_SIZE == 0) {
+                    entityManager.clear();
+                }
+            }
+        }
+    }
+
     @Override
     public List<Task> getTasksByUserId(Long userId) {
         return taskRepository.findByUserId(userId);
     }
 
+    @Override
+    public VersionedTasks getVersionedTasksByUserId(Long userId) {
+        return taskRepository.findVersionedByUserId(userId);
+    }
+
+    @Override
+    public long getTasksVersionByUserId(Long userId) {
+        return userRepository.findTasksVersionById(userId).orElse(0L);
+    }
+
+    @Override
+    public TaskPage getTaskPageByUserId(Long userId, TaskFilter filter, String cursor, int limit)
+            throws InvalidCursorException {
+        int pageSize = Math.max(1, Math.min(limit, maxPageSize));
+        TaskCursor after = cursor == null || cursor.isEmpty() ? null : TaskCursor.decode(cursor);
+        List<Task> tasks = taskRepository.findPageByUserId(userId, filter, after, pageSize + 1);
+        String nextCursor = null;
+        if (tasks.size() > pageSize) {
+            tasks = tasks.subList(0, pageSize);
+            nextCursor = TaskCursor.after(tasks.get(pageSize - 1)).encode();
+        }
+        return new TaskPage(tasks, nextCursor);
+    }
+
+    @Override
+    public Iterator<TaskOccurrence> getOccurrencesByUserId(Long userId, LocalDateTime from, LocalDateTime to)
+            throws InvalidOccurrenceWindowException, TooManyOccurrencesException {
+        if (from == null || to == null || !from.isBefore(to) || to.isAfter(from.plusDays(maxOccurrenceWindowDays))) {
+            throw new InvalidOccurrenceWindowException(from, to);
+        }
+        List<Task> tasks = taskRepository.findByUserIdAndActiveTrue(userId);
+        if (TaskOccurrenceIterator.count(tasks, from, to, maxOccurrences) > maxOccurrences) {
+            throw new TooManyOccurrencesException(from, to, maxOccurrences);
+        }
+        return new TaskOccurrenceIterator(tasks, from, to, maxOccurrences);
+    }
+
     @Override
     public Task getTaskById(Long id) throws TaskNotExistException {
         final String fieldName = "id";
@@ -48,29 +152,181 @@ public class TaskServiceImpl implements TaskService {
     }
 
     @Override
-    public Task getNextOrCurrentTaskAfterTimeByUserId(LocalDateTime time, Long userId) throws TaskByUserNotExistException {
-        return taskRepository.findNextOrCurrentTaskAfterTimeByUserId(time, userId).orElseThrow(() ->
+    public TaskVersion getTaskVersionByTaskIdAndUserId(Long taskId, Long userId) throws TaskByUserNotExistException {
+        return taskRepository.findVersionByIdAndUserId(taskId, userId).orElseThrow(() ->
                 new TaskByUserNotExistException(userId));
     }
 
+    @Override
+    public Task getNextOrCurrentTaskAfterTimeByUserId(LocalDateTime time, Long userId) throws TaskByUserNotExistException {
+        Optional<Task> task = nextDueTaskIndex.isReady()
+                ? nextDueTaskIndex.findNextTaskIdAfter(time, userId).flatMap(taskRepository::findById)
+                        .filter(indexed -> isNextDueCandidate(indexed, time, userId))
+                : Optional.empty();
+        if (task.isEmpty()) {
+            task = taskRepository.findNextOrCurrentTaskAfterTimeByUserId(time, userId);
+        }
+        return task.orElseThrow(() -> new TaskByUserNotExistException(userId));
+    }
+
+    /**
+     * The index can lag behind the table, so the row it points to must still match the query it stands in for.
+     */
+    private static boolean isNextDueCandidate(Task task, LocalDateTime time, Long userId) {
+        return task.getUser() != null && userId.equals(task.getUser().getId())
+                && Boolean.TRUE.equals(task.getActive())
+                && task.getTime() != null && task.getTime().isAfter(time);
+    }
+
+    @Override
+    public List<TaskSchedule> getActiveTaskSchedules(int shardCount, Collection<Integer> shards) {
+        return taskRepository.findActiveTaskSchedules(shardCount, shards);
+    }
+
+    @Override
+    public List<Task> getOverdueTasks(LocalDateTime now, Long afterId, int shardCount, Collection<Integer> shards,
+                                      int limit) {
+        return taskRepository.findOverdue(now, afterId, shardCount, shards, PageRequest.of(0, limit));
+    }
+
     @Override
     public Task createTask(Task task) {
+        applyDefaults(task);
+        Task taskDb = taskRepository.save(task);
+        incrementTasksVersion(taskDb.getUser());
+        eventPublisher.publishEvent(TaskEvent.created(taskDb));
+        return taskDb;
+    }
+
+    @Override
+    public List<Task> createTasks(List<Task> tasks, Long userId) {
+        User user = entityManager.getReference(User.class, userId);
+        for (Task task : tasks) {
+            task.setUser(user);
+            applyDefaults(task);
+            entityManager.persist(task);
+        }
+        entityManager.flush();
+        entityManager.clear();
+        userRepository.incrementTasksVersion(userId);
+        tasks.forEach(task -> eventPublisher.publishEvent(TaskEvent.created(task)));
+        return tasks;
+    }
+
+    private void applyDefaults(Task task) {
         task.setTime(task.getStartTime());
         task.setTaskState(TaskState.DISABLE);
         if (task.getWorkInterval() == null) {
             task.setWorkInterval((int) (task.getEndTime().toEpochSecond(ZoneOffset.UTC) -
                     task.getStartTime().toEpochSecond(ZoneOffset.UTC)));
         }
-        return taskRepository.save(task);
     }
 
     @Override
     public Task updateTask(Task task) {
-        return taskRepository.save(task);
+        boolean retimed = task.hasTimingChangedSinceLoad();
+        Task taskDb = taskRepository.save(task);
+        return updated(taskDb, retimed);
+    }
+
+    @Override
+    @Transactional(rollbackFor = TaskModifiedException.class)
+    public Task updateTaskIfUnmodified(Task task) throws TaskModifiedException {
+        boolean retimed = task.hasTimingChangedSinceLoad();
+        Task taskDb;
+        try {
+            taskDb = taskRepository.saveAndFlush(task);
+        } catch (OptimisticLockingFailureException e) {
+            throw new TaskModifiedException(task.getId(), e);
+        }
+        return updated(taskDb, retimed);
+    }
+
+    private Task updated(Task taskDb, boolean retimed) {
+        if (retimed) {
+            reschedule(taskDb);
+        }
+        incrementTasksVersion(taskDb.getUser());
+        eventPublisher.publishEvent(retimed ? TaskEvent.rescheduled(taskDb) : TaskEvent.updated(taskDb));
+        return taskDb;
+    }
+
+    /**
+     * Moves the task to the state and time its new timing gives at this moment. The scheduler-owned columns are
+     * left out of entity updates, so they are written with their own targeted update.
+     */
+    private void reschedule(Task task) {
+        task.setTaskStateAndNextTimeAt(LocalDateTime.now(Clock.systemUTC()));
+        taskRepository.updateTaskStateAndTime(task.getId(), task.getTaskState(), task.getTime());
+        task.rememberTiming();
+    }
+
+    /**
+     * Writes only the given columns with one targeted update, checking {@code expectedVersion} in the same
+     * statement when it is set. Scheduler-owned columns are never part of the update, but a change to the
+     * task's timing rewrites them from the new timing afterwards.
+     */
+    @Override
+    public Task patchTask(Long taskId, Long userId, Map<String, Object> changes, Long expectedVersion)
+            throws TaskByUserNotExistException, TaskModifiedException {
+        if (!changes.isEmpty()) {
+            CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+            CriteriaUpdate<Task> update = builder.createCriteriaUpdate(Task.class);
+            Root<Task> root = update.from(Task.class);
+            changes.forEach(update::set);
+            update.set(root.<Long>get("version"), builder.sum(root.<Long>get("version"), 1L));
+            Predicate predicate = builder.and(builder.equal(root.get("id"), taskId),
+                    builder.equal(root.get("user").get("id"), userId));
+            if (expectedVersion != null) {
+                predicate = builder.and(predicate, builder.equal(root.get("version"), expectedVersion));
+            }
+            update.where(predicate);
+            if (entityManager.createQuery(update).executeUpdate() == 0) {
+                if (taskRepository.findVersionByIdAndUserId(taskId, userId).isPresent()) {
+                    throw new TaskModifiedException(taskId);
+                }
+                throw new TaskByUserNotExistException(userId);
+            }
+            userRepository.incrementTasksVersion(userId);
+            entityManager.clear();
+        }
+        Task taskDb = getTaskByTaskIdAndUserId(taskId, userId);
+        if (changes.isEmpty()) {
+            if (expectedVersion != null && expectedVersion != taskDb.getVersion()) {
+                throw new TaskModifiedException(taskId);
+            }
+            return taskDb;
+        }
+        boolean retimed = !Collections.disjoint(changes.keySet(), TIMING_FIELDS);
+        if (retimed) {
+            reschedule(taskDb);
+        }
+        eventPublisher.publishEvent(retimed ? TaskEvent.rescheduled(taskDb) : TaskEvent.updated(taskDb));
+        return taskDb;
+    }
+
+    @Override
+    public void updateTaskState(Task task) {
+        taskRepository.updateTaskStateAndTime(task.getId(), task.getTaskState(), task.getTime());
+        incrementTasksVersion(task.getUser());
+        eventPublisher.publishEvent(TaskEvent.transitioned(task));
     }
 
     @Override
     public void deleteTaskById(Long id) {
+        Long userId = taskRepository.findById(id)
+                .map(task -> task.getUser().getId())
+                .orElse(null);
         taskRepository.deleteById(id);
+        if (userId != null) {
+            userRepository.incrementTasksVersion(userId);
+        }
+        eventPublisher.publishEvent(TaskEvent.deleted(id, userId));
+    }
+
+    private void incrementTasksVersion(User user) {
+        if (user != null) {
+            userRepository.incrementTasksVersion(user.getId());
+        }
     }
 }
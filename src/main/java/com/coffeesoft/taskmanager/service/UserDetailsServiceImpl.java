@@ -1,26 +1,34 @@
 package com.coffeesoft.taskmanager.service;
 
-import com.coffeesoft.taskmanager.model.User;
-import com.coffeesoft.taskmanager.repository.UserRepository;
+import com.coffeesoft.taskmanager.security.PrincipalCache;
 import com.coffeesoft.taskmanager.security.SecurityUser;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
 @Service
-public class UserDetailsServiceImpl implements UserDetailsService {
-    private final UserRepository userRepository;
+public class UserDetailsServiceImpl implements UserDetailsService, UserDetailsPasswordService {
+    private final PrincipalCache principalCache;
+    private final UserService userService;
 
-    public UserDetailsServiceImpl(UserRepository userRepository) {
-        this.userRepository = userRepository;
+    public UserDetailsServiceImpl(PrincipalCache principalCache, UserService userService) {
+        this.principalCache = principalCache;
+        this.userService = userService;
     }
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        User user = userRepository.findByUsername(username).orElseThrow(() ->
+        return principalCache.get(username).orElseThrow(() ->
                 new UsernameNotFoundException("User doesn't exist"));
+    }
 
-        return SecurityUser.fromUser(user);
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        SecurityUser securityUser = (SecurityUser) user;
+        userService.updatePassword(securityUser.getId(), newPassword);
+        return new SecurityUser(securityUser.getId(), securityUser.getUsername(), newPassword,
+                securityUser.getRole(), securityUser.getStatus());
     }
 }
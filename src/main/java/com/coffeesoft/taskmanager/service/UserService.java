@@ -2,15 +2,23 @@ package com.coffeesoft.taskmanager.service;
 
 import com.coffeesoft.taskmanager.exception.UserExistException;
 import com.coffeesoft.taskmanager.exception.UserNotExistException;
+import com.coffeesoft.taskmanager.model.Status;
 import com.coffeesoft.taskmanager.model.User;
+import com.coffeesoft.taskmanager.model.UserVersion;
 
 import java.util.List;
 
 public interface UserService {
     List<User> getUsers();
     User getUserById(Long id) throws UserNotExistException;
+    User getUserWithTasksById(Long id) throws UserNotExistException;
     User getUserByUsername(String id) throws UserNotExistException;
+    User getUserWithTasksByUsername(String username) throws UserNotExistException;
+    UserVersion getUserVersionByUsername(String username) throws UserNotExistException;
+    User getUserReference(Long id);
     User createUser(User user) throws UserExistException;
     User updateUser(User user);
+    void updatePassword(Long id, String encodedPassword);
+    User updateUserStatus(Long id, Status status) throws UserNotExistException;
     void deleteUserById(Long id);
 }
@@ -3,8 +3,12 @@ package com.coffeesoft.taskmanager.service;
 import com.coffeesoft.taskmanager.exception.UserExistException;
 import com.coffeesoft.taskmanager.exception.UserNotExistException;
 import com.coffeesoft.taskmanager.model.EntityField;
+import com.coffeesoft.taskmanager.model.Status;
 import com.coffeesoft.taskmanager.model.User;
+import com.coffeesoft.taskmanager.model.UserVersion;
 import com.coffeesoft.taskmanager.repository.UserRepository;
+import com.coffeesoft.taskmanager.security.PrincipalCache;
+import com.coffeesoft.taskmanager.security.UserDenylist;
 import org.springframework.stereotype.Service;
 
 import javax.transaction.Transactional;
@@ -15,14 +19,18 @@ import java.util.Optional;
 @Transactional
 public class UserServiceImpl implements UserService {
     private final UserRepository userRepository;
+    private final PrincipalCache principalCache;
+    private final UserDenylist userDenylist;
 
-    public UserServiceImpl(UserRepository userRepository) {
+    public UserServiceImpl(UserRepository userRepository, PrincipalCache principalCache, UserDenylist userDenylist) {
         this.userRepository = userRepository;
+        this.principalCache = principalCache;
+        this.userDenylist = userDenylist;
     }
 
     @Override
     public List<User> getUsers() {
-        return userRepository.findAll();
+        return userRepository.findAllWithTasks();
     }
 
     @Override
@@ -32,6 +40,12 @@ public class UserServiceImpl implements UserService {
                 new UserNotExistException(new EntityField(id.toString(), fieldName)));
     }
 
+    @Override
+    public User getUserWithTasksById(Long id) throws UserNotExistException {
+        return userRepository.findWithTasksById(id).orElseThrow(() ->
+                new UserNotExistException(new EntityField(id.toString(), "id")));
+    }
+
     @Override
     public User getUserByUsername(String username) throws UserNotExistException {
         final String fieldName = "username";
@@ -39,6 +53,24 @@ public class UserServiceImpl implements UserService {
                 new UserNotExistException(new EntityField(username, fieldName)));
     }
 
+    @Override
+    public User getUserWithTasksByUsername(String username) throws UserNotExistException {
+        final String fieldName = "username";
+        return userRepository.findWithTasksByUsername(username).orElseThrow(() ->
+                new UserNotExistException(new EntityField(username, fieldName)));
+    }
+
+    @Override
+    public UserVersion getUserVersionByUsername(String username) throws UserNotExistException {
+        return userRepository.findVersionByUsername(username).orElseThrow(() ->
+                new UserNotExistException(new EntityField(username, "username")));
+    }
+
+    @Override
+    public User getUserReference(Long id) {
+        return userRepository.getOne(id);
+    }
+
     @Override
     public User createUser(User user) throws UserExistException {
         hasUser(user);
@@ -54,11 +86,29 @@ public class UserServiceImpl implements UserService {
 
     @Override
     public User updateUser(User user) {
-        return userRepository.save(user);
+        principalCache.invalidate(user.getId());
+        User saved = userRepository.save(user);
+        userDenylist.update(saved.getId(), saved.getStatus());
+        return saved;
+    }
+
+    @Override
+    public void updatePassword(Long id, String encodedPassword) {
+        principalCache.invalidate(id);
+        userRepository.updatePassword(id, encodedPassword);
+    }
+
+    @Override
+    public User updateUserStatus(Long id, Status status) throws UserNotExistException {
+        User user = getUserById(id);
+        user.setStatus(status);
+        return updateUser(user);
     }
 
     @Override
     public void deleteUserById(Long id) {
+        principalCache.invalidate(id);
         userRepository.deleteById(id);
+        userDenylist.deny(id);
     }
 }
@@ -0,0 +1,40 @@
+package com.coffeesoft.taskmanager.websocket;
+
+import com.coffeesoft.taskmanager.model.BulkTaskResult;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Frame sent to task sync clients: a full snapshot on connect, one delta per changed task afterwards and an
+ * acknowledgement for every batch of commands.
+ */
+@Getter
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SyncFrame {
+    private final String type;
+    private final Long version;
+    private final String op;
+    private final Long id;
+    private final Map<String, Object> fields;
+    private final Collection<Map<String, Object>> tasks;
+    private final String ref;
+    private final List<BulkTaskResult> results;
+
+    public static SyncFrame snapshot(long version, Collection<Map<String, Object>> tasks) {
+        return new SyncFrame("snapshot", version, null, null, null, tasks, null, null);
+    }
+
+    public static SyncFrame delta(long version, String op, Long id, Map<String, Object> fields) {
+        return new SyncFrame("delta", version, op, id, fields, null, null, null);
+    }
+
+    public static SyncFrame ack(String ref, List<BulkTaskResult> results) {
+        return new SyncFrame("ack", null, null, null, null, null, ref, results);
+    }
+}
@@ -0,0 +1,475 @@
+package com.coffeesoft.taskmanager.websocket;
+
+import com.coffeesoft.taskmanager.event.TaskEvent;
+import com.coffeesoft.taskmanager.exception.TaskByUserNotExistException;
+import com.coffeesoft.taskmanager.model.BulkTaskResult;
+import com.coffeesoft.taskmanager.model.Permission;
+import com.coffeesoft.taskmanager.model.Task;
+import com.coffeesoft.taskmanager.security.SecurityUser;
+import com.coffeesoft.taskmanager.service.TaskService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.PersistenceException;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.security.Principal;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps desktop clients in sync with a user's tasks over a WebSocket. A client receives a snapshot on connect and
+ * then one delta per change carrying only the fields that differ from what was last sent, stamped with a per-user
+ * version. Clients send batches of create/update/delete commands and get one acknowledgement per batch.
+ * Publishers only put frames on a bounded queue per session, which a small dispatch pool drains through a bounded
+ * sender pool, so the scheduler or request thread that changed a task never waits for a client. A client that falls
+ * behind, because its queue overflows, a write to it blocks for longer than {@code task.sync.send-time-limit-millis}
+ * or the sender pool has no room for it, is disconnected and resyncs on reconnect.
+ */
+@Component
+public class TaskSyncHandler extends TextWebSocketHandler {
+    private static final Logger logger = LoggerFactory.getLogger(TaskSyncHandler.class);
+    private static final TypeReference<Map<String, Object>> FIELDS = new TypeReference<Map<String, Object>>() {};
+
+    private final TaskService taskService;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final int sendTimeLimitMillis;
+    private final int queueSize;
+    private final int dispatchThreads;
+    private final int sendThreads;
+    private final int sendQueueSize;
+    private final int maxMessageBytes;
+    private final Map<Long, UserSync> users = new ConcurrentHashMap<>();
+    private final Map<String, Outbound> openSessions = new ConcurrentHashMap<>();
+    private final Counter terminated;
+    private ExecutorService dispatcher;
+    private ExecutorService sender;
+
+    public TaskSyncHandler(TaskService taskService, ObjectMapper objectMapper, Validator validator,
+                           MeterRegistry meterRegistry,
+                           @Value("${task.sync.send-time-limit-millis:10000}") int sendTimeLimitMillis,
+                           @Value("${task.sync.queue-size:256}") int queueSize,
+                           @Value("${task.sync.dispatch-threads:2}") int dispatchThreads,
+                           @Value("${task.sync.send-threads:16}") int sendThreads,
+                           @Value("${task.sync.send-queue-size:64}") int sendQueueSize,
+                           @Value("${task.sync.max-message-bytes:1048576}") int maxMessageBytes) {
+        this.taskService = taskService;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.sendTimeLimitMillis = sendTimeLimitMillis;
+        this.queueSize = queueSize;
+        this.dispatchThreads = dispatchThreads;
+        this.sendThreads = sendThreads;
+        this.sendQueueSize = sendQueueSize;
+        this.maxMessageBytes = maxMessageBytes;
+        terminated = Counter.builder("task.sync.terminated").register(meterRegistry);
+        Gauge.builder("task.sync.sessions", openSessions, Map::size).register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        dispatcher = Executors.newFixedThreadPool(dispatchThreads, runnable -> {
+            Thread thread = new Thread(runnable, "task-sync-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger senderNumber = new AtomicInteger();
+        ThreadPoolExecutor senderPool = new ThreadPoolExecutor(sendThreads, sendThreads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(sendQueueSize), runnable -> {
+            Thread thread = new Thread(runnable, "task-sync-send-" + senderNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        senderPool.allowCoreThreadTimeOut(true);
+        sender = senderPool;
+    }
+
+    @PreDestroy
+    public void stop() {
+        dispatcher.shutdown();
+        sender.shutdown();
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) throws IOException {
+        SecurityUser user = principalOf(session);
+        if (user == null) {
+            session.close(CloseStatus.POLICY_VIOLATION);
+            return;
+        }
+        session.setTextMessageSizeLimit(maxMessageBytes);
+        Outbound outbound = new Outbound(session);
+        openSessions.put(session.getId(), outbound);
+        UserSync sync = users.compute(user.getId(), (id, existing) -> {
+            UserSync userSync = existing != null ? existing : new UserSync(id);
+            userSync.sessions.add(outbound);
+            return userSync;
+        });
+        sync.join(outbound);
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        Outbound outbound = openSessions.remove(session.getId());
+        SecurityUser user = principalOf(session);
+        if (outbound == null || user == null) {
+            return;
+        }
+        outbound.discard();
+        users.computeIfPresent(user.getId(), (id, sync) -> {
+            sync.sessions.remove(outbound);
+            return sync.sessions.isEmpty() ? null : sync;
+        });
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) {
+        Outbound outbound = openSessions.get(session.getId());
+        SecurityUser user = principalOf(session);
+        if (outbound == null || user == null) {
+            return;
+        }
+        String ref = null;
+        List<BulkTaskResult> results;
+        try {
+            JsonNode frame = objectMapper.readTree(message.getPayload());
+            ref = frame.hasNonNull("ref") ? frame.get("ref").asText() : null;
+            if (!"commands".equals(frame.path("type").asText()) || !frame.path("commands").isArray()) {
+                results = List.of(BulkTaskResult.rejected(0, "Expected a commands frame"));
+            } else if (!user.getRole().getPermissions().contains(Permission.TASKS_WRITE)) {
+                results = List.of(BulkTaskResult.failed(0, 403, "Missing authority " + Permission.TASKS_WRITE.getPermission()));
+            } else {
+                results = execute(frame.get("commands"), user.getId());
+            }
+        } catch (JsonProcessingException e) {
+            results = List.of(BulkTaskResult.rejected(0, "Malformed JSON: " + e.getOriginalMessage()));
+        }
+        try {
+            outbound.send(new TextMessage(objectMapper.writeValueAsString(SyncFrame.ack(ref, results))));
+        } catch (JsonProcessingException e) {
+            logger.warn("Failed to serialize acknowledgement for user {}: {}", user.getUsername(), e.getMessage());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTaskEvent(TaskEvent event) {
+        if (event.getUserId() == null) {
+            return;
+        }
+        UserSync sync = users.get(event.getUserId());
+        if (sync != null) {
+            sync.apply(event);
+        }
+    }
+
+    public int getSessionCount() {
+        return openSessions.size();
+    }
+
+    /**
+     * Consecutive creates are inserted as one batch; the batch is flushed before any update or delete so commands
+     * take effect in the order they were sent.
+     */
+    private List<BulkTaskResult> execute(JsonNode commands, Long userId) {
+        List<BulkTaskResult> results = new ArrayList<>(commands.size());
+        List<Task> creates = new ArrayList<>();
+        List<Long> createIndexes = new ArrayList<>();
+        long index = 0;
+        for (JsonNode command : commands) {
+            String op = command.path("op").asText();
+            try {
+                if ("create".equals(op)) {
+                    Task task = objectMapper.treeToValue(command.path("task"), Task.class);
+                    String error = validate(task);
+                    if (error == null) {
+                        creates.add(task);
+                        createIndexes.add(index);
+                    } else {
+                        results.add(BulkTaskResult.rejected(index, error));
+                    }
+                } else {
+                    flush(creates, createIndexes, userId, results);
+                    results.add(execute(index, op, command, userId));
+                }
+            } catch (JsonProcessingException e) {
+                results.add(BulkTaskResult.rejected(index, e.getOriginalMessage()));
+            } catch (TaskByUserNotExistException e) {
+                results.add(BulkTaskResult.failed(index, 404, e.getMessage()));
+            } catch (DataAccessException | PersistenceException | TransactionException e) {
+                results.add(BulkTaskResult.failed(index, 409, NestedExceptionUtils.getMostSpecificCause(e).getMessage()));
+            }
+            index++;
+        }
+        flush(creates, createIndexes, userId, results);
+        results.sort(Comparator.comparingLong(BulkTaskResult::getIndex));
+        return results;
+    }
+
+    private BulkTaskResult execute(long index, String op, JsonNode command, Long userId)
+            throws JsonProcessingException, TaskByUserNotExistException {
+        if ("update".equals(op)) {
+            Task changes = objectMapper.treeToValue(command.path("task"), Task.class);
+            String error = validate(changes);
+            if (error != null) {
+                return BulkTaskResult.rejected(index, error);
+            }
+            Task taskDb = taskService.getTaskByTaskIdAndUserId(command.path("id").asLong(), userId);
+            taskDb.setTitle(changes.getTitle());
+            taskDb.setDescription(changes.getDescription());
+            taskDb.setStartTime(changes.getStartTime());
+            taskDb.setEndTime(changes.getEndTime());
+            taskDb.setSleepInterval(changes.getSleepInterval());
+            taskDb.setWorkInterval(changes.getWorkInterval());
+            taskDb.setActive(changes.getActive());
+            taskDb.setRepeat(changes.getRepeat());
+            taskDb.setSleep(changes.getSleep());
+            return BulkTaskResult.ok(index, taskService.updateTask(taskDb).getId());
+        }
+        if ("delete".equals(op)) {
+            Task taskDb = taskService.getTaskByTaskIdAndUserId(command.path("id").asLong(), userId);
+            taskService.deleteTaskById(taskDb.getId());
+            return BulkTaskResult.ok(index, taskDb.getId());
+        }
+        return BulkTaskResult.rejected(index, "Unknown op '" + op + "'");
+    }
+
+    private void flush(List<Task> creates, List<Long> indexes, Long userId, List<BulkTaskResult> results) {
+        if (creates.isEmpty()) {
+            return;
+        }
+        try {
+            List<Task> created = taskService.createTasks(creates, userId);
+            for (int i = 0; i < created.size(); i++) {
+                results.add(BulkTaskResult.created(indexes.get(i), created.get(i).getId()));
+            }
+        } catch (DataAccessException | PersistenceException | TransactionException e) {
+            String error = NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+            for (Long index : indexes) {
+                results.add(BulkTaskResult.rejected(index, error));
+            }
+        }
+        creates.clear();
+        indexes.clear();
+    }
+
+    private String validate(Task task) {
+        Set<ConstraintViolation<Task>> violations = validator.validate(task);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining(", "));
+    }
+
+    private static SecurityUser principalOf(WebSocketSession session) {
+        Principal principal = session.getPrincipal();
+        if (principal instanceof Authentication && ((Authentication) principal).getPrincipal() instanceof SecurityUser) {
+            return (SecurityUser) ((Authentication) principal).getPrincipal();
+        }
+        return null;
+    }
+
+    /**
+     * Fields last sent to the sessions of one user. It is loaded from the database when the first session connects,
+     * later sessions get their snapshot from memory so they see exactly what the connected ones have seen.
+     */
+    private final class UserSync {
+        private final Long userId;
+        private final Set<Outbound> sessions = ConcurrentHashMap.newKeySet();
+        private final Map<Long, Map<String, Object>> sent = new LinkedHashMap<>();
+        private long version;
+        private boolean loaded;
+
+        private UserSync(Long userId) {
+            this.userId = userId;
+        }
+
+        private synchronized void join(Outbound session) {
+            if (!loaded) {
+                taskService.getTasksByUserId(userId).forEach(task -> sent.put(task.getId(), fieldsOf(task)));
+                loaded = true;
+            }
+            try {
+                session.send(new TextMessage(objectMapper.writeValueAsString(SyncFrame.snapshot(version, sent.values()))));
+            } catch (JsonProcessingException e) {
+                logger.warn("Failed to serialize task snapshot of user {}: {}", userId, e.getMessage());
+            }
+        }
+
+        private synchronized void apply(TaskEvent event) {
+            if (!loaded) {
+                return;
+            }
+            SyncFrame frame;
+            if (event.getType() == TaskEvent.Type.DELETED) {
+                if (sent.remove(event.getTaskId()) == null) {
+                    return;
+                }
+                frame = SyncFrame.delta(++version, "delete", event.getTaskId(), null);
+            } else {
+                Map<String, Object> current = fieldsOf(event.getTask());
+                Map<String, Object> previous = sent.put(event.getTaskId(), current);
+                Map<String, Object> changed = new LinkedHashMap<>();
+                current.forEach((field, value) -> {
+                    if (previous == null || !Objects.equals(previous.get(field), value)) {
+                        changed.put(field, value);
+                    }
+                });
+                if (changed.isEmpty()) {
+                    return;
+                }
+                frame = SyncFrame.delta(++version, "upsert", event.getTaskId(), changed);
+            }
+            try {
+                TextMessage message = new TextMessage(objectMapper.writeValueAsString(frame));
+                sessions.forEach(session -> session.send(message));
+            } catch (JsonProcessingException e) {
+                logger.warn("Failed to serialize {}: {}", event, e.getMessage());
+            }
+        }
+
+        private Map<String, Object> fieldsOf(Task task) {
+            Map<String, Object> fields = objectMapper.convertValue(task, FIELDS);
+            // frames carry their own per-user version; the row version would mark every delta as changed
+            fields.remove("version");
+            return fields;
+        }
+    }
+
+    /**
+     * Frames waiting for one session. Only a dispatch thread writes to the session, one frame at a time, so frames
+     * keep the order in which they were queued.
+     */
+    private final class Outbound {
+        private final WebSocketSession session;
+        private final BlockingQueue<TextMessage> queue = new ArrayBlockingQueue<>(queueSize);
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private final AtomicBoolean writing = new AtomicBoolean();
+        private final AtomicBoolean finished = new AtomicBoolean();
+
+        private Outbound(WebSocketSession session) {
+            this.session = session;
+        }
+
+        private void send(TextMessage message) {
+            if (closed.get()) {
+                return;
+            }
+            if (queue.offer(message)) {
+                schedule();
+            } else {
+                terminate("its queue is full");
+            }
+        }
+
+        private void schedule() {
+            if (!queue.isEmpty() && !closed.get() && scheduled.compareAndSet(false, true)) {
+                try {
+                    dispatcher.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    scheduled.set(false);
+                }
+            }
+        }
+
+        private void drain() {
+            TextMessage message;
+            while (!closed.get() && (message = queue.poll()) != null) {
+                write(message);
+            }
+            scheduled.set(false);
+            schedule();
+        }
+
+        private void write(TextMessage message) {
+            Future<?> sending;
+            writing.set(true);
+            try {
+                sending = sender.submit(() -> {
+                    try {
+                        if (!closed.get()) {
+                            session.sendMessage(message);
+                        }
+                    } finally {
+                        writing.set(false);
+                        if (closed.get()) {
+                            finish();
+                        }
+                    }
+                    return null;
+                });
+            } catch (RejectedExecutionException e) {
+                writing.set(false);
+                terminate("the sender pool is full");
+                return;
+            }
+            try {
+                sending.get(sendTimeLimitMillis, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                terminate("a write blocked for more than " + sendTimeLimitMillis + " ms");
+            } catch (ExecutionException e) {
+                logger.debug("Failed to send to task sync session {}: {}", session.getId(), e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void terminate(String reason) {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            queue.clear();
+            terminated.increment();
+            logger.info("Closing task sync session {} that cannot keep up: {}", session.getId(), reason);
+            finish();
+        }
+
+        /**
+         * Closes the session unless a write to it is still in flight; that write closes it once it returns, so a
+         * publisher never waits behind a blocked write.
+         */
+        private void finish() {
+            if (!writing.get() && finished.compareAndSet(false, true)) {
+                try {
+                    session.close(CloseStatus.SESSION_NOT_RELIABLE);
+                } catch (IOException e) {
+                    logger.debug("Failed to close task sync session {}: {}", session.getId(), e.getMessage());
+                }
+            }
+        }
+
+        private void discard() {
+            closed.set(true);
+            queue.clear();
+        }
+    }
+}
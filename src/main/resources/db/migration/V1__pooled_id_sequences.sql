@@ -0,0 +1,4 @@
+-- Hibernate hands out ids in blocks of PooledSequenceGenerator.BLOCK_SIZE (50)
+-- from a single nextval, so the sequences must advance by the same amount.
+ALTER SEQUENCE seq_task INCREMENT BY 50;
+ALTER SEQUENCE seq_user INCREMENT BY 50;
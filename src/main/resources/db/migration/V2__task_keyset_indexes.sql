@@ -0,0 +1,3 @@
+-- Keyset pagination walks a user's tasks ordered by (time, id).
+CREATE INDEX IF NOT EXISTS idx_task_user_time_id ON task (user_id, time, id);
+CREATE INDEX IF NOT EXISTS idx_task_user_state_time_id ON task (user_id, task_state, time, id);
@@ -0,0 +1,4 @@
+-- Optimistic locking versions, also used as ETags; tasks_version changes with every write to a user's tasks.
+ALTER TABLE task ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE users ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE users ADD COLUMN IF NOT EXISTS tasks_version BIGINT NOT NULL DEFAULT 0;
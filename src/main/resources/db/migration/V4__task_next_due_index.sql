@@ -0,0 +1,2 @@
+-- Fallback for the next due task lookup while the in-memory index is rebuilt: a user's active tasks by (time, id).
+CREATE INDEX IF NOT EXISTS idx_task_user_active_time_id ON task (user_id, active, time, id);
@@ -0,0 +1,10 @@
+-- Scheduler shard ownership across nodes: one lease row per shard, one heartbeat row per running node.
+CREATE TABLE IF NOT EXISTS scheduler_lease (
+    shard      INTEGER PRIMARY KEY,
+    owner      VARCHAR(64),
+    expires_at TIMESTAMP
+);
+CREATE TABLE IF NOT EXISTS scheduler_node (
+    node_id      VARCHAR(64) PRIMARY KEY,
+    heartbeat_at TIMESTAMP NOT NULL
+);
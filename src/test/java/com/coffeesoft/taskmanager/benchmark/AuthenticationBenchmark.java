@@ -0,0 +1,82 @@
+package com.coffeesoft.taskmanager.benchmark;
+
+import com.coffeesoft.taskmanager.model.Role;
+import com.coffeesoft.taskmanager.model.Status;
+import com.coffeesoft.taskmanager.model.User;
+import com.coffeesoft.taskmanager.repository.UserRepository;
+import com.coffeesoft.taskmanager.security.JwtTokenProvider;
+import com.coffeesoft.taskmanager.security.SecurityUser;
+import com.coffeesoft.taskmanager.security.UserDenylist;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request authentication work outside the database: issuing, validating and reading a token, and building
+ * the user details and authorities of a user.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AuthenticationBenchmark {
+    private JwtTokenProvider jwtTokenProvider;
+    private String token;
+    private User user;
+
+    @Setup
+    public void setUp() {
+        jwtTokenProvider = new JwtTokenProvider(Mockito.mock(UserDetailsService.class),
+                new UserDenylist(Mockito.mock(UserRepository.class)));
+        ReflectionTestUtils.setField(jwtTokenProvider, "secretKey", "benchmark-secret");
+        ReflectionTestUtils.setField(jwtTokenProvider, "validityInMilliSeconds", 3600L);
+        ReflectionTestUtils.setField(jwtTokenProvider, "verifiedCacheMaxSize", 10000);
+        ReflectionTestUtils.invokeMethod(jwtTokenProvider, "init");
+        token = jwtTokenProvider.createToken(42L, "ivan_ivanov", Role.USER.name());
+        user = new User("Ivan Ivanov", "ivan_ivanov", "$2a$10$benchmarkbenchmarkbenchmarkbenchmarkbenchmarkbench");
+        user.setRole(Role.ADMIN);
+        user.setStatus(Status.ACTIVE);
+    }
+
+    @Benchmark
+    public String createToken() {
+        return jwtTokenProvider.createToken(42L, "ivan_ivanov", Role.USER.name());
+    }
+
+    @Benchmark
+    public boolean validateToken() {
+        return jwtTokenProvider.validateToken(token);
+    }
+
+    @Benchmark
+    public String getUsername() {
+        return jwtTokenProvider.getUsername(token);
+    }
+
+    @Benchmark
+    public UserDetails securityUserFromUser() {
+        return SecurityUser.fromUser(user);
+    }
+
+    @Benchmark
+    public Set<? extends GrantedAuthority> roleAuthorities() {
+        return Role.ADMIN.getAuthorities();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(AuthenticationBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,96 @@
+package com.coffeesoft.taskmanager.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares two JMH JSON result files, such as the {@code target/jmh-result.json} of the {@code benchmarks} profile
+ * from two commits: {@code BenchmarkComparison <baseline.json> <current.json> [threshold percent]}. Prints the
+ * change of every benchmark found in both and exits with 1 when one got worse by more than the threshold (10% by
+ * default) and by more than the two runs' error margins, so a CI step can fail on it.
+ */
+public class BenchmarkComparison {
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BenchmarkComparison <baseline.json> <current.json> [threshold percent]");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10;
+        Map<String, Result> baseline = read(new File(args[0]));
+        Map<String, Result> current = read(new File(args[1]));
+        List<String> regressions = new ArrayList<>();
+        System.out.printf("%-90s %14s %14s %9s%n", "Benchmark", "Baseline", "Current", "Change");
+        current.forEach((key, result) -> {
+            Result before = baseline.get(key);
+            if (before == null) {
+                System.out.printf("%-90s %14s %14.3f %9s %s%n", key, "-", result.score, "new", result.unit);
+                return;
+            }
+            double change = (result.score - before.score) / before.score * 100;
+            boolean worse = result.higherIsBetter ? change < -threshold : change > threshold;
+            boolean significant = Math.abs(result.score - before.score) > result.error + before.error;
+            System.out.printf("%-90s %14.3f %14.3f %+8.1f%% %s%s%n", key, before.score, result.score, change,
+                    result.unit, worse && significant ? "  REGRESSION" : "");
+            if (worse && significant) {
+                regressions.add(key);
+            }
+        });
+        if (!regressions.isEmpty()) {
+            System.out.printf("%d benchmark(s) regressed by more than %.1f%%%n", regressions.size(), threshold);
+            System.exit(1);
+        }
+    }
+
+    private static Map<String, Result> read(File file) throws IOException {
+        Map<String, Result> results = new LinkedHashMap<>();
+        for (JsonNode run : objectMapper.readTree(file)) {
+            JsonNode metric = run.get("primaryMetric");
+            Result result = new Result(metric.get("score").asDouble(), nonNegative(metric.get("scoreError").asDouble()),
+                    metric.get("scoreUnit").asText(), "thrpt".equals(run.get("mode").asText()));
+            results.put(key(run), result);
+        }
+        return results;
+    }
+
+    private static String key(JsonNode run) {
+        StringBuilder key = new StringBuilder(run.get("benchmark").asText())
+                .append(" (").append(run.get("mode").asText()).append(')');
+        JsonNode params = run.get("params");
+        if (params != null) {
+            Map<String, String> sorted = new TreeMap<>();
+            Iterator<Map.Entry<String, JsonNode>> fields = params.fields();
+            fields.forEachRemaining(field -> sorted.put(field.getKey(), field.getValue().asText()));
+            key.append(' ').append(sorted);
+        }
+        return key.toString();
+    }
+
+    private static double nonNegative(double error) {
+        return Double.isNaN(error) ? 0 : Math.abs(error);
+    }
+
+    private static final class Result {
+        private final double score;
+        private final double error;
+        private final String unit;
+        private final boolean higherIsBetter;
+
+        private Result(double score, double error, String unit, boolean higherIsBetter) {
+            this.score = score;
+            this.error = error;
+            this.unit = unit;
+            this.higherIsBetter = higherIsBetter;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.coffeesoft.taskmanager.benchmark;
+
+final class BenchmarkProperties {
+    private BenchmarkProperties() {
+    }
+
+    static String[] defaults() {
+        return new String[]{
+                "jwt.secret=benchmark-secret",
+                "jwt.header=Authorization",
+                "jwt.expiration=3600",
+                "server.port=0",
+                "spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+                "spring.jpa.hibernate.ddl-auto=create-drop",
+                "logging.level.root=WARN"
+        };
+    }
+}
@@ -0,0 +1,428 @@
+package com.coffeesoft.taskmanager.benchmark;
+
+import com.coffeesoft.taskmanager.TaskManagerApplication;
+import com.coffeesoft.taskmanager.model.Role;
+import com.coffeesoft.taskmanager.model.Status;
+import com.coffeesoft.taskmanager.model.Task;
+import com.coffeesoft.taskmanager.model.TaskState;
+import com.coffeesoft.taskmanager.model.User;
+import com.coffeesoft.taskmanager.service.TaskService;
+import com.coffeesoft.taskmanager.service.UserService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.io.File;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Finds the request rate one node sustains. Boots the application, seeds users and tasks through the services,
+ * then sends a mix of API requests at a constant arrival rate, whether or not earlier ones have completed, so a
+ * slow server builds a queue instead of slowing the client down. Latency is measured from each request's scheduled
+ * send time, which keeps that queueing in the percentiles:
+ * <pre>
+ *   HttpLoadRunner &lt;requests-per-second&gt; &lt;seconds&gt; [users] [tasks-per-user] [report.json] [baseline.json]
+ * </pre>
+ * The mix is set with {@code -Dload.mix=list:30,get:25,nextDue:25,create:6,update:6,delete:5,login:3}. The server
+ * runs on H2 unless {@code -Dspring.datasource.url} (with username and password) points elsewhere, e.g. PostgreSQL.
+ * The first {@code -Dload.warmup} seconds (10 by default) run at the same rate and are not reported.
+ * With a baseline report the run exits with 1 when an endpoint's p99 grew or its throughput fell by more than
+ * {@code -Dload.threshold} percent (20 by default); endpoints with fewer than 100 requests in either run are shown
+ * but not judged. Requests dropped because 10000 were already in flight are reported as {@code dropped}; a run
+ * that dropped any did not hold the rate and fails the comparison.
+ */
+public class HttpLoadRunner {
+    private static final String PASSWORD = "parolyaNet0";
+    private static final String DEFAULT_MIX = "list:30,get:25,nextDue:25,create:6,update:6,delete:5,login:3";
+    private static final int MAX_IN_FLIGHT = 10_000;
+    private static final int MIN_COMPARED_SAMPLES = 100;
+    private static final LocalDateTime START = LocalDateTime.now().plusHours(1).truncatedTo(ChronoUnit.MINUTES);
+    private static final int TASK_SPACING_MINUTES = 7;
+    private static final Pattern ID = Pattern.compile("\"id\":(\\d+)");
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    enum Operation {
+        LOGIN("POST /api/login"),
+        LIST("GET /api/tasks"),
+        GET("GET /api/task/{taskId}"),
+        CREATE("POST /api/task"),
+        UPDATE("PUT /api/task/{taskId}"),
+        DELETE("DELETE /api/task/{taskId}"),
+        NEXT_DUE("GET /api/admin/user/{userId}/task/{after}");
+
+        private final String endpoint;
+
+        Operation(String endpoint) {
+            this.endpoint = endpoint;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: HttpLoadRunner <requests-per-second> <seconds> [users] [tasks-per-user] " +
+                    "[report.json] [baseline.json]");
+            System.exit(2);
+        }
+        int rate = Integer.parseInt(args[0]);
+        int seconds = Integer.parseInt(args[1]);
+        int users = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+        int tasksPerUser = args.length > 3 ? Integer.parseInt(args[3]) : 20;
+        File report = new File(args.length > 4 ? args[4] : "target/load-report.json");
+        Map<Operation, Integer> mix = parseMix(System.getProperty("load.mix", DEFAULT_MIX));
+        int warmup = Integer.getInteger("load.warmup", 10);
+
+        boolean passed = true;
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(TaskManagerApplication.class)
+                .properties(BenchmarkProperties.defaults())
+                .properties("jwt.expiration=86400")
+                .run();
+        try {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            List<Client> clients = seed(context, users, tasksPerUser, port);
+            HttpLoadRunner runner = new HttpLoadRunner(URI.create("http://localhost:" + port), clients, mix);
+            if (warmup > 0) {
+                runner.drive(rate, warmup);
+                runner.reset();
+            }
+            Map<Operation, Stats> stats = runner.run(rate, seconds);
+            ObjectNode result = report(stats, runner.dropped.get(), rate, seconds, users, tasksPerUser);
+            objectMapper.writerWithDefaultPrettyPrinter().writeValue(report, result);
+            System.out.printf("Report written to %s%n", report);
+            File baseline = args.length > 5 ? new File(args[5]) : null;
+            if (baseline != null && !baseline.isFile()) {
+                System.out.printf("No baseline at %s, copy the report there to compare later runs with it%n", baseline);
+            } else if (baseline != null) {
+                passed = compare(objectMapper.readTree(baseline), result,
+                        Double.parseDouble(System.getProperty("load.threshold", "20")));
+            }
+        } finally {
+            context.close();
+        }
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+
+    private final URI base;
+    private final List<Client> clients;
+    private final Operation[] weighted;
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+    private final Map<Operation, Stats> stats = new EnumMap<>(Operation.class);
+    private final Semaphore inFlight = new Semaphore(MAX_IN_FLIGHT);
+    private final AtomicLong dropped = new AtomicLong();
+
+    private HttpLoadRunner(URI base, List<Client> clients, Map<Operation, Integer> mix) {
+        this.base = base;
+        this.clients = clients;
+        List<Operation> operations = new ArrayList<>();
+        mix.forEach((operation, weight) -> {
+            for (int i = 0; i < weight; i++) {
+                operations.add(operation);
+            }
+        });
+        weighted = operations.toArray(new Operation[0]);
+        for (Operation operation : Operation.values()) {
+            stats.put(operation, new Stats());
+        }
+    }
+
+    private Map<Operation, Stats> run(int rate, int seconds) throws InterruptedException {
+        double elapsed = drive(rate, seconds);
+        stats.values().forEach(endpoint -> endpoint.finish(elapsed));
+        print(stats, elapsed);
+        return stats;
+    }
+
+    private double drive(int rate, int seconds) throws InterruptedException {
+        SplittableRandom random = new SplittableRandom(42);
+        long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+        long total = (long) rate * seconds;
+        long start = System.nanoTime();
+        for (long i = 0; i < total; i++) {
+            long intended = start + i * interval;
+            long delay = intended - System.nanoTime();
+            if (delay > 0) {
+                LockSupport.parkNanos(delay);
+            }
+            if (!inFlight.tryAcquire()) {
+                dropped.incrementAndGet();
+                continue;
+            }
+            send(weighted[random.nextInt(weighted.length)], clients.get(random.nextInt(clients.size())),
+                    random, intended);
+        }
+        if (!inFlight.tryAcquire(MAX_IN_FLIGHT, 60, TimeUnit.SECONDS)) {
+            System.out.printf("%d requests still in flight after 60 s%n", MAX_IN_FLIGHT - inFlight.availablePermits());
+            return (System.nanoTime() - start) / 1e9;
+        }
+        inFlight.release(MAX_IN_FLIGHT);
+        return (System.nanoTime() - start) / 1e9;
+    }
+
+    private void reset() {
+        stats.values().forEach(Stats::reset);
+        dropped.set(0);
+    }
+
+    private void send(Operation operation, Client client, SplittableRandom random, long intended) {
+        Long createdId = null;
+        if (operation == Operation.DELETE) {
+            createdId = client.created.poll();
+            if (createdId == null) {
+                operation = Operation.CREATE;
+            }
+        }
+        HttpRequest request = request(operation, client, random, createdId);
+        Operation sent = operation;
+        httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString()).whenComplete((response, error) -> {
+            long latency = System.nanoTime() - intended;
+            Stats endpoint = stats.get(sent);
+            endpoint.latency.recordValue(latency);
+            if (error != null || response.statusCode() >= 400) {
+                endpoint.errors.incrementAndGet();
+            } else if (sent == Operation.CREATE) {
+                Matcher id = ID.matcher(response.body());
+                if (id.find()) {
+                    client.created.add(Long.parseLong(id.group(1)));
+                }
+            }
+            inFlight.release();
+        });
+    }
+
+    private HttpRequest request(Operation operation, Client client, SplittableRandom random, Long createdId) {
+        long taskId = client.taskIds[random.nextInt(client.taskIds.length)];
+        switch (operation) {
+            case LOGIN:
+                return post("/api/login", null, "{\"username\":\"" + client.username + "\",\"password\":\"" +
+                        PASSWORD + "\"}");
+            case LIST:
+                return authorized("/api/tasks", client).GET().build();
+            case GET:
+                return authorized("/api/task/" + taskId, client).GET().build();
+            case CREATE:
+                return post("/api/task", client, taskJson("Load task", random, client.taskIds.length));
+            case UPDATE:
+                return authorized("/api/task/" + taskId, client)
+                        .PUT(HttpRequest.BodyPublishers.ofString(taskJson("Task " + taskId, random,
+                                client.taskIds.length)))
+                        .header("Content-Type", "application/json")
+                        .build();
+            case DELETE:
+                return authorized("/api/task/" + createdId, client).DELETE().build();
+            default:
+                long after = START.plusMinutes(random.nextInt((client.taskIds.length - 1) * TASK_SPACING_MINUTES + 1))
+                        .atZone(ZoneId.systemDefault()).toEpochSecond();
+                return authorized("/api/admin/user/" + client.userId + "/task/" + after, client).GET().build();
+        }
+    }
+
+    private HttpRequest.Builder authorized(String path, Client client) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(base.resolve(path)).timeout(Duration.ofSeconds(30));
+        return client != null ? builder.header("Authorization", client.token) : builder;
+    }
+
+    private HttpRequest post(String path, Client client, String json) {
+        return authorized(path, client)
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .build();
+    }
+
+    private static String taskJson(String title, SplittableRandom random, int tasks) {
+        LocalDateTime startTime = START.plusMinutes(random.nextInt(tasks * TASK_SPACING_MINUTES + 1));
+        return "{\"title\":\"" + title + "\",\"startTime\":\"" + startTime + "\",\"endTime\":\"" +
+                startTime.plusDays(7) + "\",\"workInterval\":" + (random.nextInt(120) + 15) +
+                ",\"sleepInterval\":30,\"active\":true,\"repeat\":true,\"sleep\":true}";
+    }
+
+    private static List<Client> seed(ConfigurableApplicationContext context, int users, int tasksPerUser, int port)
+            throws Exception {
+        UserService userService = context.getBean(UserService.class);
+        TaskService taskService = context.getBean(TaskService.class);
+        String encodedPassword = context.getBean(PasswordEncoder.class).encode(PASSWORD);
+        HttpClient httpClient = HttpClient.newHttpClient();
+        List<Client> clients = new ArrayList<>(users);
+        long seedStart = System.nanoTime();
+        for (int i = 0; i < users; i++) {
+            User user = new User("Load User", "load_user_" + i, encodedPassword);
+            user.setRole(Role.ADMIN);
+            user.setStatus(Status.ACTIVE);
+            user = userService.createUser(user);
+            List<Task> tasks = new ArrayList<>(tasksPerUser);
+            for (int j = 0; j < tasksPerUser; j++) {
+                LocalDateTime startTime = START.plusMinutes((long) j * TASK_SPACING_MINUTES);
+                Task task = new Task("Task " + j, startTime, startTime.plusDays(7), true, true, true, user);
+                task.setTime(startTime);
+                task.setWorkInterval(45);
+                task.setSleepInterval(15);
+                task.setTaskState(TaskState.DISABLE);
+                tasks.add(task);
+            }
+            long[] taskIds = taskService.createTasks(tasks, user.getId()).stream().mapToLong(Task::getId).toArray();
+            HttpResponse<String> login = httpClient.send(HttpRequest.newBuilder(
+                    URI.create("http://localhost:" + port + "/api/login"))
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"username\":\"" + user.getUsername() +
+                            "\",\"password\":\"" + PASSWORD + "\"}"))
+                    .header("Content-Type", "application/json")
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            String token = objectMapper.readTree(login.body()).get("token").asText();
+            clients.add(new Client(user.getId(), user.getUsername(), token, taskIds));
+        }
+        System.out.printf("Seeded %d users with %d tasks each in %d ms%n", users, tasksPerUser,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - seedStart));
+        return clients;
+    }
+
+    private void print(Map<Operation, Stats> stats, double elapsed) {
+        System.out.printf("%-45s %8s %7s %9s %9s %9s %9s %9s %9s%n", "Endpoint", "Count", "Errors", "Req/s",
+                "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        stats.forEach((operation, endpoint) -> {
+            Histogram histogram = endpoint.histogram;
+            if (histogram.getTotalCount() == 0) {
+                return;
+            }
+            System.out.printf("%-45s %8d %7d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n", operation.endpoint,
+                    histogram.getTotalCount(), endpoint.errors.get(), endpoint.throughput, millis(histogram, 50),
+                    millis(histogram, 90), millis(histogram, 99), millis(histogram, 99.9),
+                    histogram.getMaxValue() / 1e6);
+        });
+        long completed = stats.values().stream().mapToLong(endpoint -> endpoint.histogram.getTotalCount()).sum();
+        System.out.printf("Completed %d requests in %.1f s (%.1f req/s), dropped %d over %d in flight%n",
+                completed, elapsed, completed / elapsed, dropped.get(), MAX_IN_FLIGHT);
+    }
+
+    private static ObjectNode report(Map<Operation, Stats> stats, long dropped, int rate, int seconds, int users,
+                                     int tasks) {
+        ObjectNode report = objectMapper.createObjectNode();
+        report.put("rate", rate).put("seconds", seconds).put("users", users).put("tasksPerUser", tasks)
+                .put("dropped", dropped);
+        ObjectNode endpoints = report.putObject("endpoints");
+        stats.forEach((operation, endpoint) -> {
+            Histogram histogram = endpoint.histogram;
+            if (histogram.getTotalCount() > 0) {
+                endpoints.putObject(operation.endpoint)
+                        .put("count", histogram.getTotalCount())
+                        .put("errors", endpoint.errors.get())
+                        .put("throughput", endpoint.throughput)
+                        .put("p50", millis(histogram, 50))
+                        .put("p90", millis(histogram, 90))
+                        .put("p99", millis(histogram, 99))
+                        .put("p999", millis(histogram, 99.9))
+                        .put("max", histogram.getMaxValue() / 1e6);
+            }
+        });
+        return report;
+    }
+
+    private static boolean compare(JsonNode baseline, JsonNode current, double threshold) {
+        boolean passed = true;
+        System.out.printf("%-45s %12s %12s %12s %12s%n", "Endpoint", "Req/s", "Change", "p99 ms", "Change");
+        for (Map.Entry<String, JsonNode> entry : iterable(current.get("endpoints"))) {
+            JsonNode now = entry.getValue();
+            JsonNode before = baseline.path("endpoints").get(entry.getKey());
+            if (before == null) {
+                System.out.printf("%-45s %12.1f %12s %12.2f %12s%n", entry.getKey(), now.get("throughput").asDouble(),
+                        "new", now.get("p99").asDouble(), "new");
+                continue;
+            }
+            double throughputChange = change(before.get("throughput").asDouble(), now.get("throughput").asDouble());
+            double p99Change = change(before.get("p99").asDouble(), now.get("p99").asDouble());
+            boolean judged = Math.min(before.get("count").asLong(), now.get("count").asLong()) >= MIN_COMPARED_SAMPLES;
+            boolean regressed = judged && (throughputChange < -threshold || p99Change > threshold);
+            System.out.printf("%-45s %12.1f %+11.1f%% %12.2f %+11.1f%%%s%n", entry.getKey(),
+                    now.get("throughput").asDouble(), throughputChange, now.get("p99").asDouble(), p99Change,
+                    regressed ? "  REGRESSION" : judged ? "" : "  (too few samples)");
+            passed &= !regressed;
+        }
+        long dropped = current.path("dropped").asLong();
+        if (dropped > 0) {
+            System.out.printf("Dropped %d requests (baseline %d), the run did not hold %d req/s  REGRESSION%n",
+                    dropped, baseline.path("dropped").asLong(), current.get("rate").asInt());
+            passed = false;
+        }
+        return passed;
+    }
+
+    private static Iterable<Map.Entry<String, JsonNode>> iterable(JsonNode node) {
+        return node::fields;
+    }
+
+    private static double change(double before, double now) {
+        return before == 0 ? 0 : (now - before) / before * 100;
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1e6;
+    }
+
+    private static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split(":");
+            String name = parts[0].replaceAll("([a-z])([A-Z])", "$1_$2").toUpperCase();
+            weights.put(Operation.valueOf(name), Integer.parseInt(parts[1]));
+        }
+        return weights;
+    }
+
+    private static final class Client {
+        private final Long userId;
+        private final String username;
+        private final String token;
+        private final long[] taskIds;
+        private final ConcurrentLinkedQueue<Long> created = new ConcurrentLinkedQueue<>();
+
+        private Client(Long userId, String username, String token, long[] taskIds) {
+            this.userId = userId;
+            this.username = username;
+            this.token = token;
+            this.taskIds = taskIds;
+        }
+    }
+
+    private static final class Stats {
+        private final Recorder latency = new Recorder(3);
+        private final AtomicLong errors = new AtomicLong();
+        private Histogram histogram;
+        private double throughput;
+
+        private void finish(double elapsedSeconds) {
+            histogram = latency.getIntervalHistogram();
+            throughput = histogram.getTotalCount() / elapsedSeconds;
+        }
+
+        private void reset() {
+            latency.reset();
+            errors.set(0);
+        }
+    }
+}
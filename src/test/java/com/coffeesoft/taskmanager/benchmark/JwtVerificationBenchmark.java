@@ -0,0 +1,83 @@
+package com.coffeesoft.taskmanager.benchmark;
+
+import com.coffeesoft.taskmanager.model.Role;
+import com.coffeesoft.taskmanager.repository.UserRepository;
+import com.coffeesoft.taskmanager.security.JwtTokenProvider;
+import com.coffeesoft.taskmanager.security.UserDenylist;
+import com.coffeesoft.taskmanager.security.VerifiedToken;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token handling cost of one authenticated request: the former three full parses
+ * (validate, authenticate, controller lookup) versus one verification with and without the verified-token cache.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtVerificationBenchmark {
+    private static final String SECRET = "benchmark-secret";
+
+    private JwtTokenProvider cachingProvider;
+    private JwtTokenProvider uncachedProvider;
+    private String encodedSecret;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        cachingProvider = jwtTokenProvider(10000);
+        uncachedProvider = jwtTokenProvider(0);
+        encodedSecret = Base64.getEncoder().encodeToString(SECRET.getBytes(StandardCharsets.UTF_8));
+        token = cachingProvider.createToken(42L, "ivan_ivanov", Role.USER.name());
+        cachingProvider.verify(token);
+    }
+
+    @Benchmark
+    public void tripleParse(Blackhole blackhole) {
+        for (int i = 0; i < 3; i++) {
+            Claims claims = Jwts.parser().setSigningKey(encodedSecret).parseClaimsJws(token).getBody();
+            blackhole.consume(claims.getSubject());
+        }
+    }
+
+    @Benchmark
+    public VerifiedToken verifyUncached() {
+        return uncachedProvider.verify(token);
+    }
+
+    @Benchmark
+    public VerifiedToken verifyCached() {
+        return cachingProvider.verify(token);
+    }
+
+    private static JwtTokenProvider jwtTokenProvider(int cacheSize) {
+        JwtTokenProvider jwtTokenProvider = new JwtTokenProvider(Mockito.mock(UserDetailsService.class),
+                new UserDenylist(Mockito.mock(UserRepository.class)));
+        ReflectionTestUtils.setField(jwtTokenProvider, "secretKey", SECRET);
+        ReflectionTestUtils.setField(jwtTokenProvider, "validityInMilliSeconds", 3600L);
+        ReflectionTestUtils.setField(jwtTokenProvider, "verifiedCacheMaxSize", cacheSize);
+        ReflectionTestUtils.invokeMethod(jwtTokenProvider, "init");
+        return jwtTokenProvider;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JwtVerificationBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,65 @@
+package com.coffeesoft.taskmanager.benchmark;
+
+import com.coffeesoft.taskmanager.config.MetricsConfig;
+import com.coffeesoft.taskmanager.metrics.RequestMetrics;
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recording one request into the production histogram configuration: through {@link RequestMetrics}, which
+ * should allocate nothing once the endpoint is known (check {@code gc.alloc.rate.norm} with {@code -prof gc}),
+ * versus looking the timer up with a builder per request as a tag-based filter does.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RequestMetricsBenchmark {
+    private static final String METHOD = "GET";
+    private static final String PATTERN = "/api/tasks/{id}";
+
+    private SimpleMeterRegistry meterRegistry;
+    private RequestMetrics requestMetrics;
+    private long nanos;
+
+    @Setup
+    public void setUp() {
+        MetricsConfig config = new MetricsConfig();
+        meterRegistry = new SimpleMeterRegistry(config.simpleConfig(), Clock.SYSTEM);
+        meterRegistry.config().meterFilter(config.histogramMeterFilter());
+        requestMetrics = new RequestMetrics(meterRegistry);
+        requestMetrics.record(METHOD, PATTERN, 200, 1, 1);
+    }
+
+    @Benchmark
+    public void record() {
+        nanos = (nanos + 104_729) % 50_000_000;
+        requestMetrics.record(METHOD, PATTERN, 200, nanos, 3);
+    }
+
+    @Benchmark
+    public void recordWithTimerBuilder() {
+        nanos = (nanos + 104_729) % 50_000_000;
+        Timer.builder(RequestMetrics.REQUESTS)
+                .tag("endpoint", PATTERN)
+                .tag("method", METHOD)
+                .tag("status", Integer.toString(200))
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(RequestMetricsBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,87 @@
+package com.coffeesoft.taskmanager.benchmark;
+
+import com.coffeesoft.taskmanager.model.Role;
+import com.coffeesoft.taskmanager.model.Status;
+import com.coffeesoft.taskmanager.model.Task;
+import com.coffeesoft.taskmanager.model.TaskState;
+import com.coffeesoft.taskmanager.model.User;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson output of the response bodies the API returns most: one task, a user's task list and a user with its
+ * tasks, written with a mapper configured like the application's.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+    private static final LocalDateTime MORNING = LocalDateTime.of(2020, 8, 1, 9, 0);
+
+    @Param({"100"})
+    private int tasks;
+
+    private ObjectMapper objectMapper;
+    private ObjectWriter taskListWriter;
+    private User user;
+    private List<Task> userTasks;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        taskListWriter = objectMapper.writerFor(objectMapper.getTypeFactory()
+                .constructCollectionType(List.class, Task.class));
+        user = new User("Ivan Ivanov", "ivan_ivanov", "parolyaNet0");
+        user.setId(42L);
+        user.setRole(Role.USER);
+        user.setStatus(Status.ACTIVE);
+        userTasks = new ArrayList<>(tasks);
+        for (long id = 1; id <= tasks; id++) {
+            Task task = new Task("Task " + id, MORNING, MORNING.plusDays(7), true, true, true, user);
+            task.setId(id);
+            task.setDescription("Drink a glass of water and stretch");
+            task.setTime(MORNING.plusMinutes(id));
+            task.setTaskState(TaskState.WORK);
+            task.setWorkInterval(60);
+            task.setSleepInterval(30);
+            userTasks.add(task);
+        }
+        user.setTasks(new LinkedHashSet<>(userTasks));
+    }
+
+    @Benchmark
+    public byte[] task() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(userTasks.get(0));
+    }
+
+    @Benchmark
+    public byte[] taskList() throws JsonProcessingException {
+        return taskListWriter.writeValueAsBytes(userTasks);
+    }
+
+    @Benchmark
+    public byte[] userWithTasks() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(user);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(SerializationBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
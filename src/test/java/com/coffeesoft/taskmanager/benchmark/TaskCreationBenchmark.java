@@ -0,0 +1,85 @@
+package com.coffeesoft.taskmanager.benchmark;
+
+import com.coffeesoft.taskmanager.TaskManagerApplication;
+import com.coffeesoft.taskmanager.model.Role;
+import com.coffeesoft.taskmanager.model.Status;
+import com.coffeesoft.taskmanager.model.Task;
+import com.coffeesoft.taskmanager.model.User;
+import com.coffeesoft.taskmanager.service.TaskService;
+import com.coffeesoft.taskmanager.service.UserService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Task creation throughput against embedded H2 with pooled ids, with and without JDBC insert batching.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TaskCreationBenchmark {
+    private static final int TASKS_PER_TRANSACTION = 100;
+
+    @Param({"1", "50"})
+    private int jdbcBatchSize;
+
+    private ConfigurableApplicationContext context;
+    private TaskService taskService;
+    private TransactionTemplate transactionTemplate;
+    private EntityManager entityManager;
+    private Long userId;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        context = new SpringApplicationBuilder(TaskManagerApplication.class)
+                .properties(BenchmarkProperties.defaults())
+                .properties("task.persistence.jdbc-batch-size=" + jdbcBatchSize)
+                .run();
+        taskService = context.getBean(TaskService.class);
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        User newUser = new User("Benchmark User", "benchmark_user", "parolyaNet0");
+        newUser.setRole(Role.USER);
+        newUser.setStatus(Status.ACTIVE);
+        entityManager = SharedEntityManagerCreator.createSharedEntityManager(context.getBean(EntityManagerFactory.class));
+        userId = context.getBean(UserService.class).createUser(newUser).getId();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TASKS_PER_TRANSACTION)
+    public void createTasks() {
+        transactionTemplate.executeWithoutResult(status -> {
+            User user = entityManager.getReference(User.class, userId);
+            LocalDateTime startTime = LocalDateTime.now().plusMinutes(1);
+            for (int i = 0; i < TASKS_PER_TRANSACTION; i++) {
+                Task task = new Task("Benchmark task", startTime, startTime.plusMinutes(30), true, true, false, user);
+                task.setWorkInterval(30);
+                taskService.createTask(task);
+            }
+        });
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(TaskCreationBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,108 @@
+package com.coffeesoft.taskmanager.benchmark;
+
+import com.coffeesoft.taskmanager.model.Task;
+import com.coffeesoft.taskmanager.model.TaskOccurrence;
+import com.coffeesoft.taskmanager.model.TaskState;
+import com.coffeesoft.taskmanager.model.User;
+import com.coffeesoft.taskmanager.service.TaskOccurrenceIterator;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Expanding 10k repeating tasks over a 30-day window: the k-way merge drained fully and for a first page, versus
+ * walking every task with {@code LocalDateTime.plusMinutes}, collecting all occurrences and sorting them.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+@State(Scope.Benchmark)
+public class TaskOccurrenceBenchmark {
+    private static final int TASKS = 10_000;
+    private static final int PAGE = 1000;
+    private static final LocalDateTime FROM = LocalDateTime.of(2020, 9, 1, 0, 0);
+    private static final LocalDateTime TO = FROM.plusDays(30);
+    private static final Comparator<TaskOccurrence> BY_START = Comparator.comparing(TaskOccurrence::getStart)
+            .thenComparing(TaskOccurrence::getTaskId);
+
+    private List<Task> tasks;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        LocalDateTime origin = FROM.minusDays(30);
+        tasks = new ArrayList<>(TASKS);
+        User user = new User();
+        for (long id = 0; id < TASKS; id++) {
+            LocalDateTime startTime = origin.plusMinutes(random.nextInt(30 * 24 * 60));
+            Task task = new Task("Task " + id, startTime, startTime.plusDays(90), true, random.nextInt(10) > 0,
+                    true, user);
+            task.setId(id);
+            task.setWorkInterval(30 + random.nextInt(210));
+            task.setSleepInterval(60 + random.nextInt(1380));
+            tasks.add(task);
+        }
+    }
+
+    @Benchmark
+    public int kWayMerge(Blackhole blackhole) {
+        return drain(new TaskOccurrenceIterator(tasks, FROM, TO, Integer.MAX_VALUE), Integer.MAX_VALUE, blackhole);
+    }
+
+    @Benchmark
+    public int kWayMergeFirstPage(Blackhole blackhole) {
+        return drain(new TaskOccurrenceIterator(tasks, FROM, TO, PAGE), PAGE, blackhole);
+    }
+
+    @Benchmark
+    public int materializeAndSort(Blackhole blackhole) {
+        List<TaskOccurrence> occurrences = new ArrayList<>();
+        for (Task task : tasks) {
+            LocalDateTime cycle = task.getStartTime();
+            do {
+                LocalDateTime work = cycle.plusMinutes(task.getWorkInterval());
+                LocalDateTime next = work.plusMinutes(task.getSleepInterval());
+                addIfOverlaps(occurrences, task.getId(), TaskState.START, cycle, cycle);
+                addIfOverlaps(occurrences, task.getId(), TaskState.WORK, cycle, work);
+                addIfOverlaps(occurrences, task.getId(), TaskState.SLEEP, work, next);
+                cycle = next;
+            } while (task.getRepeat() && cycle.isBefore(task.getEndTime()) && cycle.isBefore(TO));
+        }
+        occurrences.sort(BY_START);
+        occurrences.forEach(blackhole::consume);
+        return occurrences.size();
+    }
+
+    private static void addIfOverlaps(List<TaskOccurrence> occurrences, Long taskId, TaskState state,
+                                      LocalDateTime start, LocalDateTime end) {
+        if (start.isBefore(TO) && (end.isAfter(FROM) || !start.isBefore(FROM))) {
+            occurrences.add(new TaskOccurrence(taskId, state, start, end));
+        }
+    }
+
+    private static int drain(TaskOccurrenceIterator iterator, int limit, Blackhole blackhole) {
+        int count = 0;
+        while (count < limit && iterator.hasNext()) {
+            blackhole.consume(iterator.next());
+            count++;
+        }
+        return count;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(TaskOccurrenceBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
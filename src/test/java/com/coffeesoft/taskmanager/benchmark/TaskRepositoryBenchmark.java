@@ -0,0 +1,108 @@
+package com.coffeesoft.taskmanager.benchmark;
+
+import com.coffeesoft.taskmanager.TaskManagerApplication;
+import com.coffeesoft.taskmanager.model.Role;
+import com.coffeesoft.taskmanager.model.Status;
+import com.coffeesoft.taskmanager.model.Task;
+import com.coffeesoft.taskmanager.model.TaskFilter;
+import com.coffeesoft.taskmanager.model.User;
+import com.coffeesoft.taskmanager.repository.TaskRepository;
+import com.coffeesoft.taskmanager.service.TaskService;
+import com.coffeesoft.taskmanager.service.UserService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Repository reads behind the task endpoints against embedded H2, each in its own read transaction like a
+ * request: a task by id and owner, the next due task, a user's active tasks and the first page of a listing.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TaskRepositoryBenchmark {
+    private static final LocalDateTime MORNING = LocalDateTime.of(2020, 8, 1, 9, 0);
+    private static final int PAGE = 50;
+
+    @Param({"500"})
+    private int tasks;
+
+    private ConfigurableApplicationContext context;
+    private TaskRepository taskRepository;
+    private TransactionTemplate readOnly;
+    private Long userId;
+    private Long taskId;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        context = new SpringApplicationBuilder(TaskManagerApplication.class)
+                .properties(BenchmarkProperties.defaults())
+                .run();
+        taskRepository = context.getBean(TaskRepository.class);
+        readOnly = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnly.setReadOnly(true);
+        User newUser = new User("Benchmark User", "benchmark_user", "parolyaNet0");
+        newUser.setRole(Role.USER);
+        newUser.setStatus(Status.ACTIVE);
+        userId = context.getBean(UserService.class).createUser(newUser).getId();
+        User owner = new User();
+        owner.setId(userId);
+        List<Task> newTasks = new ArrayList<>(tasks);
+        for (int i = 0; i < tasks; i++) {
+            LocalDateTime startTime = MORNING.plusMinutes(i);
+            Task task = new Task("Task " + i, startTime, startTime.plusDays(7), i % 5 != 0, true, true, owner);
+            task.setTime(startTime);
+            task.setWorkInterval(60);
+            task.setSleepInterval(30);
+            newTasks.add(task);
+        }
+        List<Task> created = context.getBean(TaskService.class).createTasks(newTasks, userId);
+        taskId = created.get(created.size() / 2).getId();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Optional<Task> findByIdAndUserId() {
+        return readOnly.execute(status -> taskRepository.findByIdAndUserId(taskId, userId));
+    }
+
+    @Benchmark
+    public Optional<Task> findNextDue() {
+        return readOnly.execute(status ->
+                taskRepository.findNextOrCurrentTaskAfterTimeByUserId(MORNING.plusHours(4), userId));
+    }
+
+    @Benchmark
+    public List<Task> findActiveByUserId() {
+        return readOnly.execute(status -> taskRepository.findByUserIdAndActiveTrue(userId));
+    }
+
+    @Benchmark
+    public List<Task> findFirstPage() {
+        return readOnly.execute(status -> taskRepository.findPageByUserId(userId, new TaskFilter(), null, PAGE));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(TaskRepositoryBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,88 @@
+package com.coffeesoft.taskmanager.benchmark;
+
+import com.coffeesoft.taskmanager.model.Task;
+import com.coffeesoft.taskmanager.model.TaskState;
+import com.coffeesoft.taskmanager.scheduler.HierarchicalTimerWheel;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one scheduler tick: advancing the timer wheel by one second versus scanning
+ * every task the way a {@code TaskRepository.findAll()} poll would (without the JDBC cost).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class TaskSchedulerBenchmark {
+    private static final long TICK_MILLIS = 1000L;
+    private static final long HORIZON_MILLIS = 3600_000L;
+    private static final long START = LocalDateTime.of(2020, 8, 1, 0, 0).toInstant(ZoneOffset.UTC).toEpochMilli();
+
+    @Param({"10000", "100000", "500000"})
+    private int tasks;
+
+    private HierarchicalTimerWheel<Long> wheel;
+    private List<Task> allTasks;
+    private long now;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        wheel = new HierarchicalTimerWheel<>(TICK_MILLIS, START);
+        allTasks = new ArrayList<>(tasks);
+        for (long id = 0; id < tasks; id++) {
+            long deadline = START + random.nextLong(HORIZON_MILLIS);
+            wheel.schedule(id, deadline);
+            Task task = new Task();
+            task.setId(id);
+            task.setTime(LocalDateTime.ofEpochSecond(deadline / 1000, 0, ZoneOffset.UTC));
+            task.setTaskState(TaskState.START);
+            allTasks.add(task);
+        }
+        now = START;
+    }
+
+    @Benchmark
+    public int timerWheelTick(Blackhole blackhole) {
+        now += TICK_MILLIS;
+        long reschedule = now + HORIZON_MILLIS;
+        return wheel.advance(now, taskId -> {
+            blackhole.consume(taskId);
+            wheel.schedule(taskId, reschedule);
+        });
+    }
+
+    @Benchmark
+    public int naiveScanTick(Blackhole blackhole) {
+        now += TICK_MILLIS;
+        LocalDateTime current = LocalDateTime.ofEpochSecond(now / 1000, 0, ZoneOffset.UTC);
+        int due = 0;
+        for (Task task : allTasks) {
+            if (!task.getTime().isAfter(current)) {
+                blackhole.consume(task);
+                task.setTime(current.plusHours(1));
+                due++;
+            }
+        }
+        return due;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(TaskSchedulerBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
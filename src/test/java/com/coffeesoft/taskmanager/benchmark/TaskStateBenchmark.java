@@ -0,0 +1,74 @@
+package com.coffeesoft.taskmanager.benchmark;
+
+import com.coffeesoft.taskmanager.model.Task;
+import com.coffeesoft.taskmanager.model.TaskState;
+import com.coffeesoft.taskmanager.model.User;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Task state transitions: one step of {@link Task#setTaskStateAndNextTimeAfter}, replaying steps until a task
+ * that fell {@code hoursBehind} behind is current, and the closed form {@link Task#setTaskStateAndNextTimeAt}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class TaskStateBenchmark {
+    private static final LocalDateTime MORNING = LocalDateTime.of(2020, 8, 1, 9, 0);
+
+    @Param({"1", "720"})
+    private int hoursBehind;
+
+    private Task task;
+    private LocalDateTime now;
+
+    @Setup
+    public void setUp() {
+        task = new Task("Drink water", MORNING, MORNING.plusDays(60), true, true, true, new User());
+        task.setWorkInterval(45);
+        task.setSleepInterval(15);
+        now = MORNING.plusHours(hoursBehind);
+    }
+
+    @Benchmark
+    public Task step() {
+        reset();
+        task.setTaskStateAndNextTimeAfter(MORNING);
+        return task;
+    }
+
+    @Benchmark
+    public Task replaySteps() {
+        reset();
+        while (!task.getTime().isAfter(now) && task.getTaskState() != TaskState.FINISH) {
+            task.setTaskStateAndNextTimeAfter(now);
+        }
+        return task;
+    }
+
+    @Benchmark
+    public Task closedForm() {
+        reset();
+        task.setTaskStateAndNextTimeAt(now);
+        return task;
+    }
+
+    private void reset() {
+        task.setTaskState(TaskState.DISABLE);
+        task.setTime(MORNING);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(TaskStateBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
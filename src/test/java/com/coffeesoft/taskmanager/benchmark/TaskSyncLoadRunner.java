@@ -0,0 +1,186 @@
+package com.coffeesoft.taskmanager.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.coffeesoft.taskmanager.TaskManagerApplication;
+import com.coffeesoft.taskmanager.model.Role;
+import com.coffeesoft.taskmanager.model.Status;
+import com.coffeesoft.taskmanager.model.Task;
+import com.coffeesoft.taskmanager.model.TaskState;
+import com.coffeesoft.taskmanager.model.User;
+import com.coffeesoft.taskmanager.repository.UserRepository;
+import com.coffeesoft.taskmanager.security.JwtTokenProvider;
+import com.coffeesoft.taskmanager.service.TaskService;
+import com.coffeesoft.taskmanager.websocket.TaskSyncHandler;
+import com.sun.management.UnixOperatingSystemMXBean;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import javax.websocket.ContainerProvider;
+import javax.websocket.WebSocketContainer;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Holds many concurrent task sync sessions against one node and measures how long a change takes to reach every
+ * session of its user. Server and clients run as separate processes so each stays within its own descriptor limit:
+ * <pre>
+ *   TaskSyncLoadRunner server &lt;users&gt; &lt;tokens-file&gt;
+ *   TaskSyncLoadRunner client &lt;sessions&gt; &lt;tokens-file&gt; [ws://localhost:8080/api/tasks/sync]
+ * </pre>
+ */
+public class TaskSyncLoadRunner {
+    private static final int TASKS_PER_USER = 10;
+    private static final int CONNECT_CONCURRENCY = 64;
+    private static final int ROUNDS = 10;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length >= 3 && args[0].equals("server")) {
+            runServer(Integer.parseInt(args[1]), Paths.get(args[2]));
+        } else if (args.length >= 3 && args[0].equals("client")) {
+            runClients(Integer.parseInt(args[1]), Paths.get(args[2]),
+                    URI.create(args.length > 3 ? args[3] : "ws://localhost:8080/api/tasks/sync"));
+        } else {
+            System.err.println("Usage: TaskSyncLoadRunner server <users> <tokens-file> | client <sessions> <tokens-file> [url]");
+        }
+    }
+
+    private static void runServer(int users, Path tokensFile) throws IOException {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(TaskManagerApplication.class)
+                .properties(BenchmarkProperties.defaults())
+                .properties("server.port=8080", "server.tomcat.max-connections=20000", "jwt.expiration=86400")
+                .run();
+        UserRepository userRepository = context.getBean(UserRepository.class);
+        TaskService taskService = context.getBean(TaskService.class);
+        JwtTokenProvider jwtTokenProvider = context.getBean(JwtTokenProvider.class);
+        List<String> tokens = new ArrayList<>(users);
+        for (int i = 0; i < users; i++) {
+            User user = new User("Load User", "load_user_" + i, "parolyaNet0");
+            user.setRole(Role.ADMIN);
+            user.setStatus(Status.ACTIVE);
+            user = userRepository.save(user);
+            List<Task> tasks = new ArrayList<>(TASKS_PER_USER);
+            for (int j = 0; j < TASKS_PER_USER; j++) {
+                tasks.add(newTask("Task " + j, user));
+            }
+            taskService.createTasks(tasks, user.getId());
+            tokens.add(jwtTokenProvider.createToken(user.getId(), user.getUsername(), Role.ADMIN.name()));
+        }
+        Files.write(tokensFile, tokens);
+        System.out.printf("Seeded %d users, tokens written to %s%n", users, tokensFile);
+
+        TaskSyncHandler handler = context.getBean(TaskSyncHandler.class);
+        UnixOperatingSystemMXBean os = (UnixOperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+        Executors.newSingleThreadScheduledExecutor().scheduleAtFixedRate(() -> {
+            Runtime runtime = Runtime.getRuntime();
+            System.out.printf("server: sessions=%d heapUsedMb=%d threads=%d openFds=%d%n",
+                    handler.getSessionCount(), (runtime.totalMemory() - runtime.freeMemory()) >> 20,
+                    Thread.activeCount(), os.getOpenFileDescriptorCount());
+        }, 5, 5, TimeUnit.SECONDS);
+    }
+
+    private static void runClients(int sessionCount, Path tokensFile, URI uri) throws Exception {
+        ((Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+        List<String> tokens = Files.readAllLines(tokensFile);
+        int users = tokens.size();
+        AtomicLongArray sentAt = new AtomicLongArray(users);
+        ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+        CountDownLatch snapshots = new CountDownLatch(sessionCount);
+        AtomicInteger failures = new AtomicInteger();
+        WebSocketSession[] firstSessions = new WebSocketSession[users];
+        List<WebSocketSession> sessions = new CopyOnWriteArrayList<>();
+        Semaphore inFlight = new Semaphore(CONNECT_CONCURRENCY);
+        WebSocketContainer container = ContainerProvider.getWebSocketContainer();
+        container.setDefaultMaxTextMessageBufferSize(16 * 1024);
+        StandardWebSocketClient client = new StandardWebSocketClient(container);
+
+        long connectStart = System.nanoTime();
+        for (int i = 0; i < sessionCount; i++) {
+            int user = i % users;
+            WebSocketHttpHeaders headers = new WebSocketHttpHeaders();
+            headers.add("Authorization", tokens.get(user));
+            inFlight.acquire();
+            client.doHandshake(new TextWebSocketHandler() {
+                @Override
+                protected void handleTextMessage(WebSocketSession session, TextMessage message) {
+                    String payload = message.getPayload();
+                    if (payload.startsWith("{\"type\":\"snapshot\"")) {
+                        snapshots.countDown();
+                    } else if (payload.startsWith("{\"type\":\"delta\"")) {
+                        latencies.add(System.nanoTime() - sentAt.get(user));
+                    }
+                }
+            }, headers, uri).addCallback(session -> {
+                sessions.add(session);
+                if (firstSessions[user] == null) {
+                    firstSessions[user] = session;
+                }
+                inFlight.release();
+            }, error -> {
+                if (failures.getAndIncrement() == 0) {
+                    error.printStackTrace();
+                }
+                inFlight.release();
+            });
+        }
+        long connectDeadline = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(5);
+        while (snapshots.getCount() > failures.get() && System.currentTimeMillis() < connectDeadline) {
+            Thread.sleep(10);
+        }
+        long connectMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - connectStart);
+        System.out.printf("client: connected=%d failed=%d snapshots=%d in %d ms%n",
+                sessions.size(), failures.get(), sessionCount - snapshots.getCount(), connectMillis);
+
+        for (int round = 0; round < ROUNDS; round++) {
+            latencies.clear();
+            for (int user = 0; user < users; user++) {
+                sentAt.set(user, System.nanoTime());
+                firstSessions[user].sendMessage(new TextMessage("{\"type\":\"commands\",\"commands\":[{\"op\":\"create\"," +
+                        "\"task\":{\"title\":\"Round " + round + "\",\"startTime\":\"2020-08-01T09:00:00\"," +
+                        "\"endTime\":\"2020-08-01T17:00:00\",\"active\":false,\"repeat\":false,\"sleep\":false}}]}"));
+            }
+            long deadline = System.currentTimeMillis() + 30000;
+            while (latencies.size() < sessions.size() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+            System.out.printf("round %d: deltas=%d/%d p50=%.1f ms p99=%.1f ms max=%.1f ms%n", round, sorted.length,
+                    sessions.size(), percentile(sorted, 0.50), percentile(sorted, 0.99), percentile(sorted, 1.0));
+        }
+        for (WebSocketSession session : sessions) {
+            session.close();
+        }
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return Double.NaN;
+        }
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(quantile * sorted.length) - 1);
+        return sorted[Math.max(index, 0)] / 1_000_000.0;
+    }
+
+    private static Task newTask(String title, User user) {
+        LocalDateTime startTime = LocalDateTime.of(2020, 8, 1, 9, 0);
+        Task task = new Task(title, startTime, startTime.plusHours(8), false, false, false, user);
+        task.setWorkInterval(60);
+        task.setTaskState(TaskState.DISABLE);
+        return task;
+    }
+}
@@ -0,0 +1,166 @@
+package com.coffeesoft.taskmanager.benchmark;
+
+import com.coffeesoft.taskmanager.TaskManagerApplication;
+import com.coffeesoft.taskmanager.model.Role;
+import com.coffeesoft.taskmanager.model.Status;
+import com.coffeesoft.taskmanager.model.Task;
+import com.coffeesoft.taskmanager.model.TaskState;
+import com.coffeesoft.taskmanager.model.User;
+import com.coffeesoft.taskmanager.service.TaskService;
+import com.coffeesoft.taskmanager.service.UserService;
+import com.coffeesoft.taskmanager.support.SqlStatementCounter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Transition-heavy task write workload: nine scheduler transitions for every user edit of one flag, on tasks
+ * carrying a full-length (255 character) description. {@code fullRow} replays the static all-column UPDATE that
+ * {@code save()} sent before {@code @DynamicUpdate}; {@code dynamic} goes through {@link TaskService} as the
+ * application does.
+ * Auxiliary counters report statements and an estimate of bytes sent (SQL text plus bound values) as rates; divide
+ * them by the primary score for per-operation values. The {@code fullRow} replay skips Hibernate, so compare the
+ * counters rather than the throughput.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TaskUpdateBenchmark {
+    private static final int TASKS = 1000;
+    private static final int DESCRIPTION_LENGTH = 255;
+    private static final String FULL_ROW_SQL = "update task set active=?, description=?, end_time=?, repeat=?, " +
+            "sleep=?, sleep_interval=?, start_time=?, task_state=?, time=?, title=?, user_id=?, version=?, " +
+            "work_interval=? where id=? and version=?";
+    private static final String TASKS_VERSION_SQL = "update users set tasks_version=tasks_version+1 where id=?";
+    private static final Pattern PARAMETER = Pattern.compile("(\\w+)\\s*=\\s*\\?");
+
+    @Param({"fullRow", "dynamic"})
+    private String mode;
+
+    private ConfigurableApplicationContext context;
+    private TaskService taskService;
+    private TransactionTemplate transactionTemplate;
+    private JdbcTemplate jdbcTemplate;
+    private EntityManager entityManager;
+    private final List<Long> taskIds = new ArrayList<>(TASKS);
+    private Long userId;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        context = new SpringApplicationBuilder(TaskManagerApplication.class)
+                .properties(BenchmarkProperties.defaults())
+                .properties(SqlStatementCounter.PROPERTY)
+                .run();
+        taskService = context.getBean(TaskService.class);
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        entityManager = SharedEntityManagerCreator.createSharedEntityManager(context.getBean(EntityManagerFactory.class));
+        User newUser = new User("Benchmark User", "benchmark_user", "parolyaNet0");
+        newUser.setRole(Role.USER);
+        newUser.setStatus(Status.ACTIVE);
+        User user = context.getBean(UserService.class).createUser(newUser);
+        userId = user.getId();
+        List<Task> tasks = new ArrayList<>(TASKS);
+        LocalDateTime startTime = LocalDateTime.of(2020, 8, 1, 9, 0);
+        for (int i = 0; i < TASKS; i++) {
+            Task task = new Task("Benchmark task " + i, startTime, startTime.plusHours(8), true, true, false, user);
+            task.setDescription("x".repeat(DESCRIPTION_LENGTH));
+            task.setWorkInterval(30);
+            tasks.add(task);
+        }
+        taskService.createTasks(tasks, userId).forEach(task -> taskIds.add(task.getId()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Traffic {
+        public long statements;
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            statements = 0;
+            bytes = 0;
+        }
+    }
+
+    @Benchmark
+    public void transitionHeavyWrites(Traffic traffic) {
+        int operation = next++;
+        Long taskId = taskIds.get(operation % TASKS);
+        boolean edit = operation % 10 == 0;
+        SqlStatementCounter.reset();
+        transactionTemplate.executeWithoutResult(status -> {
+            Task task = entityManager.find(Task.class, taskId);
+            if (edit) {
+                task.setRepeat(!task.getRepeat());
+            } else {
+                task.setTaskState(task.getTaskState() == TaskState.WORK ? TaskState.START : TaskState.WORK);
+                task.setTime(task.getTime().plusMinutes(1));
+            }
+            if (mode.equals("fullRow")) {
+                entityManager.detach(task);
+                writeFullRow(task, traffic);
+            } else if (edit) {
+                taskService.updateTask(task);
+            } else {
+                taskService.updateTaskState(task);
+            }
+        });
+        for (String sql : SqlStatementCounter.statements()) {
+            count(sql, traffic);
+        }
+    }
+
+    private void writeFullRow(Task task, Traffic traffic) {
+        jdbcTemplate.update(FULL_ROW_SQL, task.getActive(), task.getDescription(), Timestamp.valueOf(task.getEndTime()),
+                task.getRepeat(), task.getSleep(), task.getSleepInterval(), Timestamp.valueOf(task.getStartTime()),
+                task.getTaskState().ordinal(), Timestamp.valueOf(task.getTime()), task.getTitle(), userId,
+                task.getVersion() + 1, task.getWorkInterval(), task.getId(), task.getVersion());
+        jdbcTemplate.update(TASKS_VERSION_SQL, userId);
+        count(FULL_ROW_SQL, traffic);
+        count(TASKS_VERSION_SQL, traffic);
+    }
+
+    private static void count(String sql, Traffic traffic) {
+        traffic.statements++;
+        traffic.bytes += sql.length();
+        Matcher matcher = PARAMETER.matcher(sql);
+        while (matcher.find()) {
+            String column = matcher.group(1);
+            traffic.bytes += column.endsWith("description") ? DESCRIPTION_LENGTH : column.endsWith("title") ? 20 : 8;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(TaskUpdateBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
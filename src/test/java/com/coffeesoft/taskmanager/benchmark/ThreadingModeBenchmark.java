@@ -0,0 +1,60 @@
+package com.coffeesoft.taskmanager.benchmark;
+
+import com.coffeesoft.taskmanager.config.VirtualThreads;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs the same {@link HttpLoadRunner} load against platform and then virtual request threads, each in a fresh JVM,
+ * and prints the virtual run's throughput and p99 change per endpoint against the platform run:
+ * <pre>
+ *   ThreadingModeBenchmark &lt;requests-per-second&gt; &lt;seconds&gt; [users] [tasks-per-user]
+ * </pre>
+ * The reports are kept as {@code target/load-platform.json} and {@code target/load-virtual.json}. {@code load.*},
+ * {@code server.*} and {@code spring.*} system properties are passed on to both runs, so for example
+ * {@code -Dspring.datasource.hikari.maximum-pool-size=20} applies to each. Needs Java 21 or newer.
+ */
+public class ThreadingModeBenchmark {
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 2) {
+            System.err.println("Usage: ThreadingModeBenchmark <requests-per-second> <seconds> [users] [tasks-per-user]");
+            System.exit(2);
+        }
+        if (!VirtualThreads.isSupported()) {
+            System.err.printf("Virtual threads need Java 21 or newer, running on Java %d%n",
+                    Runtime.version().feature());
+            System.exit(2);
+        }
+        String users = args.length > 2 ? args[2] : "50";
+        String tasks = args.length > 3 ? args[3] : "20";
+        File platform = new File("target/load-platform.json");
+        File virtual = new File("target/load-virtual.json");
+
+        System.out.println("Platform threads");
+        int status = run(false, args[0], args[1], users, tasks, platform.getPath());
+        if (status == 0) {
+            System.out.println("Virtual threads, compared with platform threads");
+            status = run(true, args[0], args[1], users, tasks, virtual.getPath(), platform.getPath());
+        }
+        System.exit(status);
+    }
+
+    private static int run(boolean virtualThreads, String... args) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        System.getProperties().stringPropertyNames().stream()
+                .filter(name -> name.startsWith("load.") || name.startsWith("server.") || name.startsWith("spring."))
+                .forEach(name -> command.add("-D" + name + "=" + System.getProperty(name)));
+        command.add("-Dserver.threads.virtual=" + virtualThreads);
+        command.add(HttpLoadRunner.class.getName());
+        command.addAll(List.of(args));
+        return new ProcessBuilder(command).inheritIO().start().waitFor();
+    }
+}
@@ -0,0 +1,56 @@
+package com.coffeesoft.taskmanager.config;
+
+import com.coffeesoft.taskmanager.repository.ConnectionLimitingDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {"jwt.secret=secret", "jwt.header=Authorization", "jwt.expiration=3600",
+        "spring.datasource.limiter.enabled=true", "spring.datasource.limiter.permits=4"})
+@AutoConfigureTestDatabase
+class ThreadingConfigTest {
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void dataSourceIsLimitedWhenEnabled() {
+        assertThat(dataSource).isInstanceOf(ConnectionLimitingDataSource.class);
+
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Integer.class)).isNotNull();
+
+        assertThat(((ConnectionLimitingDataSource) dataSource).availablePermits()).isEqualTo(4);
+        assertThat(meterRegistry.get(ConnectionLimitingDataSource.WAIT_METER).timer().count()).isPositive();
+    }
+
+    @Test
+    void virtualThreadsNeedJava21() throws Exception {
+        if (!VirtualThreads.isSupported()) {
+            Assertions.assertThrows(IllegalStateException.class, () -> VirtualThreads.newExecutor("test-"));
+            return;
+        }
+        ExecutorService executor = VirtualThreads.newExecutor("test-");
+        try {
+            Object virtual = executor.submit(() -> Thread.class.getMethod("isVirtual").invoke(Thread.currentThread()))
+                    .get(5, TimeUnit.SECONDS);
+            assertThat(virtual).isEqualTo(true);
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
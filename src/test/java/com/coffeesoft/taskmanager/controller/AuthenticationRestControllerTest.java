@@ -0,0 +1,103 @@
+package com.coffeesoft.taskmanager.controller;
+
+import com.coffeesoft.taskmanager.model.Role;
+import com.coffeesoft.taskmanager.model.Status;
+import com.coffeesoft.taskmanager.model.User;
+import com.coffeesoft.taskmanager.repository.UserRepository;
+import com.coffeesoft.taskmanager.security.JwtTokenProvider;
+import com.coffeesoft.taskmanager.security.PrincipalCache;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.jdbc.JdbcTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {"jwt.secret=secret", "jwt.header=Authorization", "jwt.expiration=3600",
+        "security.password-hashing.cost=5", "jwt.verified-cache.max-size=0"})
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+class AuthenticationRestControllerTest {
+    private static final String LOGIN = "{\"username\":\"ivan_ivanov\",\"password\":\"parolyaNet0\"}";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PrincipalCache principalCache;
+
+    @SpyBean
+    private JwtTokenProvider jwtTokenProvider;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        user = new User("Ivan Ivanov", "ivan_ivanov", new BCryptPasswordEncoder(4).encode("parolyaNet0"));
+        user.setRole(Role.USER);
+        user.setStatus(Status.ACTIVE);
+        user = userRepository.save(user);
+    }
+
+    @AfterEach
+    void tearDown() {
+        JdbcTestUtils.deleteFromTables(jdbcTemplate, "task", "users");
+        principalCache.invalidate(user.getId());
+    }
+
+    @Test
+    void loginRehashesLegacyPassword() throws Exception {
+        MvcResult started = mockMvc.perform(post("/api/login").contentType(MediaType.APPLICATION_JSON).content(LOGIN))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(started)).andExpect(status().isOk());
+
+        String password = userRepository.findById(user.getId()).orElseThrow().getPassword();
+        assertThat(password).startsWith("{bcrypt}$2a$05$");
+    }
+
+    @Test
+    void wrongPasswordIsForbidden() throws Exception {
+        MvcResult started = mockMvc.perform(post("/api/login").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"username\":\"ivan_ivanov\",\"password\":\"wrong\"}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(started)).andExpect(status().isForbidden());
+    }
+
+    @Test
+    void profileReusesTokenVerifiedByFilter() throws Exception {
+        String token = jwtTokenProvider.createToken(user.getId(), user.getUsername(), Role.USER.name());
+
+        mockMvc.perform(get("/api/me").header("Authorization", token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.username").value("ivan_ivanov"));
+
+        Mockito.verify(jwtTokenProvider, Mockito.times(1)).verify(token);
+    }
+}
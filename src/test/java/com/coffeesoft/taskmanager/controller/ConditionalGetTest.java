@@ -0,0 +1,138 @@
+package com.coffeesoft.taskmanager.controller;
+
+import com.coffeesoft.taskmanager.model.Role;
+import com.coffeesoft.taskmanager.model.Status;
+import com.coffeesoft.taskmanager.model.Task;
+import com.coffeesoft.taskmanager.model.TaskState;
+import com.coffeesoft.taskmanager.model.User;
+import com.coffeesoft.taskmanager.repository.UserRepository;
+import com.coffeesoft.taskmanager.security.JwtTokenProvider;
+import com.coffeesoft.taskmanager.security.PrincipalCache;
+import com.coffeesoft.taskmanager.service.TaskService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.jdbc.JdbcTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {"jwt.secret=secret", "jwt.header=Authorization", "jwt.expiration=3600"})
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+class ConditionalGetTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TaskService taskService;
+
+    @Autowired
+    private JwtTokenProvider jwtTokenProvider;
+
+    @Autowired
+    private PrincipalCache principalCache;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User user;
+    private Task task;
+    private String token;
+
+    @BeforeEach
+    void setUp() {
+        user = new User("Ivan Ivanov", "ivan_ivanov", "parolyaNet0");
+        user.setRole(Role.USER);
+        user.setStatus(Status.ACTIVE);
+        user = userRepository.save(user);
+        LocalDateTime startTime = LocalDateTime.of(2020, 8, 1, 9, 0);
+        Task newTask = new Task("Drink water", startTime, startTime.plusHours(8), false, true, false, user);
+        newTask.setWorkInterval(60);
+        newTask.setTaskState(TaskState.DISABLE);
+        task = taskService.createTasks(List.of(newTask), user.getId()).get(0);
+        token = jwtTokenProvider.createToken(user.getId(), user.getUsername(), Role.USER.name());
+    }
+
+    @AfterEach
+    void tearDown() {
+        JdbcTestUtils.deleteFromTables(jdbcTemplate, "task", "users");
+        principalCache.invalidate(user.getId());
+    }
+
+    @Test
+    void taskIsNotModifiedUntilUpdated() throws Exception {
+        String etag = etagOf("/api/task/" + task.getId());
+        Task stored = taskService.getTaskById(task.getId());
+        assertThat(etag).isEqualTo(String.format("\"task-%d-%d-%d-%d.%09d\"", task.getId(), stored.getVersion(),
+                stored.getTaskState().ordinal(), stored.getTime().toEpochSecond(ZoneOffset.UTC),
+                stored.getTime().getNano()));
+
+        mockMvc.perform(get("/api/task/" + task.getId()).header("Authorization", token).header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", etag));
+
+        Task taskDb = taskService.getTaskById(task.getId());
+        taskDb.setDescription("Eight glasses");
+        taskService.updateTask(taskDb);
+
+        mockMvc.perform(get("/api/task/" + task.getId()).header("Authorization", token).header("If-None-Match", etag))
+                .andExpect(status().isOk());
+        assertThat(etagOf("/api/task/" + task.getId())).isNotEqualTo(etag);
+    }
+
+    @Test
+    void taskListChangesWithAnyTaskOfUser() throws Exception {
+        String etag = etagOf("/api/tasks");
+
+        mockMvc.perform(get("/api/tasks").header("Authorization", token).header("If-None-Match", "W/" + etag))
+                .andExpect(status().isNotModified());
+
+        taskService.deleteTaskById(task.getId());
+
+        mockMvc.perform(get("/api/tasks").header("Authorization", token).header("If-None-Match", etag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void profileChangesWithTasksOfUser() throws Exception {
+        String etag = etagOf("/api/me");
+
+        mockMvc.perform(get("/api/me").header("Authorization", token).header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+
+        Task taskDb = taskService.getTaskById(task.getId());
+        taskDb.setTitle("Drink more water");
+        taskService.updateTask(taskDb);
+
+        assertThat(etagOf("/api/me")).isNotEqualTo(etag);
+    }
+
+    @Test
+    void unknownTaskIsNotFoundEvenWhenConditional() throws Exception {
+        mockMvc.perform(get("/api/task/-1").header("Authorization", token).header("If-None-Match", "*"))
+                .andExpect(status().isNotFound());
+    }
+
+    private String etagOf(String path) throws Exception {
+        return mockMvc.perform(get(path).header("Authorization", token))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "no-cache, private"))
+                .andReturn().getResponse().getHeader("ETag");
+    }
+}
@@ -0,0 +1,130 @@
+package com.coffeesoft.taskmanager.controller;
+
+import com.coffeesoft.taskmanager.model.Role;
+import com.coffeesoft.taskmanager.model.Status;
+import com.coffeesoft.taskmanager.model.User;
+import com.coffeesoft.taskmanager.repository.UserRepository;
+import com.coffeesoft.taskmanager.security.JwtTokenProvider;
+import com.coffeesoft.taskmanager.security.PrincipalCache;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.jdbc.JdbcTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {"jwt.secret=secret", "jwt.header=Authorization", "jwt.expiration=3600"})
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+class MetricsControllerTest {
+    private static final Pattern QUERIES_SUM =
+            Pattern.compile("api_requests_queries_sum\\{endpoint=\"/api/tasks\",method=\"GET\"} ([0-9.]+)");
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JwtTokenProvider jwtTokenProvider;
+
+    @Autowired
+    private PrincipalCache principalCache;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User admin;
+    private String adminToken;
+
+    @BeforeEach
+    void setUp() {
+        admin = new User("Ivan Ivanov", "ivan_ivanov", "parolyaNet0");
+        admin.setRole(Role.ADMIN);
+        admin.setStatus(Status.ACTIVE);
+        admin = userRepository.save(admin);
+        adminToken = jwtTokenProvider.createToken(admin.getId(), admin.getUsername(), Role.ADMIN.name());
+    }
+
+    @AfterEach
+    void tearDown() {
+        JdbcTestUtils.deleteFromTables(jdbcTemplate, "task", "users");
+        principalCache.invalidate(admin.getId());
+    }
+
+    @Test
+    void scrapeReportsRequestLatencyQueriesAndTokenVerification() throws Exception {
+        mockMvc.perform(get("/api/tasks").header("Authorization", adminToken)).andExpect(status().isOk());
+
+        String scrape = mockMvc.perform(get("/api/admin/metrics").header("Authorization", adminToken))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "text/plain;version=0.0.4;charset=utf-8"))
+                .andReturn().getResponse().getContentAsString();
+
+        assertThat(scrape)
+                .contains("api_requests_seconds_bucket{endpoint=\"/api/tasks\",method=\"GET\",status=\"200\",le=")
+                .contains("security_jwt_verify_seconds_count{outcome=\"valid\"}");
+        Matcher queries = QUERIES_SUM.matcher(scrape);
+        assertThat(queries.find()).isTrue();
+        assertThat(Double.parseDouble(queries.group(1))).isPositive();
+    }
+
+    @Test
+    void asyncLoginIsRecordedWithItsQueries() throws Exception {
+        User user = new User("Petr Petrov", "petr_petrov", new BCryptPasswordEncoder(4).encode("parolyaNet0"));
+        user.setRole(Role.USER);
+        user.setStatus(Status.ACTIVE);
+        user = userRepository.save(user);
+
+        MvcResult started = mockMvc.perform(post("/api/login").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"username\":\"petr_petrov\",\"password\":\"parolyaNet0\"}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(started)).andExpect(status().isOk());
+        principalCache.invalidate(user.getId());
+
+        String scrape = mockMvc.perform(get("/api/admin/metrics").header("Authorization", adminToken))
+                .andReturn().getResponse().getContentAsString();
+        assertThat(scrape).contains("api_requests_seconds_count{endpoint=\"/api/login\",method=\"POST\",status=\"200\"}");
+        Matcher queries = Pattern.compile(
+                "api_requests_queries_sum\\{endpoint=\"/api/login\",method=\"POST\"} ([0-9.]+)").matcher(scrape);
+        assertThat(queries.find()).isTrue();
+        assertThat(Double.parseDouble(queries.group(1))).isPositive();
+    }
+
+    @Test
+    void scrapeRequiresAdminAndRecordsTheRejection() throws Exception {
+        User user = new User("Petr Petrov", "petr_petrov", "parolyaNet0");
+        user.setRole(Role.USER);
+        user.setStatus(Status.ACTIVE);
+        user = userRepository.save(user);
+        String userToken = jwtTokenProvider.createToken(user.getId(), user.getUsername(), Role.USER.name());
+
+        mockMvc.perform(get("/api/admin/metrics").header("Authorization", userToken))
+                .andExpect(status().isForbidden());
+        principalCache.invalidate(user.getId());
+
+        String scrape = mockMvc.perform(get("/api/admin/metrics").header("Authorization", adminToken))
+                .andReturn().getResponse().getContentAsString();
+        assertThat(scrape).contains("api_requests_seconds_count{endpoint=\"/api/admin/metrics\",method=\"GET\",status=\"403\"}");
+    }
+}
@@ -0,0 +1,169 @@
+package com.coffeesoft.taskmanager.controller;
+
+import com.coffeesoft.taskmanager.model.*;
+import com.coffeesoft.taskmanager.repository.UserRepository;
+import com.coffeesoft.taskmanager.security.JwtTokenProvider;
+import com.coffeesoft.taskmanager.security.PrincipalCache;
+import com.coffeesoft.taskmanager.service.TaskService;
+import com.coffeesoft.taskmanager.service.UserService;
+import com.coffeesoft.taskmanager.support.SqlStatementCounter;
+import org.hibernate.Hibernate;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.jdbc.JdbcTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {"jwt.secret=secret", "jwt.header=Authorization", "jwt.expiration=3600",
+        "task.next-due-index.enabled=true", SqlStatementCounter.PROPERTY})
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+class StatementCountTest {
+    private static final String[] USERNAMES = {"ivan_ivanov", "petr_petrov", "anna_sidorova"};
+    private static final int TASKS_PER_USER = 5;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TaskService taskService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private JwtTokenProvider jwtTokenProvider;
+
+    @Autowired
+    private PrincipalCache principalCache;
+
+    private final List<Long> userIds = new ArrayList<>();
+    private String userToken;
+    private String adminToken;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < USERNAMES.length; i++) {
+            User user = new User("User " + i, USERNAMES[i], "parolyaNet0");
+            user.setRole(i == 0 ? Role.ADMIN : Role.USER);
+            user.setStatus(Status.ACTIVE);
+            user = userRepository.save(user);
+            userIds.add(user.getId());
+            List<Task> tasks = new ArrayList<>();
+            for (int j = 0; j < TASKS_PER_USER; j++) {
+                LocalDateTime startTime = LocalDateTime.of(2020, 8, 1, 9, 0).plusHours(j);
+                Task task = new Task("Task " + j, startTime, startTime.plusHours(1), true, false, false, user);
+                task.setTime(startTime);
+                task.setWorkInterval(60);
+                task.setTaskState(TaskState.DISABLE);
+                tasks.add(task);
+            }
+            taskService.createTasks(tasks, user.getId());
+        }
+        adminToken = jwtTokenProvider.createToken(userIds.get(0), USERNAMES[0], Role.ADMIN.name());
+        userToken = jwtTokenProvider.createToken(userIds.get(1), USERNAMES[1], Role.USER.name());
+        SqlStatementCounter.reset();
+    }
+
+    @AfterEach
+    void tearDown() {
+        JdbcTestUtils.deleteFromTables(jdbcTemplate, "task", "users");
+        userIds.forEach(principalCache::invalidate);
+    }
+
+    @Test
+    void userTaskListing() throws Exception {
+        mockMvc.perform(get("/api/tasks").header("Authorization", userToken)).andExpect(status().isOk());
+
+        assertThat(SqlStatementCounter.statements()).hasSize(2);
+    }
+
+    @Test
+    void cachedPrincipalSkipsUserLookup() throws Exception {
+        mockMvc.perform(get("/api/tasks").header("Authorization", userToken)).andExpect(status().isOk());
+        SqlStatementCounter.reset();
+
+        mockMvc.perform(get("/api/tasks").header("Authorization", userToken)).andExpect(status().isOk());
+
+        assertThat(SqlStatementCounter.statements()).hasSize(1);
+    }
+
+    @Test
+    void notModifiedTaskListingSkipsTaskLoad() throws Exception {
+        String etag = mockMvc.perform(get("/api/tasks").header("Authorization", userToken))
+                .andExpect(status().isOk()).andReturn().getResponse().getHeader("ETag");
+        SqlStatementCounter.reset();
+
+        mockMvc.perform(get("/api/tasks").header("Authorization", userToken).header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+
+        assertThat(SqlStatementCounter.statements()).hasSize(1);
+    }
+
+    @Test
+    void adminTaskListingDoesNotLoadUsers() throws Exception {
+        mockMvc.perform(get("/api/admin/tasks").header("Authorization", adminToken)).andExpect(status().isOk());
+
+        assertThat(SqlStatementCounter.statements()).hasSize(2);
+    }
+
+    @Test
+    void profileLoadsTasksWithUser() throws Exception {
+        mockMvc.perform(get("/api/me").header("Authorization", userToken)).andExpect(status().isOk());
+
+        assertThat(SqlStatementCounter.statements()).hasSize(2);
+    }
+
+    @Test
+    void userWithTasksLoadsInOneStatement() throws Exception {
+        User user = userService.getUserWithTasksById(userIds.get(1));
+
+        assertThat(Hibernate.isInitialized(user.getTasks())).isTrue();
+        assertThat(user.getTasks()).hasSize(TASKS_PER_USER);
+        assertThat(SqlStatementCounter.statements()).hasSize(1);
+    }
+
+    @Test
+    void findByIdLeavesTasksLazy() {
+        User user = userRepository.findById(userIds.get(1)).orElseThrow();
+
+        assertThat(Hibernate.isInitialized(user.getTasks())).isFalse();
+        assertThat(SqlStatementCounter.statements()).hasSize(1);
+    }
+
+    @Test
+    void nextDueTaskComesFromIndexAndPrimaryKeyRead() throws Exception {
+        long after = LocalDateTime.of(2020, 8, 1, 10, 30).atZone(ZoneId.systemDefault()).toEpochSecond();
+        String path = "/api/admin/user/" + userIds.get(1) + "/task/" + after;
+        mockMvc.perform(get(path).header("Authorization", adminToken)).andExpect(status().isOk());
+        SqlStatementCounter.reset();
+
+        mockMvc.perform(get(path).header("Authorization", adminToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.title").value("Task 2"));
+
+        assertThat(SqlStatementCounter.statements()).hasSize(1);
+        assertThat(SqlStatementCounter.statements().get(0)).doesNotContain("order by");
+    }
+}
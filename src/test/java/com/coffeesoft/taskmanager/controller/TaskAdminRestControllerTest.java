@@ -4,6 +4,7 @@ import com.coffeesoft.taskmanager.exception.TaskNotExistException;
 import com.coffeesoft.taskmanager.model.Task;
 import com.coffeesoft.taskmanager.model.TaskState;
 import com.coffeesoft.taskmanager.model.User;
+import com.coffeesoft.taskmanager.repository.UserRepository;
 import com.coffeesoft.taskmanager.service.TaskService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Assertions;
@@ -45,6 +46,9 @@ class TaskAdminRestControllerTest {
     @Autowired
     private TaskService taskService;
 
+    @Autowired
+    private UserRepository userRepository;
+
     private TaskService taskServiceMock;
 
     private Task task;
@@ -59,7 +63,7 @@ class TaskAdminRestControllerTest {
         final boolean active = true;
         final boolean repeat = false;
         final boolean sleep = false;
-        user = new User("Ivan Ivanov", "ivan_ivanov", "parolyaNet0");
+        user = userRepository.save(new User("Ivan Ivanov", "ivan_ivanov", "parolyaNet0"));
 
         task = new Task(title, startTime, endTime, active, repeat, sleep, user);
 
@@ -0,0 +1,140 @@
+package com.coffeesoft.taskmanager.controller;
+
+import com.coffeesoft.taskmanager.model.Role;
+import com.coffeesoft.taskmanager.model.Status;
+import com.coffeesoft.taskmanager.model.Task;
+import com.coffeesoft.taskmanager.model.User;
+import com.coffeesoft.taskmanager.repository.TaskRepository;
+import com.coffeesoft.taskmanager.repository.UserRepository;
+import com.coffeesoft.taskmanager.security.JwtTokenProvider;
+import com.coffeesoft.taskmanager.security.PrincipalCache;
+import com.coffeesoft.taskmanager.service.TaskService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.jdbc.JdbcTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {"jwt.secret=secret", "jwt.header=Authorization", "jwt.expiration=3600"})
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+class TaskExportTest {
+    private static final LocalDateTime MORNING = LocalDateTime.of(2020, 8, 1, 9, 0);
+    private static final String NDJSON = "application/x-ndjson";
+    private static final int TASKS = 2 * TaskRepository.STREAM_FETCH_SIZE + 1;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TaskService taskService;
+
+    @Autowired
+    private JwtTokenProvider jwtTokenProvider;
+
+    @Autowired
+    private PrincipalCache principalCache;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private User admin;
+    private String token;
+
+    @BeforeEach
+    void setUp() {
+        admin = new User("Admin Adminov", "admin_adminov", "parolyaNet0");
+        admin.setRole(Role.ADMIN);
+        admin.setStatus(Status.ACTIVE);
+        admin = userRepository.save(admin);
+        List<Task> tasks = new ArrayList<>(TASKS);
+        for (int i = 0; i < TASKS; i++) {
+            Task task = new Task("Task " + i, MORNING, MORNING.plusDays(7), true, true, true, admin);
+            task.setWorkInterval(60);
+            task.setSleepInterval(30);
+            tasks.add(task);
+        }
+        taskService.createTasks(tasks, admin.getId());
+        token = jwtTokenProvider.createToken(admin.getId(), admin.getUsername(), Role.ADMIN.name());
+    }
+
+    @AfterEach
+    void tearDown() {
+        JdbcTestUtils.deleteFromTables(jdbcTemplate, "task", "users");
+        principalCache.invalidate(admin.getId());
+    }
+
+    @Test
+    void exportsOneLinePerTaskInIdOrder() throws Exception {
+        MvcResult started = mockMvc.perform(get("/api/admin/tasks")
+                .accept(NDJSON)
+                .header("Authorization", token))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(NDJSON))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertThat(lines).hasSize(TASKS);
+        List<Long> ids = new ArrayList<>(TASKS);
+        for (String line : lines) {
+            ids.add(objectMapper.readTree(line).get("id").asLong());
+        }
+        assertThat(ids).isSorted().doesNotHaveDuplicates();
+    }
+
+    @Test
+    void clearsPersistenceContextEveryFetchSizeRows() {
+        List<Integer> managed = new ArrayList<>(TASKS);
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                taskService.forEachTask(task -> {
+                    managed.add(entityManager.unwrap(Session.class).getStatistics().getEntityCount());
+                    Hibernate.initialize(task.getUser());
+                }));
+
+        assertThat(managed).hasSize(TASKS);
+        for (int row = 0; row < TASKS; row++) {
+            // only the streamed task right after a clear, the task and its loaded owner otherwise
+            int expected = row % TaskRepository.STREAM_FETCH_SIZE == 0 ? 1 : 2;
+            assertThat(managed.get(row)).as("entities managed at row %d", row).isEqualTo(expected);
+        }
+    }
+}
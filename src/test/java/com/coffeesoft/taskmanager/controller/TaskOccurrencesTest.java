@@ -0,0 +1,112 @@
+package com.coffeesoft.taskmanager.controller;
+
+import com.coffeesoft.taskmanager.model.Role;
+import com.coffeesoft.taskmanager.model.Status;
+import com.coffeesoft.taskmanager.model.Task;
+import com.coffeesoft.taskmanager.model.User;
+import com.coffeesoft.taskmanager.repository.UserRepository;
+import com.coffeesoft.taskmanager.security.JwtTokenProvider;
+import com.coffeesoft.taskmanager.security.PrincipalCache;
+import com.coffeesoft.taskmanager.service.TaskService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.jdbc.JdbcTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.hamcrest.Matchers.contains;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {"jwt.secret=secret", "jwt.header=Authorization", "jwt.expiration=3600",
+        "task.occurrences.max-count=100"})
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+class TaskOccurrencesTest {
+    private static final LocalDateTime MORNING = LocalDateTime.of(2020, 8, 1, 9, 0);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TaskService taskService;
+
+    @Autowired
+    private JwtTokenProvider jwtTokenProvider;
+
+    @Autowired
+    private PrincipalCache principalCache;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User user;
+    private String token;
+
+    @BeforeEach
+    void setUp() {
+        user = new User("Ivan Ivanov", "ivan_ivanov", "parolyaNet0");
+        user.setRole(Role.USER);
+        user.setStatus(Status.ACTIVE);
+        user = userRepository.save(user);
+        Task water = new Task("Drink water", MORNING, MORNING.plusDays(7), true, true, true, user);
+        water.setWorkInterval(60);
+        water.setSleepInterval(60);
+        Task stretch = new Task("Stretch", MORNING.plusMinutes(30), MORNING.plusDays(7), true, true, false, user);
+        stretch.setWorkInterval(120);
+        taskService.createTasks(List.of(water, stretch), user.getId());
+        token = jwtTokenProvider.createToken(user.getId(), user.getUsername(), Role.USER.name());
+    }
+
+    @AfterEach
+    void tearDown() {
+        JdbcTestUtils.deleteFromTables(jdbcTemplate, "task", "users");
+        principalCache.invalidate(user.getId());
+    }
+
+    @Test
+    void streamsOccurrencesOrderedByStart() throws Exception {
+        MvcResult started = mockMvc.perform(get("/api/tasks/occurrences")
+                .param("from", "2020-08-03T09:00:00").param("to", "2020-08-03T10:30:00")
+                .header("Authorization", token))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].taskState").value(contains("WORK", "START", "WORK", "START", "WORK", "SLEEP")))
+                .andExpect(jsonPath("$[*].start").value(contains("2020-08-03T07:30:00", "2020-08-03T09:00:00",
+                        "2020-08-03T09:00:00", "2020-08-03T09:30:00", "2020-08-03T09:30:00", "2020-08-03T10:00:00")));
+    }
+
+    @Test
+    void rejectsWindowWithMoreOccurrencesThanLimit() throws Exception {
+        mockMvc.perform(get("/api/tasks/occurrences")
+                .param("from", "2020-08-03T00:00:00").param("to", "2020-08-06T00:00:00")
+                .header("Authorization", token))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void rejectsWindowLongerThanLimit() throws Exception {
+        mockMvc.perform(get("/api/tasks/occurrences")
+                .param("from", "2020-08-01T00:00:00").param("to", "2020-10-01T00:00:00")
+                .header("Authorization", token))
+                .andExpect(status().isBadRequest());
+    }
+}
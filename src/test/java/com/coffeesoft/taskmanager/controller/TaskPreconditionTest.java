@@ -0,0 +1,193 @@
+package com.coffeesoft.taskmanager.controller;
+
+import com.coffeesoft.taskmanager.model.Role;
+import com.coffeesoft.taskmanager.model.Status;
+import com.coffeesoft.taskmanager.model.Task;
+import com.coffeesoft.taskmanager.model.TaskState;
+import com.coffeesoft.taskmanager.model.User;
+import com.coffeesoft.taskmanager.repository.UserRepository;
+import com.coffeesoft.taskmanager.security.JwtTokenProvider;
+import com.coffeesoft.taskmanager.security.PrincipalCache;
+import com.coffeesoft.taskmanager.service.TaskService;
+import com.coffeesoft.taskmanager.support.SqlStatementCounter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.jdbc.JdbcTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {"jwt.secret=secret", "jwt.header=Authorization", "jwt.expiration=3600",
+        SqlStatementCounter.PROPERTY})
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+class TaskPreconditionTest {
+    private static final String UPDATE = "{\"title\":\"Drink more water\",\"startTime\":\"2020-08-01T09:00:00\"," +
+            "\"endTime\":\"2020-08-01T17:00:00\",\"workInterval\":60,\"active\":true,\"repeat\":true,\"sleep\":false}";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TaskService taskService;
+
+    @Autowired
+    private JwtTokenProvider jwtTokenProvider;
+
+    @Autowired
+    private PrincipalCache principalCache;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User user;
+    private Task task;
+    private String token;
+
+    @BeforeEach
+    void setUp() {
+        user = new User("Ivan Ivanov", "ivan_ivanov", "parolyaNet0");
+        user.setRole(Role.ADMIN);
+        user.setStatus(Status.ACTIVE);
+        user = userRepository.save(user);
+        LocalDateTime startTime = LocalDateTime.of(2020, 8, 1, 9, 0);
+        Task newTask = new Task("Drink water", startTime, startTime.plusHours(8), true, true, false, user);
+        newTask.setWorkInterval(60);
+        task = taskService.createTasks(List.of(newTask), user.getId()).get(0);
+        token = jwtTokenProvider.createToken(user.getId(), user.getUsername(), Role.ADMIN.name());
+    }
+
+    @AfterEach
+    void tearDown() {
+        JdbcTestUtils.deleteFromTables(jdbcTemplate, "task", "users");
+        principalCache.invalidate(user.getId());
+    }
+
+    @Test
+    void staleIfMatchFailsPrecondition() throws Exception {
+        String etag = etag();
+        mockMvc.perform(put("/api/task/" + task.getId()).header("Authorization", token).header("If-Match", etag)
+                .contentType(MediaType.APPLICATION_JSON).content(UPDATE))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(put("/api/task/" + task.getId()).header("Authorization", token).header("If-Match", etag)
+                .contentType(MediaType.APPLICATION_JSON).content(UPDATE))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(patch("/api/task/" + task.getId()).header("Authorization", token).header("If-Match", etag)
+                .contentType(TaskMergePatch.MEDIA_TYPE).content("{\"description\":\"Eight glasses\"}"))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    void schedulerTransitionDoesNotConflictWithUserEdit() throws Exception {
+        String etag = etag();
+        Task transitioned = taskService.getTaskById(task.getId());
+        transitioned.setTaskState(TaskState.WORK);
+        transitioned.setTime(transitioned.getTime().plusMinutes(60));
+        taskService.updateTaskState(transitioned);
+
+        mockMvc.perform(put("/api/task/" + task.getId()).header("Authorization", token).header("If-Match", etag)
+                .contentType(MediaType.APPLICATION_JSON).content(UPDATE))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.title").value("Drink more water"));
+
+        Task taskDb = taskService.getTaskById(task.getId());
+        assertThat(taskDb.getTaskState()).isEqualTo(TaskState.WORK);
+        assertThat(taskDb.getTime()).isEqualTo(transitioned.getTime());
+        assertThat(etag()).isNotEqualTo(etag);
+    }
+
+    @Test
+    void mergePatchWritesOnlyChangedColumns() throws Exception {
+        String etag = etag();
+        SqlStatementCounter.reset();
+
+        mockMvc.perform(patch("/api/task/" + task.getId()).header("Authorization", token).header("If-Match", etag)
+                .contentType(TaskMergePatch.MEDIA_TYPE).content("{\"description\":\"Eight glasses\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.title").value("Drink water"))
+                .andExpect(jsonPath("$.description").value("Eight glasses"));
+
+        List<String> updates = SqlStatementCounter.statements().stream()
+                .filter(sql -> sql.startsWith("update task "))
+                .collect(Collectors.toList());
+        assertThat(updates).hasSize(1);
+        assertThat(updates.get(0)).contains("description=?").doesNotContain("title").doesNotContain("task_state");
+    }
+
+    @Test
+    void fullUpdateWritesOnlyModifiedColumns() throws Exception {
+        SqlStatementCounter.reset();
+
+        mockMvc.perform(put("/api/task/" + task.getId()).header("Authorization", token)
+                .contentType(MediaType.APPLICATION_JSON).content(UPDATE))
+                .andExpect(status().isOk());
+
+        List<String> updates = SqlStatementCounter.statements().stream()
+                .filter(sql -> sql.startsWith("update "))
+                .collect(Collectors.toList());
+        assertThat(updates).hasSize(2);
+        assertThat(updates.get(0)).startsWith("update task set title=?, version=?");
+        assertThat(updates.get(1)).startsWith("update users set tasks_version");
+    }
+
+    @Test
+    void editingStartTimeMovesDueTime() throws Exception {
+        LocalDateTime startTime = LocalDateTime.now(Clock.systemUTC()).plusDays(2).withNano(0);
+        String update = String.format("{\"title\":\"Drink water\",\"startTime\":\"%s\",\"endTime\":\"%s\"," +
+                "\"workInterval\":60,\"active\":true,\"repeat\":true,\"sleep\":false}", startTime, startTime.plusHours(8));
+
+        mockMvc.perform(put("/api/task/" + task.getId()).header("Authorization", token)
+                .contentType(MediaType.APPLICATION_JSON).content(update))
+                .andExpect(status().isOk());
+
+        Task taskDb = taskService.getTaskById(task.getId());
+        assertThat(taskDb.getTaskState()).isEqualTo(TaskState.DISABLE);
+        assertThat(taskDb.getTime()).isEqualTo(startTime);
+
+        LocalDateTime started = LocalDateTime.now(Clock.systemUTC()).minusMinutes(30).withNano(0);
+        mockMvc.perform(patch("/api/task/" + task.getId()).header("Authorization", token)
+                .contentType(TaskMergePatch.MEDIA_TYPE).content("{\"startTime\":\"" + started + "\"}"))
+                .andExpect(status().isOk());
+
+        taskDb = taskService.getTaskById(task.getId());
+        assertThat(taskDb.getTaskState()).isEqualTo(TaskState.WORK);
+        assertThat(taskDb.getTime()).isEqualTo(started.plusMinutes(60));
+    }
+
+    @Test
+    void mergePatchRejectsScheduledFields() throws Exception {
+        mockMvc.perform(patch("/api/task/" + task.getId()).header("Authorization", token)
+                .contentType(TaskMergePatch.MEDIA_TYPE).content("{\"taskState\":\"WORK\"}"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(patch("/api/task/" + task.getId()).header("Authorization", token)
+                .contentType(TaskMergePatch.MEDIA_TYPE).content("{\"title\":null}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private String etag() throws Exception {
+        return mockMvc.perform(get("/api/task/" + task.getId()).header("Authorization", token))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+    }
+}
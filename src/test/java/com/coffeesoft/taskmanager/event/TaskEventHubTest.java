@@ -0,0 +1,258 @@
+package com.coffeesoft.taskmanager.event;
+
+import com.coffeesoft.taskmanager.model.Role;
+import com.coffeesoft.taskmanager.model.Status;
+import com.coffeesoft.taskmanager.model.Task;
+import com.coffeesoft.taskmanager.model.TaskState;
+import com.coffeesoft.taskmanager.model.User;
+import com.coffeesoft.taskmanager.repository.UserRepository;
+import com.coffeesoft.taskmanager.security.JwtTokenProvider;
+import com.coffeesoft.taskmanager.security.PrincipalCache;
+import com.coffeesoft.taskmanager.service.TaskService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.jdbc.JdbcTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+@SpringBootTest(properties = {"jwt.secret=secret", "jwt.header=Authorization", "jwt.expiration=3600"})
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+class TaskEventHubTest {
+    private static final Pattern EVENT_ID = Pattern.compile("id:(\\d+)\\nevent:(\\w+)");
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TaskService taskService;
+
+    @Autowired
+    private JwtTokenProvider jwtTokenProvider;
+
+    @Autowired
+    private PrincipalCache principalCache;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private User user;
+    private String token;
+
+    @BeforeEach
+    void setUp() {
+        user = new User("Ivan Ivanov", "ivan_ivanov", "parolyaNet0");
+        user.setRole(Role.USER);
+        user.setStatus(Status.ACTIVE);
+        user = userRepository.save(user);
+        token = jwtTokenProvider.createToken(user.getId(), user.getUsername(), Role.USER.name());
+    }
+
+    @AfterEach
+    void tearDown() {
+        JdbcTestUtils.deleteFromTables(jdbcTemplate, "task", "users");
+        principalCache.invalidate(user.getId());
+    }
+
+    @Test
+    void streamsEventsOfOwnTasks() throws Exception {
+        MockHttpServletResponse stream = subscribe(null);
+
+        Task task = createTask("Drink water");
+
+        String content = awaitEvents(stream, 1);
+        assertThat(content).contains("event:CREATED").contains("\"taskId\":" + task.getId());
+    }
+
+    @Test
+    void resumesFromLastEventId() throws Exception {
+        MockHttpServletResponse stream = subscribe(null);
+        createTask("Drink water");
+        Task second = createTask("Stretch");
+        Matcher matcher = EVENT_ID.matcher(awaitEvents(stream, 2));
+        matcher.find();
+        String firstId = matcher.group(1);
+
+        String resumed = awaitEvents(subscribe(firstId), 1);
+
+        assertThat(resumed).doesNotContain("id:" + firstId).contains("\"taskId\":" + second.getId());
+    }
+
+    @Test
+    void evictsSubscriberThatCannotKeepUp() {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        TaskEventHub hub = new TaskEventHub(objectMapper, meterRegistry, 60000, 60000, 60000, 1, 1, 1, 60000, 1, 1);
+        hub.start();
+        hub.stop();
+        hub.subscribe(7L, null);
+
+        for (long taskId = 1; taskId <= 3; taskId++) {
+            hub.onTaskEvent(TaskEvent.deleted(taskId, 7L));
+        }
+
+        assertThat(hub.getSubscriberCount()).isZero();
+        assertThat(meterRegistry.get("task.events.evicted").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void liveQueueIsBoundedByQueueSizeAlone() {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        TaskEventHub hub = new TaskEventHub(objectMapper, meterRegistry, 60000, 60000, 60000, 256, 4, 1, 60000, 1, 1);
+        hub.start();
+        hub.stop();
+        hub.subscribe(7L, null);
+
+        for (long taskId = 1; taskId <= 4; taskId++) {
+            hub.onTaskEvent(TaskEvent.deleted(taskId, 7L));
+        }
+        assertThat(hub.getSubscriberCount()).isEqualTo(1);
+
+        hub.onTaskEvent(TaskEvent.deleted(5L, 7L));
+        assertThat(hub.getSubscriberCount()).isZero();
+    }
+
+    @Test
+    void clientThatNeverReadsDoesNotStallOthers() throws Exception {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        TaskEventHub hub = new TaskEventHub(objectMapper, meterRegistry, 60000, 60000, 60000, 16, 16, 1, 200, 4, 4);
+        hub.start();
+        CountDownLatch neverRead = new CountDownLatch(1);
+        CountDownLatch delivered = new CountDownLatch(1);
+        CountDownLatch completed = new CountDownLatch(1);
+        try {
+            hub.subscribe(7L, null, new BlockedEmitter(neverRead, completed));
+            hub.subscribe(8L, null, new SseEmitter() {
+                @Override
+                public void send(SseEventBuilder builder) {
+                    delivered.countDown();
+                }
+            });
+
+            hub.onTaskEvent(TaskEvent.deleted(1L, 7L));
+            hub.onTaskEvent(TaskEvent.deleted(2L, 8L));
+
+            assertThat(delivered.await(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(hub.getSubscriberCount()).isEqualTo(1);
+            assertThat(meterRegistry.get("task.events.evicted").counter().count()).isEqualTo(1);
+            assertThat(completed.getCount()).isEqualTo(1);
+
+            neverRead.countDown();
+            assertThat(completed.await(5, TimeUnit.SECONDS)).isTrue();
+        } finally {
+            neverRead.countDown();
+            hub.stop();
+        }
+    }
+
+    @Test
+    void evictsSubscriberWhenSenderPoolIsFull() throws Exception {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        TaskEventHub hub = new TaskEventHub(objectMapper, meterRegistry, 60000, 60000, 60000, 16, 16, 3, 60000, 1, 1);
+        hub.start();
+        CountDownLatch neverRead = new CountDownLatch(1);
+        CountDownLatch completed = new CountDownLatch(1);
+        try {
+            for (long userId = 7; userId <= 9; userId++) {
+                hub.subscribe(userId, null, new BlockedEmitter(neverRead, completed));
+                hub.onTaskEvent(TaskEvent.deleted(userId, userId));
+            }
+
+            // one write blocks the only sender thread, one waits in its queue, the third finds no room
+            assertThat(completed.await(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(hub.getSubscriberCount()).isEqualTo(2);
+            assertThat(meterRegistry.get("task.events.evicted").counter().count()).isEqualTo(1);
+        } finally {
+            neverRead.countDown();
+            hub.stop();
+        }
+    }
+
+    private static class BlockedEmitter extends SseEmitter {
+        private final CountDownLatch neverRead;
+        private final CountDownLatch completed;
+
+        private BlockedEmitter(CountDownLatch neverRead, CountDownLatch completed) {
+            this.neverRead = neverRead;
+            this.completed = completed;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            try {
+                neverRead.await();
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+        }
+
+        @Override
+        public void complete() {
+            completed.countDown();
+        }
+    }
+
+    private MockHttpServletResponse subscribe(String lastEventId) throws Exception {
+        MockHttpServletRequestBuilder builder = get("/api/tasks/events").header("Authorization", token);
+        if (lastEventId != null) {
+            builder.header("Last-Event-ID", lastEventId);
+        }
+        return mockMvc.perform(builder).andExpect(request().asyncStarted()).andReturn().getResponse();
+    }
+
+    private Task createTask(String title) {
+        LocalDateTime startTime = LocalDateTime.of(2020, 8, 1, 9, 0);
+        Task task = new Task(title, startTime, startTime.plusHours(8), true, true, false, user);
+        task.setTime(startTime);
+        task.setWorkInterval(60);
+        task.setTaskState(TaskState.DISABLE);
+        return taskService.createTasks(List.of(task), user.getId()).get(0);
+    }
+
+    private static String awaitEvents(MockHttpServletResponse response, int count) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        String content = response.getContentAsString();
+        while (countEvents(content) < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+            content = response.getContentAsString();
+        }
+        return content;
+    }
+
+    private static int countEvents(String content) {
+        Matcher matcher = EVENT_ID.matcher(content);
+        int count = 0;
+        while (matcher.find()) {
+            count++;
+        }
+        return count;
+    }
+}
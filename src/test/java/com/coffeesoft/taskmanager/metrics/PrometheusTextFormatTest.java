@@ -0,0 +1,56 @@
+package com.coffeesoft.taskmanager.metrics;
+
+import com.coffeesoft.taskmanager.config.MetricsConfig;
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PrometheusTextFormatTest {
+    private SimpleMeterRegistry meterRegistry;
+    private RequestMetrics requestMetrics;
+    private PrometheusTextFormat format;
+
+    @BeforeEach
+    void setUp() {
+        MetricsConfig config = new MetricsConfig();
+        meterRegistry = new SimpleMeterRegistry(config.simpleConfig(), Clock.SYSTEM);
+        meterRegistry.config().meterFilter(config.histogramMeterFilter());
+        requestMetrics = new RequestMetrics(meterRegistry);
+        format = new PrometheusTextFormat(meterRegistry);
+    }
+
+    @Test
+    void writesRequestLatencyAsCumulativeHistogramPerStatus() {
+        requestMetrics.record("GET", "/api/tasks/{id}", 200, TimeUnit.MILLISECONDS.toNanos(3), 2);
+        requestMetrics.record("GET", "/api/tasks/{id}", 200, TimeUnit.MILLISECONDS.toNanos(40), 1);
+        requestMetrics.record("GET", "/api/tasks/{id}", 404, TimeUnit.MILLISECONDS.toNanos(2), 1);
+
+        String scrape = format.scrape();
+
+        assertThat(scrape)
+                .contains("# TYPE api_requests_seconds histogram\n")
+                .contains("api_requests_seconds_count{endpoint=\"/api/tasks/{id}\",method=\"GET\",status=\"200\"} 2.0\n")
+                .contains("api_requests_seconds_bucket{endpoint=\"/api/tasks/{id}\",method=\"GET\",status=\"200\",le=\"+Inf\"} 2.0\n")
+                .contains("api_requests_seconds_count{endpoint=\"/api/tasks/{id}\",method=\"GET\",status=\"404\"} 1.0\n")
+                .contains("api_requests_seconds_max{endpoint=\"/api/tasks/{id}\",method=\"GET\",status=\"200\"} 0.04\n")
+                .contains("api_requests_queries_bucket{endpoint=\"/api/tasks/{id}\",method=\"GET\",le=\"1.0\"} 2.0\n")
+                .contains("api_requests_queries_sum{endpoint=\"/api/tasks/{id}\",method=\"GET\"} 4.0\n");
+        assertThat(scrape.indexOf("# TYPE api_requests_seconds histogram"))
+                .isEqualTo(scrape.lastIndexOf("# TYPE api_requests_seconds "));
+    }
+
+    @Test
+    void writesCountersWithTotalSuffixAndEscapesLabels() {
+        Counter.builder("task.events.evicted").tag("reason", "slow \"client\"").register(meterRegistry).increment();
+
+        assertThat(format.scrape())
+                .contains("# TYPE task_events_evicted_total counter\n")
+                .contains("task_events_evicted_total{reason=\"slow \\\"client\\\"\"} 1.0\n");
+    }
+}
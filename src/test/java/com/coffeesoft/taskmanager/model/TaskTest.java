@@ -0,0 +1,61 @@
+package com.coffeesoft.taskmanager.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TaskTest {
+    private static final LocalDateTime MORNING = LocalDateTime.of(2020, 8, 1, 9, 0);
+
+    @Test
+    void catchUpMatchesStepByStepTransitions() {
+        for (boolean repeat : new boolean[]{true, false}) {
+            for (boolean sleep : new boolean[]{true, false}) {
+                for (int minutes = -10; minutes < 24 * 60; minutes += 7) {
+                    LocalDateTime current = MORNING.plusMinutes(minutes);
+                    Task stepped = task(repeat, sleep);
+                    for (int step = 0; step < 1000; step++) {
+                        stepped.setTaskStateAndNextTimeAfter(current);
+                    }
+                    Task caughtUp = task(repeat, sleep);
+                    caughtUp.setTaskStateAndNextTimeAt(current);
+
+                    assertThat(caughtUp.getTaskState()).as("state at %s", current).isEqualTo(stepped.getTaskState());
+                    assertThat(caughtUp.getTime()).as("time at %s", current).isEqualTo(stepped.getTime());
+                }
+            }
+        }
+    }
+
+    @Test
+    void finishesAfterLastCycle() {
+        Task task = task(true, true);
+
+        task.setTaskStateAndNextTimeAt(MORNING.plusDays(1));
+
+        assertThat(task.getTaskState()).isEqualTo(TaskState.FINISH);
+        assertThat(task.getTime()).isEqualTo(MORNING.plusMinutes(490));
+    }
+
+    @Test
+    void nonRepeatingTaskFinishesAfterFirstCycle() {
+        Task task = task(false, true);
+        task.setTaskStateAndNextTimeAfter(MORNING);
+        task.setTaskStateAndNextTimeAfter(MORNING);
+        task.setTaskStateAndNextTimeAfter(MORNING.plusMinutes(25));
+        task.setTaskStateAndNextTimeAfter(MORNING.plusMinutes(35));
+
+        assertThat(task.getTaskState()).isEqualTo(TaskState.FINISH);
+    }
+
+    private static Task task(boolean repeat, boolean sleep) {
+        Task task = new Task("Stretch", MORNING, MORNING.plusHours(8), true, repeat, sleep, new User());
+        task.setTime(MORNING);
+        task.setTaskState(TaskState.DISABLE);
+        task.setWorkInterval(25);
+        task.setSleepInterval(10);
+        return task;
+    }
+}
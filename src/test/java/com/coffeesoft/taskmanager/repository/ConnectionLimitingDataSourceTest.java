@@ -0,0 +1,75 @@
+package com.coffeesoft.taskmanager.repository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConnectionLimitingDataSourceTest {
+    private MeterRegistry meterRegistry;
+    private JdbcDataSource h2;
+    private ConnectionLimitingDataSource dataSource;
+
+    @BeforeEach
+    void setUp() {
+        h2 = new JdbcDataSource();
+        h2.setURL("jdbc:h2:mem:limiter");
+        meterRegistry = new SimpleMeterRegistry();
+        dataSource = new ConnectionLimitingDataSource(h2, 2, 100, meterRegistry);
+    }
+
+    @Test
+    void closingConnectionReturnsPermitOnce() throws Exception {
+        Connection connection = dataSource.getConnection();
+        try (ResultSet resultSet = connection.createStatement().executeQuery("SELECT 1")) {
+            assertThat(resultSet.next()).isTrue();
+        }
+        assertThat(dataSource.availablePermits()).isEqualTo(1);
+
+        connection.close();
+        connection.close();
+
+        assertThat(dataSource.availablePermits()).isEqualTo(2);
+    }
+
+    @Test
+    void timesOutWhenAllPermitsAreTaken() throws Exception {
+        try (Connection first = dataSource.getConnection(); Connection second = dataSource.getConnection()) {
+            Assertions.assertThrows(SQLTransientConnectionException.class, dataSource::getConnection);
+        }
+
+        assertThat(meterRegistry.get("jdbc.connections.limiter.timeouts").counter().count()).isEqualTo(1);
+        assertThat(dataSource.availablePermits()).isEqualTo(2);
+    }
+
+    @Test
+    void waitingCallerGetsConnectionWhenOneIsClosed() throws Exception {
+        ConnectionLimitingDataSource single = new ConnectionLimitingDataSource(h2, 1, 5_000, new SimpleMeterRegistry());
+        Connection first = single.getConnection();
+        CompletableFuture<Connection> waiting = CompletableFuture.supplyAsync(() -> {
+            try {
+                return single.getConnection();
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Thread.sleep(100);
+        assertThat(waiting).isNotDone();
+
+        first.close();
+
+        waiting.get(5, TimeUnit.SECONDS).close();
+        assertThat(single.availablePermits()).isEqualTo(1);
+    }
+}
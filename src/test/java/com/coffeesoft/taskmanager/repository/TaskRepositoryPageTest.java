@@ -0,0 +1,77 @@
+package com.coffeesoft.taskmanager.repository;
+
+import com.coffeesoft.taskmanager.exception.InvalidCursorException;
+import com.coffeesoft.taskmanager.model.*;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import javax.persistence.EntityManager;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+public class TaskRepositoryPageTest {
+    private static final LocalDateTime START = LocalDateTime.of(2020, 8, 1, 9, 0);
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TaskRepository taskRepository;
+
+    private User user;
+
+    @BeforeEach
+    public void setUp() {
+        user = new User("Ivan Ivanov", "ivan_ivanov", "parolyaNet0");
+        user.setRole(Role.USER);
+        user.setStatus(Status.ACTIVE);
+        entityManager.persist(user);
+        for (int i = 0; i < 5; i++) {
+            LocalDateTime time = START.plusHours(i / 2);
+            Task task = new Task("Task " + i, time, time.plusHours(1), i != 4, false, false, user);
+            task.setTime(time);
+            task.setWorkInterval(60);
+            task.setTaskState(TaskState.DISABLE);
+            entityManager.persist(task);
+        }
+        entityManager.flush();
+    }
+
+    @Test
+    public void pagesCoverAllTasksInOrder() {
+        List<Task> seen = new ArrayList<>();
+        TaskCursor cursor = null;
+        do {
+            List<Task> page = taskRepository.findPageByUserId(user.getId(), new TaskFilter(), cursor, 2);
+            seen.addAll(page);
+            cursor = page.size() == 2 ? TaskCursor.after(page.get(1)) : null;
+        } while (cursor != null);
+
+        assertThat(seen).extracting(Task::getTitle)
+                .containsExactly("Task 0", "Task 1", "Task 2", "Task 3", "Task 4");
+    }
+
+    @Test
+    public void filtersByActiveAndTimeRange() {
+        TaskFilter filter = new TaskFilter(null, true, START.plusHours(1), START.plusHours(3));
+
+        List<Task> page = taskRepository.findPageByUserId(user.getId(), filter, null, 10);
+
+        assertThat(page).extracting(Task::getTitle).containsExactly("Task 2", "Task 3");
+    }
+
+    @Test
+    public void cursorRoundTrip() throws InvalidCursorException {
+        TaskCursor cursor = new TaskCursor(START, 42L);
+
+        assertThat(TaskCursor.decode(cursor.encode())).isEqualTo(cursor);
+        Assertions.assertThrows(InvalidCursorException.class, () -> TaskCursor.decode("not-a-cursor"));
+    }
+}
@@ -40,6 +40,7 @@ public class TaskRepositoryTest {
         final boolean sleep = false;
 
         user = new User("Ivan Ivanov", "ivan_ivanov", "parolyaNet0");
+        entityManager.persist(user);
 
         task = new Task(title, startTime, endTime, active, repeat, sleep, user);
         task.setTime(startTime);
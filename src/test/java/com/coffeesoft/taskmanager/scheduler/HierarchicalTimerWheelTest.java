@@ -0,0 +1,95 @@
+package com.coffeesoft.taskmanager.scheduler;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HierarchicalTimerWheelTest {
+    private static final long TICK = 1000L;
+    private static final long START = 1_600_000_000_000L;
+
+    private HierarchicalTimerWheel<Long> wheel;
+    private List<Long> fired;
+
+    @BeforeEach
+    void setUp() {
+        wheel = new HierarchicalTimerWheel<>(TICK, START);
+        fired = new ArrayList<>();
+    }
+
+    @Test
+    void firesOnDeadline() {
+        wheel.schedule(1L, START + 5 * TICK);
+
+        wheel.advance(START + 4 * TICK, fired::add);
+        assertThat(fired).isEmpty();
+
+        wheel.advance(START + 5 * TICK, fired::add);
+        assertThat(fired).containsExactly(1L);
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void pastDeadlineFiresOnNextTick() {
+        wheel.schedule(1L, START - 60 * TICK);
+
+        wheel.advance(START + TICK, fired::add);
+
+        assertThat(fired).containsExactly(1L);
+    }
+
+    @Test
+    void cascadesFromHigherLevels() {
+        final long hour = 3600 * TICK;
+        final long day = 24 * hour;
+        wheel.schedule(1L, START + hour);
+        wheel.schedule(2L, START + day);
+        wheel.schedule(3L, START + 30 * day);
+
+        wheel.advance(START + hour - TICK, fired::add);
+        assertThat(fired).isEmpty();
+        wheel.advance(START + hour, fired::add);
+        assertThat(fired).containsExactly(1L);
+
+        wheel.advance(START + day - TICK, fired::add);
+        assertThat(fired).containsExactly(1L);
+        wheel.advance(START + day, fired::add);
+        assertThat(fired).containsExactly(1L, 2L);
+
+        wheel.advance(START + 30 * day, fired::add);
+        assertThat(fired).containsExactly(1L, 2L, 3L);
+    }
+
+    @Test
+    void cancelRemovesTimeout() {
+        HierarchicalTimerWheel.Timeout<Long> timeout = wheel.schedule(1L, START + 10 * TICK);
+        wheel.schedule(2L, START + 10 * TICK);
+
+        timeout.cancel();
+
+        assertThat(timeout.isPending()).isFalse();
+        assertThat(wheel.size()).isEqualTo(1);
+        wheel.advance(START + 10 * TICK, fired::add);
+        assertThat(fired).containsExactly(2L);
+    }
+
+    @Test
+    void cancelDuringExpiryDoesNotStopFiring() {
+        List<HierarchicalTimerWheel.Timeout<Long>> timeouts = new ArrayList<>();
+        for (long id = 0; id < 3; id++) {
+            timeouts.add(wheel.schedule(id, START + TICK));
+        }
+
+        wheel.advance(START + TICK, id -> {
+            fired.add(id);
+            timeouts.forEach(HierarchicalTimerWheel.Timeout::cancel);
+        });
+
+        assertThat(fired).hasSize(3);
+        assertThat(wheel.size()).isZero();
+    }
+}
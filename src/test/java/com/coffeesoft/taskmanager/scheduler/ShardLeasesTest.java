@@ -0,0 +1,111 @@
+package com.coffeesoft.taskmanager.scheduler;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.jdbc.JdbcTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {"jwt.secret=secret", "jwt.header=Authorization", "jwt.expiration=3600"})
+@AutoConfigureTestDatabase
+class ShardLeasesTest {
+    private static final int SHARDS = 4;
+    private static final long LEASE_MILLIS = 15_000;
+    private static final long T0 = 1_596_272_400_000L;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private ShardLeases nodeA;
+    private ShardLeases nodeB;
+
+    @BeforeEach
+    void setUp() {
+        nodeA = node();
+        nodeB = node();
+    }
+
+    @AfterEach
+    void tearDown() {
+        JdbcTestUtils.deleteFromTables(jdbcTemplate, "scheduler_lease", "scheduler_node");
+    }
+
+    @Test
+    void singleNodeOwnsEveryShard() {
+        assertThat(nodeA.renew(T0)).containsExactly(0, 1, 2, 3);
+        assertThat(nodeA.isCurrent(T0 + LEASE_MILLIS - 1)).isTrue();
+        assertThat(nodeA.isCurrent(T0 + LEASE_MILLIS)).isFalse();
+    }
+
+    @Test
+    void joiningNodeTakesOverItsShare() {
+        nodeA.renew(T0);
+        assertThat(nodeB.renew(T0 + 1000)).isEmpty();
+
+        Set<Integer> ownedByA = nodeA.renew(T0 + 2000);
+        Set<Integer> ownedByB = nodeB.renew(T0 + 3000);
+
+        assertThat(ownedByA).containsExactly(0, 1);
+        assertThat(ownedByB).containsExactly(2, 3);
+        Set<Integer> all = new HashSet<>(ownedByA);
+        all.addAll(ownedByB);
+        assertThat(all).hasSize(SHARDS);
+    }
+
+    @Test
+    void surplusShardsAreHandedOverBeforeTheirLeasesAreReleased() {
+        nodeA.renew(T0);
+        nodeB.renew(T0 + 1000);
+        Set<Integer> handedOver = new HashSet<>();
+        Set<Integer> ownedWhileHandingOver = new HashSet<>();
+
+        nodeA.renew(T0 + 2000, shards -> {
+            handedOver.addAll(shards);
+            ownedWhileHandingOver.addAll(jdbcTemplate.queryForList(
+                    "SELECT shard FROM scheduler_lease WHERE owner = ?", Integer.class, nodeA.getNodeId()));
+        });
+
+        assertThat(handedOver).containsExactly(2, 3);
+        assertThat(ownedWhileHandingOver).containsExactlyInAnyOrder(0, 1, 2, 3);
+    }
+
+    @Test
+    void shardsOfSilentNodeAreClaimedAfterLeaseExpires() {
+        nodeA.renew(T0);
+        nodeB.renew(T0 + 1000);
+        nodeA.renew(T0 + 2000);
+        nodeB.renew(T0 + 3000);
+
+        assertThat(nodeB.renew(T0 + 10_000)).containsExactly(2, 3);
+        assertThat(nodeB.renew(T0 + 2000 + LEASE_MILLIS + 1000)).containsExactly(0, 1, 2, 3);
+    }
+
+    @Test
+    void releasedShardsAreClaimedWithoutWaiting() {
+        nodeA.renew(T0);
+        nodeB.renew(T0 + 1000);
+        nodeA.renew(T0 + 2000);
+        nodeB.renew(T0 + 3000);
+
+        nodeA.release();
+
+        assertThat(nodeA.isCurrent(T0 + 4000)).isFalse();
+        assertThat(nodeB.renew(T0 + 4000)).containsExactly(0, 1, 2, 3);
+    }
+
+    private ShardLeases node() {
+        return new ShardLeases(jdbcTemplate, transactionManager, true, SHARDS, LEASE_MILLIS);
+    }
+}
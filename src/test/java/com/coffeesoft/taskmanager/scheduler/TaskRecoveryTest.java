@@ -0,0 +1,82 @@
+package com.coffeesoft.taskmanager.scheduler;
+
+import com.coffeesoft.taskmanager.event.TaskEvent;
+import com.coffeesoft.taskmanager.model.Task;
+import com.coffeesoft.taskmanager.model.TaskState;
+import com.coffeesoft.taskmanager.model.User;
+import com.coffeesoft.taskmanager.service.TaskService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+
+class TaskRecoveryTest {
+    private static final LocalDateTime MORNING = LocalDateTime.of(2020, 8, 1, 9, 0);
+    private static final Set<Integer> SHARDS = Set.of(0);
+
+    private TaskService taskService;
+    private JdbcTemplate jdbcTemplate;
+    private ApplicationEventPublisher eventPublisher;
+    private TaskRecovery recovery;
+
+    @BeforeEach
+    void setUp() {
+        taskService = Mockito.mock(TaskService.class);
+        jdbcTemplate = Mockito.mock(JdbcTemplate.class);
+        eventPublisher = Mockito.mock(ApplicationEventPublisher.class);
+        recovery = new TaskRecovery(taskService, jdbcTemplate, eventPublisher, 2);
+    }
+
+    @Test
+    void fastForwardsOverduePagesInBatches() {
+        LocalDateTime now = MORNING.plusHours(3).plusMinutes(10);
+        Mockito.when(taskService.getOverdueTasks(now, 0L, 1, SHARDS, 2)).thenReturn(List.of(task(1L), task(2L)));
+        Mockito.when(taskService.getOverdueTasks(now, 2L, 1, SHARDS, 2)).thenReturn(List.of(task(3L)));
+
+        int recovered = recovery.recover(now, 1, SHARDS);
+
+        assertThat(recovered).isEqualTo(3);
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(jdbcTemplate, Mockito.times(2)).batchUpdate(startsWith("UPDATE task"), rows.capture());
+        assertThat(rows.getAllValues().get(0)).hasSize(2);
+        assertThat(rows.getAllValues().get(1)).hasSize(1);
+        assertThat(rows.getAllValues().get(0).get(0)[0]).isEqualTo(TaskState.WORK.ordinal());
+        Mockito.verify(jdbcTemplate, Mockito.times(2)).batchUpdate(startsWith("UPDATE users"), anyList());
+        Mockito.verify(eventPublisher, Mockito.times(3)).publishEvent(any(TaskEvent.class));
+    }
+
+    @Test
+    void skipsTasksAlreadyUpToDate() {
+        Task task = task(1L);
+        task.setTaskStateAndNextTimeAt(MORNING.plusMinutes(10));
+        Mockito.when(taskService.getOverdueTasks(eq(MORNING.plusMinutes(10)), eq(0L), eq(1), eq(SHARDS), eq(2))).thenReturn(List.of(task));
+
+        assertThat(recovery.recover(MORNING.plusMinutes(10), 1, SHARDS)).isZero();
+        Mockito.verifyNoInteractions(jdbcTemplate, eventPublisher);
+    }
+
+    private static Task task(Long id) {
+        User user = new User();
+        user.setId(7L);
+        Task task = new Task("Task " + id, MORNING, MORNING.plusHours(8), true, true, true, user);
+        task.setId(id);
+        task.setTime(MORNING);
+        task.setTaskState(TaskState.DISABLE);
+        task.setWorkInterval(60);
+        task.setSleepInterval(30);
+        return task;
+    }
+}
@@ -0,0 +1,191 @@
+package com.coffeesoft.taskmanager.scheduler;
+
+import com.coffeesoft.taskmanager.event.TaskEvent;
+import com.coffeesoft.taskmanager.model.Task;
+import com.coffeesoft.taskmanager.model.TaskState;
+import com.coffeesoft.taskmanager.model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.startsWith;
+
+class TaskStateWriteBehindTest {
+    private JdbcTemplate jdbcTemplate;
+    private TaskStateWriteBehind writeBehind;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = Mockito.mock(JdbcTemplate.class);
+        writeBehind = new TaskStateWriteBehind(jdbcTemplate, true, 100, 1000);
+    }
+
+    @Test
+    void coalescesTransitionsPerTask() {
+        final LocalDateTime time = LocalDateTime.of(2020, 8, 1, 12, 0);
+        writeBehind.enqueue(task(1L, TaskState.START, time));
+        writeBehind.enqueue(task(1L, TaskState.WORK, time.plusMinutes(5)));
+        writeBehind.enqueue(task(2L, TaskState.START, time));
+
+        writeBehind.flush();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(jdbcTemplate).batchUpdate(anyString(), rows.capture());
+        assertThat(rows.getValue()).hasSize(2);
+        assertThat(writeBehind.getPendingCount()).isZero();
+    }
+
+    @Test
+    void bumpsTasksVersionOfOwnersAfterBatch() {
+        final LocalDateTime time = LocalDateTime.of(2020, 8, 1, 12, 0);
+        User owner = new User();
+        owner.setId(7L);
+        Task first = task(1L, TaskState.START, time);
+        first.setUser(owner);
+        Task second = task(2L, TaskState.WORK, time);
+        second.setUser(owner);
+        writeBehind.enqueue(first);
+        writeBehind.enqueue(second);
+
+        writeBehind.flush();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(jdbcTemplate).batchUpdate(startsWith("UPDATE users"), rows.capture());
+        assertThat(rows.getValue()).containsExactly(new Object[]{7L});
+    }
+
+    @Test
+    void pendingStateOverridesLoadedTask() {
+        final LocalDateTime time = LocalDateTime.of(2020, 8, 1, 12, 0);
+        writeBehind.enqueue(task(1L, TaskState.WORK, time.plusMinutes(5)));
+
+        Task loaded = task(1L, TaskState.START, time);
+        writeBehind.applyPending(loaded);
+
+        assertThat(loaded.getTaskState()).isEqualTo(TaskState.WORK);
+        assertThat(loaded.getTime()).isEqualTo(time.plusMinutes(5));
+    }
+
+    @Test
+    void userUpdateKeepsPendingTransition() {
+        Task task = task(1L, TaskState.WORK, LocalDateTime.of(2020, 8, 1, 12, 0));
+        writeBehind.enqueue(task);
+
+        writeBehind.onTaskEvent(TaskEvent.updated(task));
+
+        assertThat(writeBehind.getPendingCount()).isEqualTo(1);
+    }
+
+    @Test
+    void deleteDiscardsPendingTransition() {
+        Task task = task(1L, TaskState.WORK, LocalDateTime.of(2020, 8, 1, 12, 0));
+        writeBehind.enqueue(task);
+
+        writeBehind.onTaskEvent(TaskEvent.deleted(task.getId(), null));
+
+        assertThat(writeBehind.getPendingCount()).isZero();
+    }
+
+    @Test
+    void discardDropsTransitionsOfMatchingOwners() {
+        final LocalDateTime time = LocalDateTime.of(2020, 8, 1, 12, 0);
+        for (long id = 1; id <= 4; id++) {
+            User owner = new User();
+            owner.setId(id);
+            Task task = task(id, TaskState.WORK, time);
+            task.setUser(owner);
+            writeBehind.enqueue(task);
+        }
+
+        assertThat(writeBehind.discard(userId -> userId % 2 == 0)).isEqualTo(2);
+
+        assertThat(writeBehind.getPendingCount()).isEqualTo(2);
+        Task kept = task(1L, TaskState.START, time);
+        writeBehind.applyPending(kept);
+        assertThat(kept.getTaskState()).isEqualTo(TaskState.WORK);
+    }
+
+    @Test
+    void failedFlushKeepsTransitions() {
+        Mockito.when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenThrow(new QueryTimeoutException("timeout"));
+        writeBehind.enqueue(task(1L, TaskState.WORK, LocalDateTime.of(2020, 8, 1, 12, 0)));
+
+        writeBehind.flush();
+
+        assertThat(writeBehind.getPendingCount()).isEqualTo(1);
+    }
+
+    @Test
+    void transitionStaysVisibleDuringFailingFlushes() throws Exception {
+        final LocalDateTime time = LocalDateTime.of(2020, 8, 1, 12, 0);
+        // every batch fails, so the scheduler keeps racing flushes that pick the transition up and give it back
+        Mockito.when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenThrow(new QueryTimeoutException("timeout") {
+            @Override
+            public synchronized Throwable fillInStackTrace() {
+                return this;
+            }
+        });
+        writeBehind.enqueue(task(1L, TaskState.WORK, time.plusMinutes(5)));
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicInteger stale = new AtomicInteger();
+        Thread scheduler = new Thread(() -> {
+            while (!done.get()) {
+                Task loaded = task(1L, TaskState.START, time);
+                writeBehind.applyPending(loaded);
+                if (loaded.getTaskState() != TaskState.WORK) {
+                    stale.incrementAndGet();
+                }
+            }
+        });
+        scheduler.start();
+        for (int i = 0; i < 2_000; i++) {
+            writeBehind.flush();
+        }
+        done.set(true);
+        scheduler.join();
+
+        assertThat(stale.get()).isZero();
+        assertThat(writeBehind.getPendingCount()).isEqualTo(1);
+    }
+
+    @Test
+    void transitionEnqueuedDuringWriteIsKept() {
+        final LocalDateTime time = LocalDateTime.of(2020, 8, 1, 12, 0);
+        writeBehind.enqueue(task(1L, TaskState.START, time));
+        Mockito.when(jdbcTemplate.batchUpdate(startsWith("UPDATE task"), anyList())).thenAnswer(invocation -> {
+            Task loaded = task(1L, TaskState.DISABLE, time.minusMinutes(5));
+            writeBehind.applyPending(loaded);
+            assertThat(loaded.getTaskState()).isEqualTo(TaskState.START);
+            writeBehind.enqueue(task(1L, TaskState.WORK, time.plusMinutes(5)));
+            return new int[]{1};
+        });
+
+        writeBehind.flush();
+
+        Task loaded = task(1L, TaskState.START, time);
+        writeBehind.applyPending(loaded);
+        assertThat(loaded.getTaskState()).isEqualTo(TaskState.WORK);
+        assertThat(writeBehind.getPendingCount()).isEqualTo(1);
+    }
+
+    private static Task task(Long id, TaskState taskState, LocalDateTime time) {
+        Task task = new Task();
+        task.setId(id);
+        task.setTaskState(taskState);
+        task.setTime(time);
+        return task;
+    }
+}
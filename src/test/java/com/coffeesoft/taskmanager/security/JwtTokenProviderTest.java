@@ -0,0 +1,98 @@
+package com.coffeesoft.taskmanager.security;
+
+import com.coffeesoft.taskmanager.exception.JwtAuthenticationException;
+import com.coffeesoft.taskmanager.model.Role;
+import com.coffeesoft.taskmanager.model.Status;
+import com.coffeesoft.taskmanager.repository.UserRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+
+class JwtTokenProviderTest {
+    private UserDetailsService userDetailsService;
+    private UserDenylist userDenylist;
+
+    @BeforeEach
+    void setUp() {
+        userDetailsService = Mockito.mock(UserDetailsService.class);
+        userDenylist = new UserDenylist(Mockito.mock(UserRepository.class));
+    }
+
+    @Test
+    void statelessModeBuildsAuthenticationFromClaims() {
+        JwtTokenProvider jwtTokenProvider = jwtTokenProvider(true);
+        String token = jwtTokenProvider.createToken(7L, "ivan_ivanov", Role.ADMIN.name());
+
+        Authentication authentication = jwtTokenProvider.getAuthentication(token);
+
+        SecurityUser principal = (SecurityUser) authentication.getPrincipal();
+        assertThat(principal.getId()).isEqualTo(7L);
+        assertThat(principal.getUsername()).isEqualTo("ivan_ivanov");
+        assertThat(principal.getAuthorities()).isEqualTo(Role.ADMIN.getAuthorities());
+        Mockito.verify(userDetailsService, Mockito.never()).loadUserByUsername(anyString());
+    }
+
+    @Test
+    void defaultModeLoadsUserDetails() {
+        JwtTokenProvider jwtTokenProvider = jwtTokenProvider(false);
+        Mockito.when(userDetailsService.loadUserByUsername("ivan_ivanov"))
+                .thenReturn(new SecurityUser(7L, "ivan_ivanov", "hash", Role.USER, Status.ACTIVE));
+
+        jwtTokenProvider.getAuthentication(jwtTokenProvider.createToken(7L, "ivan_ivanov", Role.USER.name()));
+
+        Mockito.verify(userDetailsService).loadUserByUsername("ivan_ivanov");
+    }
+
+    @Test
+    void bannedUserIsRejected() {
+        JwtTokenProvider jwtTokenProvider = jwtTokenProvider(true);
+        String token = jwtTokenProvider.createToken(7L, "ivan_ivanov", Role.USER.name());
+
+        userDenylist.update(7L, Status.BANNED);
+        Assertions.assertThrows(JwtAuthenticationException.class, () -> jwtTokenProvider.getAuthentication(token));
+
+        userDenylist.update(7L, Status.ACTIVE);
+        assertThat(jwtTokenProvider.getAuthentication(token).isAuthenticated()).isTrue();
+    }
+
+    @Test
+    void verifiedTokenIsReused() {
+        JwtTokenProvider jwtTokenProvider = jwtTokenProvider(true);
+        String token = jwtTokenProvider.createToken(7L, "ivan_ivanov", Role.USER.name());
+
+        VerifiedToken verified = jwtTokenProvider.verify(token);
+
+        assertThat(verified.getUserId()).isEqualTo(7L);
+        assertThat(jwtTokenProvider.verify(token)).isSameAs(verified);
+        assertThat(jwtTokenProvider.getAuthentication(token).getDetails()).isSameAs(verified);
+    }
+
+    @Test
+    void tamperedTokenIsRejected() {
+        JwtTokenProvider jwtTokenProvider = jwtTokenProvider(true);
+        String token = jwtTokenProvider.createToken(7L, "ivan_ivanov", Role.USER.name());
+        jwtTokenProvider.verify(token);
+
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+
+        Assertions.assertThrows(JwtAuthenticationException.class, () -> jwtTokenProvider.verify(tampered));
+    }
+
+    private JwtTokenProvider jwtTokenProvider(boolean stateless) {
+        JwtTokenProvider jwtTokenProvider = new JwtTokenProvider(userDetailsService, userDenylist);
+        ReflectionTestUtils.setField(jwtTokenProvider, "secretKey", "secret");
+        ReflectionTestUtils.setField(jwtTokenProvider, "authorizationHeader", "Authorization");
+        ReflectionTestUtils.setField(jwtTokenProvider, "validityInMilliSeconds", 3600L);
+        ReflectionTestUtils.setField(jwtTokenProvider, "stateless", stateless);
+        ReflectionTestUtils.setField(jwtTokenProvider, "verifiedCacheMaxSize", 100);
+        jwtTokenProvider.init();
+        return jwtTokenProvider;
+    }
+}
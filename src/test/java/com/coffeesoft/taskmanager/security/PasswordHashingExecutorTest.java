@@ -0,0 +1,72 @@
+package com.coffeesoft.taskmanager.security;
+
+import com.coffeesoft.taskmanager.exception.HashingRejectedException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PasswordHashingExecutorTest {
+    private MeterRegistry meterRegistry;
+    private PasswordHashingExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        executor = new PasswordHashingExecutor(meterRegistry, 1, 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.stop();
+    }
+
+    @Test
+    void rejectsWorkWhenQueueIsFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        CompletableFuture<String> running = executor.submit(() -> {
+            started.countDown();
+            await(release);
+            return "first";
+        });
+        started.await();
+        CompletableFuture<String> queued = executor.submit(() -> "second");
+
+        Assertions.assertThrows(HashingRejectedException.class, () -> executor.submit(() -> "third"));
+
+        release.countDown();
+        assertThat(running.get()).isEqualTo("first");
+        assertThat(queued.get()).isEqualTo("second");
+        assertThat(meterRegistry.get("security.password.hashing.rejected").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("security.password.hashing.queue.wait").timer().count()).isEqualTo(2);
+    }
+
+    @Test
+    void costDoublesUntilTargetLatency() {
+        assertThat(BCryptCost.forMeasurement(60, 250)).isEqualTo(14);
+        assertThat(BCryptCost.forMeasurement(0.1, 250)).isEqualTo(BCryptCost.MAX_COST);
+    }
+
+    @Test
+    void costNeverDropsBelowTheFixedCost() {
+        assertThat(BCryptCost.MIN_COST).isEqualTo(12);
+        assertThat(BCryptCost.forMeasurement(300, 250)).isEqualTo(12);
+        assertThat(BCryptCost.forMeasurement(300, 1)).isEqualTo(12);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.coffeesoft.taskmanager.security;
+
+import com.coffeesoft.taskmanager.model.Role;
+import com.coffeesoft.taskmanager.model.Status;
+import com.coffeesoft.taskmanager.model.UserCredentials;
+import com.coffeesoft.taskmanager.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+
+class PrincipalCacheTest {
+    private UserRepository userRepository;
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = Mockito.mock(UserRepository.class);
+        meterRegistry = new SimpleMeterRegistry();
+        Mockito.when(userRepository.findCredentialsByUsername(anyString()))
+                .thenAnswer(invocation -> Optional.of(credentials(invocation.getArgument(0))));
+    }
+
+    @Test
+    void repeatedLookupsHitTheCache() {
+        PrincipalCache cache = new PrincipalCache(userRepository, meterRegistry, 60000, 100);
+
+        SecurityUser user = cache.get("ivan_ivanov").orElseThrow();
+        cache.get("ivan_ivanov");
+        cache.get("ivan_ivanov");
+
+        assertThat(user.getId()).isEqualTo(7L);
+        assertThat(user.getRole()).isEqualTo(Role.USER);
+        Mockito.verify(userRepository, Mockito.times(1)).findCredentialsByUsername("ivan_ivanov");
+        assertThat(count("hit")).isEqualTo(2);
+        assertThat(count("miss")).isEqualTo(1);
+    }
+
+    @Test
+    void expiredEntriesAreReloaded() {
+        PrincipalCache cache = new PrincipalCache(userRepository, meterRegistry, 0, 100);
+
+        cache.get("ivan_ivanov");
+        cache.get("ivan_ivanov");
+
+        Mockito.verify(userRepository, Mockito.times(2)).findCredentialsByUsername("ivan_ivanov");
+    }
+
+    @Test
+    void invalidateDropsUserById() {
+        PrincipalCache cache = new PrincipalCache(userRepository, meterRegistry, 60000, 100);
+        cache.get("ivan_ivanov");
+
+        cache.invalidate(7L);
+        cache.get("ivan_ivanov");
+
+        Mockito.verify(userRepository, Mockito.times(2)).findCredentialsByUsername("ivan_ivanov");
+    }
+
+    @Test
+    void sizeIsBounded() {
+        PrincipalCache cache = new PrincipalCache(userRepository, meterRegistry, 60000, 3);
+
+        for (int i = 0; i < 10; i++) {
+            cache.get("user_" + i);
+        }
+
+        assertThat(cache.size()).isEqualTo(3);
+    }
+
+    private double count(String result) {
+        return meterRegistry.get("cache.gets").tag("result", result).counter().count();
+    }
+
+    private static UserCredentials credentials(String username) {
+        return new UserCredentials() {
+            @Override
+            public Long getId() {
+                return 7L;
+            }
+
+            @Override
+            public String getUsername() {
+                return username;
+            }
+
+            @Override
+            public String getPassword() {
+                return "hash";
+            }
+
+            @Override
+            public Role getRole() {
+                return Role.USER;
+            }
+
+            @Override
+            public Status getStatus() {
+                return Status.ACTIVE;
+            }
+        };
+    }
+}
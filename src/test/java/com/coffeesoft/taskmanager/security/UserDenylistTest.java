@@ -0,0 +1,63 @@
+package com.coffeesoft.taskmanager.security;
+
+import com.coffeesoft.taskmanager.model.Status;
+import com.coffeesoft.taskmanager.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserDenylistTest {
+    private UserDenylist denylist;
+
+    @BeforeEach
+    void setUp() {
+        denylist = new UserDenylist(Mockito.mock(UserRepository.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void changesOutsideTransactionApplyImmediately() {
+        denylist.update(7L, Status.BANNED);
+        assertThat(denylist.isDenied(7L)).isTrue();
+
+        denylist.update(7L, Status.ACTIVE);
+        assertThat(denylist.isDenied(7L)).isFalse();
+    }
+
+    @Test
+    void banAppliesOnCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        denylist.update(7L, Status.BANNED);
+        assertThat(denylist.isDenied(7L)).isFalse();
+
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+        assertThat(denylist.isDenied(7L)).isTrue();
+    }
+
+    @Test
+    void rolledBackDeleteLeavesUserAllowed() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        denylist.deny(7L);
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        assertThat(denylist.isDenied(7L)).isFalse();
+    }
+
+    private static void complete(int status) {
+        TransactionSynchronizationManager.getSynchronizations().forEach(sync -> sync.afterCompletion(status));
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+}
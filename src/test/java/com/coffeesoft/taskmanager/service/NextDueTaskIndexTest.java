@@ -0,0 +1,146 @@
+package com.coffeesoft.taskmanager.service;
+
+import com.coffeesoft.taskmanager.event.TaskEvent;
+import com.coffeesoft.taskmanager.model.Task;
+import com.coffeesoft.taskmanager.model.TaskSchedule;
+import com.coffeesoft.taskmanager.model.User;
+import com.coffeesoft.taskmanager.repository.TaskRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NextDueTaskIndexTest {
+    private static final LocalDateTime NOON = LocalDateTime.of(2020, 8, 1, 12, 0);
+    private TaskRepository taskRepository;
+    private NextDueTaskIndex index;
+
+    @BeforeEach
+    void setUp() {
+        taskRepository = Mockito.mock(TaskRepository.class);
+        index = new NextDueTaskIndex(taskRepository, true, false);
+    }
+
+    @Test
+    void findsEarliestActiveTaskAfterTime() {
+        Mockito.when(taskRepository.streamActiveTaskSchedules()).thenReturn(Stream.of(
+                schedule(1L, 7L, NOON.plusHours(2)), schedule(2L, 7L, NOON.plusHours(1)),
+                schedule(3L, 7L, NOON), schedule(4L, 8L, NOON.plusMinutes(30))));
+
+        index.rebuild();
+
+        assertThat(index.isReady()).isTrue();
+        assertThat(index.findNextTaskIdAfter(NOON, 7L)).contains(2L);
+        assertThat(index.findNextTaskIdAfter(NOON.minusMinutes(1), 7L)).contains(3L);
+        assertThat(index.findNextTaskIdAfter(NOON.plusHours(2), 7L)).isEmpty();
+        assertThat(index.findNextTaskIdAfter(NOON, 9L)).isEmpty();
+    }
+
+    @Test
+    void followsTaskEvents() {
+        Mockito.when(taskRepository.streamActiveTaskSchedules()).thenReturn(Stream.empty());
+        index.rebuild();
+
+        index.onTaskEvent(TaskEvent.created(task(1L, 7L, NOON.plusHours(1), true)));
+        index.onTaskEvent(TaskEvent.created(task(2L, 7L, NOON.plusHours(2), true)));
+        index.onTaskEvent(TaskEvent.transitioned(task(1L, 7L, NOON.plusHours(3), true)));
+        assertThat(index.findNextTaskIdAfter(NOON, 7L)).contains(2L);
+
+        index.onTaskEvent(TaskEvent.updated(task(2L, 7L, NOON.plusHours(2), false)));
+        assertThat(index.findNextTaskIdAfter(NOON, 7L)).contains(1L);
+
+        index.onTaskEvent(TaskEvent.deleted(1L, 7L));
+        assertThat(index.findNextTaskIdAfter(NOON, 7L)).isEmpty();
+        assertThat(index.size()).isZero();
+    }
+
+    @Test
+    void eventDuringRebuildWinsOverScannedRow() {
+        Mockito.when(taskRepository.streamActiveTaskSchedules()).thenAnswer(invocation -> {
+            index.onTaskEvent(TaskEvent.deleted(1L, 7L));
+            return Stream.of(schedule(1L, 7L, NOON.plusHours(1)), schedule(2L, 7L, NOON.plusHours(2)));
+        });
+
+        index.rebuild();
+
+        assertThat(index.findNextTaskIdAfter(NOON, 7L)).contains(2L);
+    }
+
+    @Test
+    void staysOffWithSchedulerSharding() {
+        NextDueTaskIndex sharded = new NextDueTaskIndex(taskRepository, true, true);
+
+        sharded.rebuild();
+        sharded.onTaskEvent(TaskEvent.created(task(1L, 7L, NOON.plusHours(1), true)));
+
+        assertThat(sharded.isReady()).isFalse();
+        assertThat(sharded.size()).isZero();
+        Mockito.verify(taskRepository, Mockito.never()).streamActiveTaskSchedules();
+    }
+
+    @Test
+    void isOffUnlessEnabled() {
+        NextDueTaskIndex disabled = new NextDueTaskIndex(taskRepository, false, false);
+
+        disabled.rebuild();
+
+        assertThat(disabled.isReady()).isFalse();
+        Mockito.verify(taskRepository, Mockito.never()).streamActiveTaskSchedules();
+    }
+
+    @Test
+    void serviceQueriesWhenIndexedTaskNoLongerQualifies() throws Exception {
+        Mockito.when(taskRepository.streamActiveTaskSchedules()).thenReturn(Stream.of(schedule(1L, 7L, NOON.plusHours(1))));
+        index.rebuild();
+        TaskServiceImpl taskService = new TaskServiceImpl(taskRepository, null, null, null, index, 200, 31, 100000);
+        Task queried = task(2L, 7L, NOON.plusHours(2), true);
+        Mockito.when(taskRepository.findNextOrCurrentTaskAfterTimeByUserId(NOON, 7L)).thenReturn(Optional.of(queried));
+
+        Mockito.when(taskRepository.findById(1L)).thenReturn(Optional.of(task(1L, 7L, NOON.plusHours(1), true)));
+        assertThat(taskService.getNextOrCurrentTaskAfterTimeByUserId(NOON, 7L).getId()).isEqualTo(1L);
+
+        // deactivated, moved into the past and handed to another user by a change this node never saw
+        Mockito.when(taskRepository.findById(1L)).thenReturn(Optional.of(task(1L, 7L, NOON.plusHours(1), false)));
+        assertThat(taskService.getNextOrCurrentTaskAfterTimeByUserId(NOON, 7L)).isSameAs(queried);
+        Mockito.when(taskRepository.findById(1L)).thenReturn(Optional.of(task(1L, 7L, NOON, true)));
+        assertThat(taskService.getNextOrCurrentTaskAfterTimeByUserId(NOON, 7L)).isSameAs(queried);
+        Mockito.when(taskRepository.findById(1L)).thenReturn(Optional.of(task(1L, 8L, NOON.plusHours(1), true)));
+        assertThat(taskService.getNextOrCurrentTaskAfterTimeByUserId(NOON, 7L)).isSameAs(queried);
+        Mockito.when(taskRepository.findById(1L)).thenReturn(Optional.empty());
+        assertThat(taskService.getNextOrCurrentTaskAfterTimeByUserId(NOON, 7L)).isSameAs(queried);
+        Mockito.verify(taskRepository, Mockito.times(4)).findNextOrCurrentTaskAfterTimeByUserId(NOON, 7L);
+    }
+
+    private static Task task(Long id, Long userId, LocalDateTime time, boolean active) {
+        User user = new User();
+        user.setId(userId);
+        Task task = new Task("Task " + id, NOON, NOON.plusHours(8), active, true, false, user);
+        task.setId(id);
+        task.setTime(time);
+        return task;
+    }
+
+    private static TaskSchedule schedule(Long id, Long userId, LocalDateTime time) {
+        return new TaskSchedule() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public Long getUserId() {
+                return userId;
+            }
+
+            @Override
+            public LocalDateTime getTime() {
+                return time;
+            }
+        };
+    }
+}
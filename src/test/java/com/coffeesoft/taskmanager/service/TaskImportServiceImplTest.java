@@ -0,0 +1,86 @@
+package com.coffeesoft.taskmanager.service;
+
+import com.coffeesoft.taskmanager.exception.UserExistException;
+import com.coffeesoft.taskmanager.model.BulkTaskResult;
+import com.coffeesoft.taskmanager.model.Role;
+import com.coffeesoft.taskmanager.model.Status;
+import com.coffeesoft.taskmanager.model.User;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {"jwt.secret=secret", "jwt.header=Authorization", "jwt.expiration=3600"})
+@AutoConfigureTestDatabase
+@Transactional
+class TaskImportServiceImplTest {
+    private static final String VALID_TASK = "{\"title\":\"Drink water\",\"startTime\":\"2020-08-01T10:00:00\"," +
+            "\"endTime\":\"2020-08-01T18:00:00\",\"workInterval\":5,\"active\":true,\"repeat\":true,\"sleep\":false}";
+    private static final String TASK_WITHOUT_TITLE = "{\"startTime\":\"2020-08-01T10:00:00\"," +
+            "\"endTime\":\"2020-08-01T18:00:00\",\"active\":true,\"repeat\":true,\"sleep\":false}";
+
+    @Autowired
+    private TaskImportService taskImportService;
+
+    @Autowired
+    private TaskService taskService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() throws UserExistException {
+        user = new User("Ivan Ivanov", "ivan_ivanov", "parolyaNet0");
+        user.setRole(Role.USER);
+        user.setStatus(Status.ACTIVE);
+        user = userService.createUser(user);
+    }
+
+    @Test
+    void importJsonArray() throws IOException {
+        List<BulkTaskResult> results = importTasks("[" + VALID_TASK + "," + TASK_WITHOUT_TITLE + "," + VALID_TASK + "]");
+
+        assertThat(results).extracting(BulkTaskResult::getStatus).containsExactlyInAnyOrder(201, 400, 201);
+        assertThat(results).filteredOn(result -> result.getStatus() == 400)
+                .extracting(BulkTaskResult::getIndex).containsExactly(1L);
+        assertThat(taskService.getTasksByUserId(user.getId())).hasSize(2);
+    }
+
+    @Test
+    void importNdjson() throws IOException {
+        List<BulkTaskResult> results = importTasks(VALID_TASK + "\n" + VALID_TASK + "\n");
+
+        assertThat(results).extracting(BulkTaskResult::getStatus).containsExactly(201, 201);
+        assertThat(results).extracting(BulkTaskResult::getId).doesNotContainNull();
+    }
+
+    @Test
+    void malformedBodyStopsImport() throws IOException {
+        List<BulkTaskResult> results = importTasks("[" + VALID_TASK + ", {\"title\": ");
+
+        assertThat(results).extracting(BulkTaskResult::getStatus).containsExactlyInAnyOrder(400, 201);
+    }
+
+    private List<BulkTaskResult> importTasks(String body) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        taskImportService.importTasks(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), output, user.getId());
+        return objectMapper.readValue(output.toByteArray(), new TypeReference<List<BulkTaskResult>>() {});
+    }
+}
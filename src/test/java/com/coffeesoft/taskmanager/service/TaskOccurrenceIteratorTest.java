@@ -0,0 +1,99 @@
+package com.coffeesoft.taskmanager.service;
+
+import com.coffeesoft.taskmanager.model.Task;
+import com.coffeesoft.taskmanager.model.TaskOccurrence;
+import com.coffeesoft.taskmanager.model.TaskState;
+import com.coffeesoft.taskmanager.model.User;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class TaskOccurrenceIteratorTest {
+    private static final LocalDateTime MORNING = LocalDateTime.of(2020, 8, 1, 9, 0);
+
+    @Test
+    void expandsRepeatingCyclesInOrder() {
+        Task task = task(1L, MORNING, MORNING.plusDays(1), true, 60, 30);
+
+        List<TaskOccurrence> occurrences = drain(List.of(task), MORNING, MORNING.plusHours(3), 100);
+
+        assertThat(occurrences).extracting(TaskOccurrence::getTaskState, TaskOccurrence::getStart, TaskOccurrence::getEnd)
+                .containsExactly(
+                        tuple(TaskState.START, MORNING, MORNING),
+                        tuple(TaskState.WORK, MORNING, MORNING.plusHours(1)),
+                        tuple(TaskState.SLEEP, MORNING.plusHours(1), MORNING.plusMinutes(90)),
+                        tuple(TaskState.START, MORNING.plusMinutes(90), MORNING.plusMinutes(90)),
+                        tuple(TaskState.WORK, MORNING.plusMinutes(90), MORNING.plusMinutes(150)),
+                        tuple(TaskState.SLEEP, MORNING.plusMinutes(150), MORNING.plusHours(3)));
+    }
+
+    @Test
+    void mergesTasksByStartAndSkipsToWindow() {
+        Task first = task(1L, MORNING, MORNING.plusDays(30), true, 60, 60);
+        Task second = task(2L, MORNING.plusMinutes(30), MORNING.plusDays(30), true, 60, 60);
+        LocalDateTime from = MORNING.plusDays(10).plusMinutes(45);
+
+        List<TaskOccurrence> occurrences = drain(List.of(second, first), from, from.plusHours(1), 100);
+
+        assertThat(occurrences).extracting(TaskOccurrence::getTaskId, TaskOccurrence::getTaskState, TaskOccurrence::getStart)
+                .containsExactly(
+                        tuple(1L, TaskState.WORK, MORNING.plusDays(10)),
+                        tuple(2L, TaskState.WORK, MORNING.plusDays(10).plusMinutes(30)),
+                        tuple(1L, TaskState.SLEEP, MORNING.plusDays(10).plusHours(1)),
+                        tuple(2L, TaskState.SLEEP, MORNING.plusDays(10).plusMinutes(90)));
+    }
+
+    @Test
+    void singleCycleForNonRepeatingAndNoneForInactive() {
+        Task once = task(1L, MORNING, MORNING.plusDays(1), false, 60, 60);
+        Task inactive = task(2L, MORNING, MORNING.plusDays(1), true, 60, 60);
+        inactive.setActive(false);
+
+        List<TaskOccurrence> occurrences = drain(List.of(once, inactive), MORNING, MORNING.plusDays(1), 100);
+
+        assertThat(occurrences).extracting(TaskOccurrence::getTaskState)
+                .containsExactly(TaskState.START, TaskState.WORK, TaskState.SLEEP);
+    }
+
+    @Test
+    void stopsAtEndTimeAndLimit() {
+        Task task = task(1L, MORNING, MORNING.plusHours(4), true, 60, 60);
+
+        assertThat(drain(List.of(task), MORNING, MORNING.plusDays(1), 100)).hasSize(6);
+        assertThat(drain(List.of(task), MORNING, MORNING.plusDays(1), 4)).hasSize(4);
+    }
+
+    @Test
+    void countMatchesIteratorAndStopsPastLimit() {
+        Task first = task(1L, MORNING, MORNING.plusDays(30), true, 60, 60);
+        Task second = task(2L, MORNING.plusMinutes(30), MORNING.plusDays(30), true, 60, 60);
+        LocalDateTime from = MORNING.plusDays(10).plusMinutes(45);
+
+        assertThat(TaskOccurrenceIterator.count(List.of(first, second), from, from.plusHours(1), 100))
+                .isEqualTo(drain(List.of(first, second), from, from.plusHours(1), 100).size());
+        assertThat(TaskOccurrenceIterator.count(List.of(first, second), MORNING, MORNING.plusDays(30), 10))
+                .isEqualTo(11);
+    }
+
+    private static List<TaskOccurrence> drain(List<Task> tasks, LocalDateTime from, LocalDateTime to, int limit) {
+        List<TaskOccurrence> occurrences = new ArrayList<>();
+        Iterator<TaskOccurrence> iterator = new TaskOccurrenceIterator(tasks, from, to, limit);
+        iterator.forEachRemaining(occurrences::add);
+        return occurrences;
+    }
+
+    private static Task task(Long id, LocalDateTime startTime, LocalDateTime endTime, boolean repeat,
+                             int workInterval, int sleepInterval) {
+        Task task = new Task("Task " + id, startTime, endTime, true, repeat, true, new User());
+        task.setId(id);
+        task.setWorkInterval(workInterval);
+        task.setSleepInterval(sleepInterval);
+        return task;
+    }
+}
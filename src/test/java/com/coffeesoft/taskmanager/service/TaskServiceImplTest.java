@@ -6,6 +6,7 @@ import com.coffeesoft.taskmanager.model.Task;
 import com.coffeesoft.taskmanager.model.TaskState;
 import com.coffeesoft.taskmanager.model.User;
 import com.coffeesoft.taskmanager.repository.TaskRepository;
+import com.coffeesoft.taskmanager.repository.UserRepository;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -31,6 +32,9 @@ class TaskServiceImplTest {
     @Autowired
     private TaskRepository taskRepository;
 
+    @Autowired
+    private UserRepository userRepository;
+
     private User user;
     private Task task;
 
@@ -43,7 +47,7 @@ class TaskServiceImplTest {
         final boolean repeat = false;
         final boolean sleep = false;
 
-        user = new User("Ivan Ivanov", "ivan_ivanov", "parolyaNet0");
+        user = userRepository.save(new User("Ivan Ivanov", "ivan_ivanov", "parolyaNet0"));
 
         task = new Task(title, startTime, endTime, active, repeat, sleep, user);
         task.setTime(startTime);
@@ -0,0 +1,28 @@
+package com.coffeesoft.taskmanager.support;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public class SqlStatementCounter implements StatementInspector {
+    public static final String PROPERTY =
+            "spring.jpa.properties.hibernate.session_factory.statement_inspector=" +
+                    "com.coffeesoft.taskmanager.support.SqlStatementCounter";
+    private static final List<String> statements = new CopyOnWriteArrayList<>();
+
+    @Override
+    public String inspect(String sql) {
+        statements.add(sql);
+        return sql;
+    }
+
+    public static void reset() {
+        statements.clear();
+    }
+
+    public static List<String> statements() {
+        return new ArrayList<>(statements);
+    }
+}
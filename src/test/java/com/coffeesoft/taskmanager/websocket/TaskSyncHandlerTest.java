@@ -0,0 +1,256 @@
+package com.coffeesoft.taskmanager.websocket;
+
+import com.coffeesoft.taskmanager.event.TaskEvent;
+import com.coffeesoft.taskmanager.model.Role;
+import com.coffeesoft.taskmanager.model.Status;
+import com.coffeesoft.taskmanager.model.Task;
+import com.coffeesoft.taskmanager.model.TaskState;
+import com.coffeesoft.taskmanager.model.User;
+import com.coffeesoft.taskmanager.repository.UserRepository;
+import com.coffeesoft.taskmanager.security.JwtTokenProvider;
+import com.coffeesoft.taskmanager.security.PrincipalCache;
+import com.coffeesoft.taskmanager.security.SecurityUser;
+import com.coffeesoft.taskmanager.service.TaskService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.jdbc.JdbcTestUtils;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import javax.validation.Validator;
+import java.net.URI;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"jwt.secret=secret", "jwt.header=Authorization", "jwt.expiration=3600"})
+@AutoConfigureTestDatabase
+class TaskSyncHandlerTest {
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TaskService taskService;
+
+    @Autowired
+    private JwtTokenProvider jwtTokenProvider;
+
+    @Autowired
+    private PrincipalCache principalCache;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private Validator validator;
+
+    private final BlockingQueue<String> frames = new LinkedBlockingQueue<>();
+    private User user;
+    private Task task;
+    private WebSocketSession session;
+
+    @BeforeEach
+    void setUp() {
+        user = new User("Ivan Ivanov", "ivan_ivanov", "parolyaNet0");
+        user.setRole(Role.ADMIN);
+        user.setStatus(Status.ACTIVE);
+        user = userRepository.save(user);
+        task = taskService.createTasks(List.of(newTask("Drink water")), user.getId()).get(0);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (session != null) {
+            session.close();
+        }
+        JdbcTestUtils.deleteFromTables(jdbcTemplate, "task", "users");
+        principalCache.invalidate(user.getId());
+    }
+
+    @Test
+    void sendsSnapshotThenOnlyChangedFields() throws Exception {
+        session = connect(jwtTokenProvider.createToken(user.getId(), user.getUsername(), Role.ADMIN.name()));
+
+        JsonNode snapshot = nextFrame();
+        assertThat(snapshot.get("type").asText()).isEqualTo("snapshot");
+        assertThat(snapshot.get("tasks")).hasSize(1);
+        assertThat(snapshot.get("tasks").get(0).get("title").asText()).isEqualTo("Drink water");
+
+        Task taskDb = taskService.getTaskById(task.getId());
+        taskDb.setDescription("Eight glasses");
+        taskService.updateTask(taskDb);
+
+        JsonNode delta = nextFrame();
+        assertThat(delta.get("type").asText()).isEqualTo("delta");
+        assertThat(delta.get("version").asLong()).isEqualTo(snapshot.get("version").asLong() + 1);
+        assertThat(delta.get("id").asLong()).isEqualTo(task.getId());
+        assertThat(delta.get("fields").fieldNames()).toIterable().containsExactly("description");
+    }
+
+    @Test
+    void executesBatchedCommands() throws Exception {
+        session = connect(jwtTokenProvider.createToken(user.getId(), user.getUsername(), Role.ADMIN.name()));
+        nextFrame();
+
+        Task update = newTask("Drink more water");
+        String commands = objectMapper.writeValueAsString(List.of(
+                new Command("create", null, newTask("Stretch")),
+                new Command("update", task.getId(), update),
+                new Command("delete", -1L, null)));
+        session.sendMessage(new TextMessage("{\"type\":\"commands\",\"ref\":\"c1\",\"commands\":" + commands + "}"));
+
+        JsonNode created = nextFrame();
+        assertThat(created.get("fields").get("title").asText()).isEqualTo("Stretch");
+        JsonNode updated = nextFrame();
+        assertThat(updated.get("fields").fieldNames()).toIterable().containsExactly("title");
+        JsonNode ack = nextFrame();
+        assertThat(ack.get("type").asText()).isEqualTo("ack");
+        assertThat(ack.get("ref").asText()).isEqualTo("c1");
+        assertThat(ack.get("results").findValuesAsText("status")).containsExactly("201", "200", "404");
+        assertThat(taskService.getTasksByUserId(user.getId())).extracting(Task::getTitle)
+                .containsExactlyInAnyOrder("Drink more water", "Stretch");
+    }
+
+    @Test
+    void acceptsBatchLargerThanContainerDefaultBuffer() throws Exception {
+        session = connect(jwtTokenProvider.createToken(user.getId(), user.getUsername(), Role.ADMIN.name()));
+        nextFrame();
+
+        List<Command> creates = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            creates.add(new Command("create", null, newTask("Task " + i)));
+        }
+        String commands = objectMapper.writeValueAsString(creates);
+        assertThat(commands.length()).isGreaterThan(16 * 1024);
+        session.sendMessage(new TextMessage("{\"type\":\"commands\",\"ref\":\"big\",\"commands\":" + commands + "}"));
+
+        JsonNode ack = null;
+        while (ack == null) {
+            JsonNode frame = nextFrame();
+            if (frame.get("type").asText().equals("ack")) {
+                ack = frame;
+            }
+        }
+        assertThat(ack.get("results")).hasSize(200);
+        assertThat(ack.get("results").findValuesAsText("status")).containsOnly("201");
+    }
+
+    @Test
+    void publisherDoesNotWaitForClientThatNeverReads() throws Exception {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        TaskSyncHandler handler = new TaskSyncHandler(taskService, objectMapper, validator, meterRegistry,
+                60000, 2, 1, 4, 4, 1024 * 1024);
+        handler.start();
+        CountDownLatch neverRead = new CountDownLatch(1);
+        WebSocketSession blocked = mock(WebSocketSession.class);
+        when(blocked.getId()).thenReturn("blocked");
+        when(blocked.getPrincipal()).thenReturn(new UsernamePasswordAuthenticationToken(
+                new SecurityUser(user.getId(), user.getUsername(), null, Role.ADMIN, Status.ACTIVE), null));
+        doAnswer(invocation -> {
+            neverRead.await();
+            return null;
+        }).when(blocked).sendMessage(any());
+        try {
+            handler.afterConnectionEstablished(blocked);
+            // the snapshot write is in flight and blocked before any delta is published
+            verify(blocked, timeout(5000)).sendMessage(any());
+            Assertions.assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+                for (int i = 0; i < 4; i++) {
+                    task.setDescription("Glass " + i);
+                    handler.onTaskEvent(TaskEvent.updated(task));
+                }
+            });
+
+            assertThat(meterRegistry.get("task.sync.terminated").counter().count()).isEqualTo(1);
+            verify(blocked, never()).close(any());
+
+            neverRead.countDown();
+            verify(blocked, timeout(5000)).close(CloseStatus.SESSION_NOT_RELIABLE);
+        } finally {
+            neverRead.countDown();
+            handler.stop();
+        }
+    }
+
+    @Test
+    void rejectsHandshakeWithoutToken() {
+        Assertions.assertThrows(ExecutionException.class, () -> connect(null));
+    }
+
+    private WebSocketSession connect(String token) throws Exception {
+        WebSocketHttpHeaders headers = new WebSocketHttpHeaders();
+        if (token != null) {
+            headers.add("Authorization", token);
+        }
+        return new StandardWebSocketClient().doHandshake(new TextWebSocketHandler() {
+            @Override
+            protected void handleTextMessage(WebSocketSession session, TextMessage message) {
+                frames.add(message.getPayload());
+            }
+        }, headers, URI.create("ws://localhost:" + port + "/api/tasks/sync")).get(5, TimeUnit.SECONDS);
+    }
+
+    private JsonNode nextFrame() throws Exception {
+        String frame = frames.poll(5, TimeUnit.SECONDS);
+        assertThat(frame).isNotNull();
+        return objectMapper.readTree(frame);
+    }
+
+    private Task newTask(String title) {
+        LocalDateTime startTime = LocalDateTime.of(2020, 8, 1, 9, 0);
+        Task task = new Task(title, startTime, startTime.plusHours(8), false, true, false, user);
+        task.setWorkInterval(60);
+        task.setTaskState(TaskState.DISABLE);
+        return task;
+    }
+
+    private static class Command {
+        public final String op;
+        public final Long id;
+        public final Task task;
+
+        private Command(String op, Long id, Task task) {
+            this.op = op;
+            this.id = id;
+            this.task = task;
+        }
+    }
+}